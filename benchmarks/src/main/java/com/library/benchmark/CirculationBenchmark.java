@@ -0,0 +1,53 @@
+package com.library.benchmark;
+
+import com.library.service.CirculationRequest;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Each invocation checks a book out and returns it again, so the library is
+// left unchanged and the measurement can run for as long as needed. Books and
+// patrons are taken from the range the generator leaves unlent.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+@State(Scope.Thread)
+public class CirculationBenchmark {
+    private static final int BATCH_SIZE = 100;
+
+    private int counter;
+
+    @Benchmark
+    public void checkoutAndReturn(LibraryState state, Blackhole blackhole) {
+        int free = state.books - (int) (state.books * state.loanedFraction);
+        int index = state.books - 1 - (counter % free);
+        String isbn = SyntheticData.isbn(index);
+        String patronId = SyntheticData.patronId(counter % state.patrons);
+        counter++;
+        blackhole.consume(state.library.checkoutBook(patronId, isbn));
+        blackhole.consume(state.library.returnBook(isbn));
+    }
+
+    // Same work as checkoutAndReturn, one batch call each way per BATCH_SIZE
+    // items; reported per item, so the two are directly comparable.
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void batchCheckoutAndReturn(LibraryState state, Blackhole blackhole) {
+        int free = state.books - (int) (state.books * state.loanedFraction);
+        List<CirculationRequest> checkouts = new ArrayList<>(BATCH_SIZE);
+        List<String> returns = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            String isbn = SyntheticData.isbn(state.books - 1 - (counter % free));
+            checkouts.add(new CirculationRequest(SyntheticData.patronId(counter % state.patrons), isbn));
+            returns.add(isbn);
+            counter++;
+        }
+        blackhole.consume(state.library.checkoutBooks(checkouts));
+        blackhole.consume(state.library.returnBooks(returns));
+    }
+}
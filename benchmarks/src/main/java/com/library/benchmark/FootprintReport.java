@@ -0,0 +1,71 @@
+package com.library.benchmark;
+
+import com.library.model.Book;
+import com.library.model.Patron;
+import com.library.service.Library;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Reports the retained heap per book, per patron and per active loan, measured
+// as the growth in used heap after a full collection. Not a JMH benchmark, as
+// JMH measures time; run it with a heap large enough for the catalog:
+//
+//   java -Xmx4g -cp target/benchmarks.jar com.library.benchmark.FootprintReport 1000000
+public class FootprintReport {
+    private static final int BOOKS_PER_PATRON = 10;
+    private static final int LOANS_PER_PATRON = 4;
+
+    public static void main(String[] args) {
+        int books = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int patrons = Math.max(1, books / BOOKS_PER_PATRON);
+        int loans = Math.min(books / 5, patrons * LOANS_PER_PATRON);
+
+        long empty = usedHeap();
+        Library library = new Library();
+        long start = usedHeap();
+
+        Random random = new Random(42);
+        List<Book> batch = new ArrayList<>(books);
+        for (int i = 0; i < books; i++) {
+            batch.add(SyntheticData.book(i, random));
+        }
+        library.addBooks(batch);
+        batch = null;
+        long withBooks = usedHeap();
+
+        for (int i = 0; i < patrons; i++) {
+            library.addPatron(new Patron(SyntheticData.patronId(i), "Patron " + i, "patron" + i + "@example.com", "555-" + i));
+        }
+        long withPatrons = usedHeap();
+
+        for (int i = 0; i < loans; i++) {
+            library.checkoutBook(SyntheticData.patronId(i % patrons), SyntheticData.isbn(i));
+        }
+        long withLoans = usedHeap();
+
+        System.out.printf("books=%d patrons=%d loans=%d%n", books, patrons, library.getActiveBorrows().size());
+        System.out.printf("empty library  %,12d bytes%n", start - empty);
+        System.out.printf("per book       %12.1f bytes%n", (double) (withBooks - start) / books);
+        System.out.printf("per patron     %12.1f bytes%n", (double) (withPatrons - withBooks) / patrons);
+        System.out.printf("per loan       %12.1f bytes%n", (double) (withLoans - withPatrons) / loans);
+        library.getNotificationDispatcher().close();
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long previous = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            long used = memory.getHeapMemoryUsage().getUsed();
+            if (used >= previous) {
+                return used;
+            }
+            previous = used;
+        }
+        return previous;
+    }
+}
@@ -0,0 +1,59 @@
+package com.library.benchmark;
+
+import com.library.service.Library;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Hold queue costs with millions of holds outstanding. The holds are placed
+// on books the generator lends out, so they all stay waiting. Each
+// placeAndCancel invocation places one more hold and cancels it again, which
+// leaves the queues at their starting size.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class HoldQueueBenchmark {
+    private static final int BOOKS = 1_000_000;
+    private static final int PATRONS = 100_000;
+    private static final double LOANED_FRACTION = 0.2;
+
+    @Param({"100000", "1000000", "2000000"})
+    public int holds;
+
+    private Library library;
+    private int loaned;
+    private int counter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        library = SyntheticData.library(BOOKS, PATRONS, LOANED_FRACTION, 0.1, 42);
+        loaned = (int) (BOOKS * LOANED_FRACTION);
+        Random random = new Random(11);
+        for (int i = 0; i < holds; i++) {
+            library.placeHold(SyntheticData.patronId(random.nextInt(PATRONS)),
+                    SyntheticData.isbn(random.nextInt(loaned)), random.nextInt(3));
+        }
+    }
+
+    @Benchmark
+    public void placeAndCancel(Blackhole blackhole) {
+        String isbn = SyntheticData.isbn(counter % loaned);
+        String patronId = SyntheticData.patronId((int) ((counter * 7919L) % PATRONS));
+        counter++;
+        if (library.placeHold(patronId, isbn).isPresent()) {
+            blackhole.consume(library.cancelHold(patronId, isbn));
+        }
+    }
+
+    // A sweep that finds nothing to expire, as most hourly sweeps do.
+    @Benchmark
+    public Object expirySweep() {
+        return library.expireHolds(LocalDate.now());
+    }
+}
@@ -0,0 +1,209 @@
+package com.library.benchmark;
+
+import com.library.http.LibraryApi;
+import com.library.http.LibraryHttpServer;
+import com.library.metrics.HistogramSnapshot;
+import com.library.metrics.LatencyHistogram;
+import com.library.service.Library;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+
+// Closed-loop load against the HTTP API: each connection keeps one
+// keep-alive socket, sends a pipeline of requests, reads every response and
+// sends the next pipeline. A request's latency runs from the write of its
+// pipeline to the end of its response. The mix is 60% title searches, 20%
+// ISBN lookups, 10% checkouts and returns and 10% statistics. Without a
+// host:port it starts an embedded server over a synthetic library. Not a JMH
+// benchmark, since JMH does not model remote clients:
+//
+//   java -cp target/benchmarks.jar com.library.benchmark.HttpLoadGenerator \
+//       [connections] [pipelineDepth] [seconds] [books] [host:port]
+public class HttpLoadGenerator {
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int books = args.length > 3 ? Integer.parseInt(args[3]) : 100_000;
+
+        LibraryHttpServer server = null;
+        String host = "localhost";
+        int port;
+        if (args.length > 4) {
+            host = args[4].substring(0, args[4].lastIndexOf(':'));
+            port = Integer.parseInt(args[4].substring(args[4].lastIndexOf(':') + 1));
+        } else {
+            Library library = SyntheticData.library(books, Math.max(connections, books / 10), 0.1, 0.1, 42);
+            server = new LibraryHttpServer(new LibraryApi(library), 0);
+            server.start();
+            port = server.getPort();
+        }
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        LongAdder errors = new LongAdder();
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        List<Thread> clients = new ArrayList<>();
+        for (int c = 0; c < connections; c++) {
+            Client client = new Client(host, port, c, connections, depth, books, histogram, errors, deadline);
+            Thread thread = new Thread(client, "library-http-load-" + c);
+            clients.add(thread);
+        }
+        long start = System.nanoTime();
+        for (Thread thread : clients) {
+            thread.start();
+        }
+        for (Thread thread : clients) {
+            thread.join();
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        HistogramSnapshot latencies = histogram.snapshot();
+        System.out.printf("connections=%d pipelineDepth=%d seconds=%.1f%n", connections, depth, elapsedSeconds);
+        System.out.printf("requests=%d errors=%d throughput=%.0f req/s%n",
+                latencies.getCount(), errors.sum(), latencies.getCount() / elapsedSeconds);
+        for (double percentile : PERCENTILES) {
+            System.out.printf("p%-5s %10.1f us%n", percentile, latencies.getValueAtPercentile(percentile) / 1000.0);
+        }
+        System.out.printf("max    %10.1f us%n", latencies.getMaxNanos() / 1000.0);
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    private static final class Client implements Runnable {
+        private final String host;
+        private final int port;
+        private final int depth;
+        private final int books;
+        private final LatencyHistogram histogram;
+        private final LongAdder errors;
+        private final long deadline;
+        private final Random random;
+        private final String patronId;
+        private final String[] titles;
+        // Books this connection alone checks out and returns, so circulation
+        // requests only fail on a server fault.
+        private final List<String> ownBooks;
+        private final List<String> borrowed;
+
+        Client(String host, int port, int index, int connections, int depth, int books,
+               LatencyHistogram histogram, LongAdder errors, long deadline) {
+            this.host = host;
+            this.port = port;
+            this.depth = depth;
+            this.books = books;
+            this.histogram = histogram;
+            this.errors = errors;
+            this.deadline = deadline;
+            this.random = new Random(index);
+            this.patronId = SyntheticData.patronId(index);
+            this.titles = SyntheticData.titleQueries(1024, random);
+            this.ownBooks = new ArrayList<>();
+            this.borrowed = new ArrayList<>();
+            // The first tenth of the catalog starts out on loan.
+            for (int i = books / 10 + index; i < books && ownBooks.size() < 4; i += connections) {
+                ownBooks.add(SyntheticData.isbn(i));
+            }
+        }
+
+        @Override
+        public void run() {
+            try (Socket socket = new Socket(host, port)) {
+                socket.setTcpNoDelay(true);
+                OutputStream out = socket.getOutputStream();
+                InputStream in = new BufferedInputStream(socket.getInputStream(), 64 * 1024);
+                StringBuilder pipeline = new StringBuilder();
+                while (System.nanoTime() < deadline) {
+                    pipeline.setLength(0);
+                    for (int i = 0; i < depth; i++) {
+                        appendRequest(pipeline);
+                    }
+                    long sent = System.nanoTime();
+                    out.write(pipeline.toString().getBytes(StandardCharsets.ISO_8859_1));
+                    for (int i = 0; i < depth; i++) {
+                        int status = readResponse(in);
+                        histogram.record(System.nanoTime() - sent);
+                        if (status >= 300) {
+                            errors.increment();
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                errors.increment();
+                System.err.println("Connection failed: " + e.getMessage());
+            }
+        }
+
+        private void appendRequest(StringBuilder request) {
+            int kind = random.nextInt(100);
+            if (kind < 60) {
+                request.append("GET /books?limit=10&title=")
+                        .append(titles[random.nextInt(titles.length)].replace(" ", "%20"))
+                        .append(" HTTP/1.1\r\n\r\n");
+            } else if (kind < 80) {
+                request.append("GET /books/").append(SyntheticData.isbn(random.nextInt(books)))
+                        .append(" HTTP/1.1\r\n\r\n");
+            } else if (kind < 90 && !ownBooks.isEmpty()) {
+                if (borrowed.isEmpty() || (borrowed.size() < ownBooks.size() && random.nextBoolean())) {
+                    String isbn = ownBooks.get(borrowed.size());
+                    borrowed.add(isbn);
+                    request.append("POST /checkout?patronId=").append(patronId).append("&isbn=").append(isbn);
+                } else {
+                    String isbn = borrowed.remove(borrowed.size() - 1);
+                    request.append("POST /return?isbn=").append(isbn);
+                }
+                request.append(" HTTP/1.1\r\n\r\n");
+            } else {
+                request.append("GET /statistics HTTP/1.1\r\n\r\n");
+            }
+        }
+
+        // Reads one response and returns its status; the body is skipped.
+        private static int readResponse(InputStream in) throws IOException {
+            String statusLine = readLine(in);
+            int status = Integer.parseInt(statusLine.substring(9, 12));
+            int contentLength = 0;
+            String line;
+            while (!(line = readLine(in)).isEmpty()) {
+                if (line.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                    contentLength = Integer.parseInt(line.substring(15).trim());
+                }
+            }
+            for (long skipped = 0; skipped < contentLength; ) {
+                long n = in.skip(contentLength - skipped);
+                if (n <= 0) {
+                    if (in.read() < 0) {
+                        throw new IOException("Connection closed mid-response");
+                    }
+                    n = 1;
+                }
+                skipped += n;
+            }
+            return status;
+        }
+
+        private static String readLine(InputStream in) throws IOException {
+            StringBuilder line = new StringBuilder();
+            int b;
+            while ((b = in.read()) != '\n') {
+                if (b < 0) {
+                    throw new IOException("Connection closed");
+                }
+                if (b != '\r') {
+                    line.append((char) b);
+                }
+            }
+            return line.toString();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.library.benchmark;
+
+import com.library.service.Library;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+@State(Scope.Benchmark)
+public class LibraryState {
+    private static final int QUERY_COUNT = 1024;
+
+    @Param({"10000", "100000", "1000000"})
+    public int books;
+
+    @Param({"10"})
+    public int booksPerPatron;
+
+    @Param({"0.2"})
+    public double loanedFraction;
+
+    @Param({"0.1"})
+    public double overdueFraction;
+
+    public Library library;
+    public int patrons;
+    public String[] titleQueries;
+    public String[] authorQueries;
+    public String[] isbnQueries;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        patrons = Math.max(1, books / booksPerPatron);
+        library = SyntheticData.library(books, patrons, loanedFraction, overdueFraction, 42);
+        Random random = new Random(7);
+        titleQueries = SyntheticData.titleQueries(QUERY_COUNT, random);
+        authorQueries = SyntheticData.authorQueries(QUERY_COUNT, random);
+        isbnQueries = SyntheticData.isbnQueries(QUERY_COUNT, books, random);
+    }
+
+    static int next(int counter) {
+        return counter & (QUERY_COUNT - 1);
+    }
+}
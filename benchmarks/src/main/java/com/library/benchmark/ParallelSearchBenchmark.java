@@ -0,0 +1,71 @@
+package com.library.benchmark;
+
+import com.library.model.Book;
+import com.library.patterns.AuthorSearchStrategy;
+import com.library.patterns.SearchStrategy;
+import com.library.patterns.TitleSearchStrategy;
+import com.library.service.SearchService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Runs the scanning strategies through SearchService with the size threshold
+// disabled, so sequential (parallelism 1) and fork-join runs can be compared
+// at each list size to find where the parallel mode starts to pay off.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class ParallelSearchBenchmark {
+    private static final int QUERY_COUNT = 1024;
+
+    @Param({"1000", "10000", "50000", "200000", "1000000"})
+    public int books;
+
+    // 0 uses every available processor.
+    @Param({"1", "0"})
+    public int parallelism;
+
+    private List<Book> catalog;
+    private SearchService searchService;
+    private SearchStrategy titleSearch;
+    private SearchStrategy authorSearch;
+    private String[] titleQueries;
+    private String[] authorQueries;
+    private int counter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        catalog = new ArrayList<>(books);
+        for (int i = 0; i < books; i++) {
+            catalog.add(SyntheticData.book(i, random));
+        }
+        int threads = parallelism == 0 ? Runtime.getRuntime().availableProcessors() : parallelism;
+        searchService = new SearchService(threads, 1);
+        titleSearch = new TitleSearchStrategy();
+        authorSearch = new AuthorSearchStrategy();
+        titleQueries = SyntheticData.titleQueries(QUERY_COUNT, random);
+        authorQueries = SyntheticData.authorQueries(QUERY_COUNT, random);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        searchService.close();
+    }
+
+    @Benchmark
+    public List<Book> titleScan() {
+        return searchService.performSearch(catalog, titleSearch, titleQueries[LibraryState.next(counter++)]);
+    }
+
+    @Benchmark
+    public List<Book> authorScan() {
+        return searchService.performSearch(catalog, authorSearch, authorQueries[LibraryState.next(counter++)]);
+    }
+}
@@ -0,0 +1,26 @@
+package com.library.benchmark;
+
+import com.library.model.BorrowRecord;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+public class ReportingBenchmark {
+
+    @Benchmark
+    public Map<String, Integer> getBorrowingStatistics(LibraryState state) {
+        return state.library.getBorrowingStatistics();
+    }
+
+    @Benchmark
+    public List<BorrowRecord> getOverdueBooks(LibraryState state) {
+        return state.library.getOverdueBooks();
+    }
+}
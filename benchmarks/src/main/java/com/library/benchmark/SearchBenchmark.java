@@ -0,0 +1,39 @@
+package com.library.benchmark;
+
+import com.library.index.RankedPage;
+import com.library.model.Book;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+@State(Scope.Thread)
+public class SearchBenchmark {
+    private int counter;
+
+    @Benchmark
+    public List<Book> searchByTitle(LibraryState state) {
+        return state.library.searchByTitle(state.titleQueries[LibraryState.next(counter++)]);
+    }
+
+    @Benchmark
+    public List<Book> searchByAuthor(LibraryState state) {
+        return state.library.searchByAuthor(state.authorQueries[LibraryState.next(counter++)]);
+    }
+
+    @Benchmark
+    public RankedPage searchRankedTop20(LibraryState state) {
+        return state.library.searchRanked(state.titleQueries[LibraryState.next(counter++)], 20);
+    }
+
+    @Benchmark
+    public Optional<Book> searchByIsbn(LibraryState state) {
+        return state.library.searchByIsbn(state.isbnQueries[LibraryState.next(counter++)]);
+    }
+}
@@ -0,0 +1,119 @@
+package com.library.benchmark;
+
+import com.library.model.Book;
+import com.library.model.BorrowRecord;
+import com.library.model.Patron;
+import com.library.service.Library;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Deterministic catalog, patron and loan generator shared by the benchmarks.
+// The same seed and sizes always produce the same library.
+public final class SyntheticData {
+    static final String[] WORDS = {
+        "the", "of", "and", "night", "river", "garden", "shadow", "king", "winter", "house",
+        "silent", "glass", "empire", "storm", "letters", "memory", "island", "stone", "fire", "city",
+        "song", "road", "secret", "light", "ocean", "iron", "wolf", "crown", "summer", "dream",
+        "history", "journey", "paper", "mountain", "forest", "golden", "broken", "last", "first", "little"
+    };
+    static final String[] GIVEN_NAMES = {
+        "Ada", "Brian", "Chen", "Dora", "Emil", "Fatima", "George", "Hana", "Ivan", "Jane",
+        "Kofi", "Lena", "Mateo", "Nora", "Omar", "Priya", "Quinn", "Rosa", "Sven", "Tara"
+    };
+    static final String[] SURNAMES = {
+        "Austen", "Baldwin", "Carver", "Dickens", "Eliot", "Faulkner", "Gaskell", "Hardy", "Ishiguro", "Joyce",
+        "Kafka", "Lessing", "Morrison", "Nabokov", "Orwell", "Pamuk", "Roth", "Sebald", "Tolstoy", "Woolf"
+    };
+
+    private static final int BATCH_SIZE = 10_000;
+
+    private SyntheticData() {
+    }
+
+    public static String isbn(int index) {
+        String digits = Integer.toString(index);
+        StringBuilder isbn = new StringBuilder(17).append("978-");
+        for (int i = digits.length(); i < 10; i++) {
+            isbn.append('0');
+        }
+        return isbn.append(digits).toString();
+    }
+
+    public static String patronId(int index) {
+        return "P" + index;
+    }
+
+    public static Book book(int index, Random random) {
+        int words = 1 + random.nextInt(4);
+        StringBuilder title = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                title.append(' ');
+            }
+            title.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        title.append(' ').append(index);
+        String author = GIVEN_NAMES[random.nextInt(GIVEN_NAMES.length)] + " "
+                + SURNAMES[random.nextInt(SURNAMES.length)];
+        return new Book(isbn(index), title.toString(), author, 1800 + random.nextInt(225));
+    }
+
+    // Builds a library with the given number of books and patrons and lends out
+    // loanedFraction of the books; overdueFraction of those loans are past due.
+    public static Library library(int bookCount, int patronCount, double loanedFraction,
+                                  double overdueFraction, long seed) {
+        Random random = new Random(seed);
+        Library library = new Library();
+
+        List<Book> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < bookCount; i++) {
+            batch.add(book(i, random));
+            if (batch.size() == BATCH_SIZE) {
+                library.addBooks(batch);
+                batch.clear();
+            }
+        }
+        library.addBooks(batch);
+
+        for (int i = 0; i < patronCount; i++) {
+            library.addPatron(new Patron(patronId(i), "Patron " + i, "patron" + i + "@example.com", "555-" + i));
+        }
+
+        LocalDate today = LocalDate.now();
+        int loans = (int) Math.min((long) (bookCount * loanedFraction), patronCount * 4L);
+        for (int i = 0; i < loans; i++) {
+            boolean overdue = random.nextDouble() < overdueFraction;
+            LocalDate borrowDate = today.minusDays(overdue ? 22 + random.nextInt(60) : random.nextInt(21));
+            library.restoreBorrowRecord(new BorrowRecord("REC-" + (i + 1), patronId(i % patronCount),
+                    isbn(i), borrowDate, borrowDate.plusWeeks(3)));
+        }
+        return library;
+    }
+
+    public static String[] titleQueries(int count, Random random) {
+        String[] queries = new String[count];
+        for (int i = 0; i < count; i++) {
+            queries[i] = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)];
+        }
+        return queries;
+    }
+
+    public static String[] authorQueries(int count, Random random) {
+        String[] queries = new String[count];
+        for (int i = 0; i < count; i++) {
+            queries[i] = SURNAMES[random.nextInt(SURNAMES.length)].toLowerCase();
+        }
+        return queries;
+    }
+
+    public static String[] isbnQueries(int count, int bookCount, Random random) {
+        String[] queries = new String[count];
+        for (int i = 0; i < count; i++) {
+            queries[i] = isbn(random.nextInt(bookCount));
+        }
+        return queries;
+    }
+}
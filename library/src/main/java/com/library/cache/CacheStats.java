@@ -0,0 +1,42 @@
+package com.library.cache;
+
+public class CacheStats {
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long expirations;
+    private final long invalidations;
+    private final int entries;
+    private final long weight;
+
+    public CacheStats(long hits, long misses, long evictions, long expirations, long invalidations,
+                      int entries, long weight) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.expirations = expirations;
+        this.invalidations = invalidations;
+        this.entries = entries;
+        this.weight = weight;
+    }
+
+    public long getHits() { return hits; }
+    public long getMisses() { return misses; }
+    public long getEvictions() { return evictions; }
+    public long getExpirations() { return expirations; }
+    public long getInvalidations() { return invalidations; }
+    public int getEntries() { return entries; }
+    public long getWeight() { return weight; }
+
+    public double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CacheStats{Hits=%d, Misses=%d, HitRate=%.1f%%, Evictions=%d, Expirations=%d, "
+                        + "Invalidations=%d, Entries=%d, Weight=%d}",
+                hits, misses, getHitRate() * 100, evictions, expirations, invalidations, entries, weight);
+    }
+}
@@ -0,0 +1,283 @@
+package com.library.cache;
+
+import com.library.model.Book;
+import com.library.patterns.CacheTerms;
+import com.library.patterns.SearchStrategy;
+import com.library.store.OrdinalTable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Read-through cache of search results keyed by the strategy's cache key and
+// the normalized query, so equivalent strategy instances share entries. An
+// entry weighs one plus its result size, and entries are evicted least
+// recently or least frequently used once the total weight exceeds the limit.
+// Entries also expire after the TTL.
+//
+// Invalidation is per book: a change drops the entries whose result holds
+// the book plus those whose strategy now matches it, found through
+// SearchStrategy.matches. Entries are indexed by their query's CacheTerms, so
+// only those sharing a term with the book are checked; entries whose strategy
+// gives no terms are always checked. Availability changes only look at
+// strategies that depend on availability. A result loaded while a relevant
+// change happened is returned but not cached, since it may predate the change.
+public class QueryCache {
+    public enum Policy { LRU, LFU }
+
+    private final Policy policy;
+    private final long maxWeight;
+    private final long ttlNanos;
+    private final LinkedHashMap<Key, Entry> entries;
+    private final TreeMap<Integer, LinkedHashSet<Key>> keysByFrequency;
+    private OrdinalTable<Set<Key>> keysByOrdinal;
+    private final Map<String, Set<Key>> keysByTerm;
+    private final Set<Key> unindexedKeys;
+    private int availabilityDependentEntries;
+    private long weight;
+    private long generation;
+    private long availabilityGeneration;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    private long invalidations;
+
+    public QueryCache(Policy policy, long maxWeight, long ttl, TimeUnit unit) {
+        this.policy = policy;
+        this.maxWeight = maxWeight;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.entries = new LinkedHashMap<>(16, 0.75f, policy == Policy.LRU);
+        this.keysByFrequency = new TreeMap<>();
+        this.keysByOrdinal = new OrdinalTable<>();
+        this.keysByTerm = new HashMap<>();
+        this.unindexedKeys = new LinkedHashSet<>();
+    }
+
+    public List<Book> get(SearchStrategy strategy, String query, Supplier<List<Book>> loader) {
+        String normalized = strategy.normalize(query);
+        Key key = new Key(strategy.cacheKey(), normalized);
+        long observedGeneration;
+        long observedAvailability;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (System.nanoTime() - entry.loadedAt > ttlNanos) {
+                    removeEntry(key);
+                    expirations++;
+                } else {
+                    hits++;
+                    if (policy == Policy.LFU) {
+                        moveFrequency(key, entry.frequency, ++entry.frequency);
+                    }
+                    return new ArrayList<>(entry.books);
+                }
+            }
+            misses++;
+            observedGeneration = generation;
+            observedAvailability = availabilityGeneration;
+        }
+
+        List<Book> books = loader.get();
+        long entryWeight = books.size() + 1L;
+        if (entryWeight <= maxWeight) {
+            synchronized (this) {
+                boolean current = generation == observedGeneration
+                        && (!strategy.dependsOnAvailability() || availabilityGeneration == observedAvailability);
+                if (current && !entries.containsKey(key)) {
+                    putEntry(key, new Entry(strategy, strategy.cacheTerms(normalized),
+                            new ArrayList<>(books), entryWeight, System.nanoTime()));
+                }
+            }
+        }
+        return books;
+    }
+
+    // Call after a book was added, updated or removed.
+    public synchronized void bookChanged(Book book) {
+        generation++;
+        invalidate(book, false);
+    }
+
+    public synchronized void availabilityChanged(Book book) {
+        availabilityGeneration++;
+        if (availabilityDependentEntries > 0) {
+            invalidate(book, true);
+        }
+    }
+
+    public synchronized void clear() {
+        generation++;
+        availabilityGeneration++;
+        invalidations += entries.size();
+        entries.clear();
+        keysByFrequency.clear();
+        keysByOrdinal = new OrdinalTable<>();
+        keysByTerm.clear();
+        unindexedKeys.clear();
+        availabilityDependentEntries = 0;
+        weight = 0;
+    }
+
+    public synchronized CacheStats getStats() {
+        return new CacheStats(hits, misses, evictions, expirations, invalidations, entries.size(), weight);
+    }
+
+    private void invalidate(Book book, boolean availabilityOnly) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        Set<Key> stale = new LinkedHashSet<>();
+        Set<Key> holding = keysByOrdinal.get(book.getOrdinal());
+        if (holding != null) {
+            for (Key key : holding) {
+                if (!availabilityOnly || entries.get(key).strategy.dependsOnAvailability()) {
+                    stale.add(key);
+                }
+            }
+        }
+        Set<Key> candidates = new HashSet<>(unindexedKeys);
+        if (!keysByTerm.isEmpty()) {
+            for (String term : CacheTerms.forBook(book)) {
+                Set<Key> keys = keysByTerm.get(term);
+                if (keys != null) {
+                    candidates.addAll(keys);
+                }
+            }
+        }
+        for (Key key : candidates) {
+            SearchStrategy strategy = entries.get(key).strategy;
+            if (!stale.contains(key) && (!availabilityOnly || strategy.dependsOnAvailability())
+                    && strategy.matches(book, key.query)) {
+                stale.add(key);
+            }
+        }
+        for (Key key : stale) {
+            removeEntry(key);
+        }
+        invalidations += stale.size();
+    }
+
+    private void putEntry(Key key, Entry entry) {
+        entries.put(key, entry);
+        weight += entry.weight;
+        if (entry.strategy.dependsOnAvailability()) {
+            availabilityDependentEntries++;
+        }
+        for (Book book : entry.books) {
+            Set<Key> holding = keysByOrdinal.get(book.getOrdinal());
+            if (holding == null) {
+                holding = new LinkedHashSet<>();
+                keysByOrdinal.set(book.getOrdinal(), holding);
+            }
+            holding.add(key);
+        }
+        if (entry.terms.isEmpty()) {
+            unindexedKeys.add(key);
+        }
+        for (String term : entry.terms) {
+            keysByTerm.computeIfAbsent(term, t -> new HashSet<>()).add(key);
+        }
+        if (policy == Policy.LFU) {
+            keysByFrequency.computeIfAbsent(entry.frequency, f -> new LinkedHashSet<>()).add(key);
+        }
+        while (weight > maxWeight) {
+            removeEntry(nextVictim());
+            evictions++;
+        }
+    }
+
+    private Key nextVictim() {
+        if (policy == Policy.LFU) {
+            return keysByFrequency.firstEntry().getValue().iterator().next();
+        }
+        return entries.keySet().iterator().next();
+    }
+
+    private void removeEntry(Key key) {
+        Entry entry = entries.remove(key);
+        if (entry == null) {
+            return;
+        }
+        weight -= entry.weight;
+        if (entry.strategy.dependsOnAvailability()) {
+            availabilityDependentEntries--;
+        }
+        for (Book book : entry.books) {
+            Set<Key> holding = keysByOrdinal.get(book.getOrdinal());
+            if (holding != null && holding.remove(key) && holding.isEmpty()) {
+                keysByOrdinal.set(book.getOrdinal(), null);
+            }
+        }
+        unindexedKeys.remove(key);
+        for (String term : entry.terms) {
+            Set<Key> keys = keysByTerm.get(term);
+            if (keys != null && keys.remove(key) && keys.isEmpty()) {
+                keysByTerm.remove(term);
+            }
+        }
+        if (policy == Policy.LFU) {
+            removeFrequency(key, entry.frequency);
+        }
+    }
+
+    private void moveFrequency(Key key, int from, int to) {
+        removeFrequency(key, from);
+        keysByFrequency.computeIfAbsent(to, f -> new LinkedHashSet<>()).add(key);
+    }
+
+    private void removeFrequency(Key key, int frequency) {
+        Set<Key> keys = keysByFrequency.get(frequency);
+        if (keys != null && keys.remove(key) && keys.isEmpty()) {
+            keysByFrequency.remove(frequency);
+        }
+    }
+
+    private static final class Key {
+        private final String strategy;
+        private final String query;
+
+        Key(String strategy, String query) {
+            this.strategy = strategy;
+            this.query = query;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof Key)) return false;
+            Key other = (Key) obj;
+            return strategy.equals(other.strategy) && query.equals(other.query);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * strategy.hashCode() + query.hashCode();
+        }
+    }
+
+    private static final class Entry {
+        private final SearchStrategy strategy;
+        private final Set<String> terms;
+        private final List<Book> books;
+        private final long weight;
+        private final long loadedAt;
+        private int frequency = 1;
+
+        Entry(SearchStrategy strategy, Set<String> terms, List<Book> books, long weight, long loadedAt) {
+            this.strategy = strategy;
+            this.terms = terms;
+            this.books = books;
+            this.weight = weight;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.library.filter;
+
+import com.library.model.Book;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+public class BookFilter {
+    
+    public static BookQuery byTitle(String title) {
+        return new BookQuery.TextMatch(BookQuery.Kind.TITLE, title);
+    }
+    
+    public static BookQuery byAuthor(String author) {
+        return new BookQuery.TextMatch(BookQuery.Kind.AUTHOR, author);
+    }
+    
+    public static BookQuery byIsbn(String isbn) {
+        return new BookQuery.IsbnMatch(isbn);
+    }
+    
+    public static BookQuery byYearRange(int startYear, int endYear) {
+        return new BookQuery.YearRange(startYear, endYear);
+    }
+    
+    public static BookQuery availableOnly() {
+        return new BookQuery.Availability(true);
+    }
+    
+    public static BookQuery borrowedOnly() {
+        return new BookQuery.Availability(false);
+    }
+    
+    // Structured filters stay inspectable after combining; other predicates
+    // are kept as opaque conjuncts.
+    @SafeVarargs
+    public static BookQuery combine(Predicate<Book>... filters) {
+        // Copied element by element; handing the generic varargs array
+        // itself to another method is what @SafeVarargs has to rule out.
+        List<Predicate<Book>> copy = new ArrayList<>(filters.length);
+        for (Predicate<Book> filter : filters) {
+            copy.add(filter);
+        }
+        return BookQuery.allOf(copy);
+    }
+}
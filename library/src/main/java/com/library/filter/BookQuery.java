@@ -0,0 +1,200 @@
+package com.library.filter;
+
+import com.library.model.Book;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+// A filter that can still be evaluated as a plain predicate but also exposes
+// its structure, so Library can answer it from an index instead of a scan.
+public abstract class BookQuery implements Predicate<Book> {
+    public enum Kind { TITLE, AUTHOR, ISBN, YEAR_RANGE, AVAILABILITY, ALL_OF, CUSTOM }
+
+    private BookQuery() {
+    }
+
+    public abstract Kind getKind();
+
+    // The leaves of this query; a book matches when it matches all of them.
+    public List<BookQuery> conjuncts() {
+        return Collections.singletonList(this);
+    }
+
+    @Override
+    public BookQuery and(Predicate<? super Book> other) {
+        return allOf(List.of(this, of(other)));
+    }
+
+    public static BookQuery of(Predicate<? super Book> filter) {
+        return filter instanceof BookQuery ? (BookQuery) filter : new Custom(filter);
+    }
+
+    public static BookQuery allOf(List<? extends Predicate<? super Book>> filters) {
+        List<BookQuery> leaves = new ArrayList<>();
+        for (Predicate<? super Book> filter : filters) {
+            leaves.addAll(of(filter).conjuncts());
+        }
+        return leaves.size() == 1 ? leaves.get(0) : new AllOf(leaves);
+    }
+
+    public static final class TextMatch extends BookQuery {
+        private final Kind field;
+        private final String text;
+        private final String folded;
+
+        TextMatch(Kind field, String text) {
+            this.field = field;
+            this.text = text;
+            this.folded = Book.fold(text);
+        }
+
+        @Override
+        public Kind getKind() { return field; }
+        public String getText() { return text; }
+
+        @Override
+        public boolean test(Book book) {
+            String value = field == Kind.TITLE ? book.getFoldedTitle() : book.getFoldedAuthor();
+            return value.contains(folded);
+        }
+
+        @Override
+        public String toString() {
+            return (field == Kind.TITLE ? "title" : "author") + " contains '" + text + "'";
+        }
+    }
+
+    public static final class IsbnMatch extends BookQuery {
+        private final String isbn;
+
+        IsbnMatch(String isbn) {
+            this.isbn = isbn;
+        }
+
+        @Override
+        public Kind getKind() { return Kind.ISBN; }
+        public String getIsbn() { return isbn; }
+
+        @Override
+        public boolean test(Book book) {
+            return book.getIsbn().equals(isbn);
+        }
+
+        @Override
+        public String toString() {
+            return "isbn = '" + isbn + "'";
+        }
+    }
+
+    public static final class YearRange extends BookQuery {
+        private final int startYear;
+        private final int endYear;
+
+        YearRange(int startYear, int endYear) {
+            this.startYear = startYear;
+            this.endYear = endYear;
+        }
+
+        @Override
+        public Kind getKind() { return Kind.YEAR_RANGE; }
+        public int getStartYear() { return startYear; }
+        public int getEndYear() { return endYear; }
+
+        @Override
+        public boolean test(Book book) {
+            return book.getPublicationYear() >= startYear && book.getPublicationYear() <= endYear;
+        }
+
+        @Override
+        public String toString() {
+            return "year " + startYear + ".." + endYear;
+        }
+    }
+
+    public static final class Availability extends BookQuery {
+        private final boolean available;
+
+        Availability(boolean available) {
+            this.available = available;
+        }
+
+        @Override
+        public Kind getKind() { return Kind.AVAILABILITY; }
+        public boolean isAvailable() { return available; }
+
+        @Override
+        public boolean test(Book book) {
+            return book.isAvailable() == available;
+        }
+
+        @Override
+        public String toString() {
+            return available ? "available" : "borrowed";
+        }
+    }
+
+    public static final class AllOf extends BookQuery {
+        private final List<BookQuery> conjuncts;
+
+        AllOf(List<BookQuery> conjuncts) {
+            this.conjuncts = Collections.unmodifiableList(conjuncts);
+        }
+
+        @Override
+        public Kind getKind() { return Kind.ALL_OF; }
+
+        @Override
+        public List<BookQuery> conjuncts() {
+            return conjuncts;
+        }
+
+        @Override
+        public boolean test(Book book) {
+            for (BookQuery conjunct : conjuncts) {
+                if (!conjunct.test(book)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            if (conjuncts.isEmpty()) {
+                return "all books";
+            }
+            StringBuilder text = new StringBuilder();
+            for (BookQuery conjunct : conjuncts) {
+                if (text.length() > 0) {
+                    text.append(" and ");
+                }
+                text.append(conjunct);
+            }
+            return text.toString();
+        }
+    }
+
+    // An opaque predicate; it can only be evaluated book by book.
+    public static final class Custom extends BookQuery {
+        private final Predicate<? super Book> predicate;
+
+        Custom(Predicate<? super Book> predicate) {
+            this.predicate = predicate;
+        }
+
+        @Override
+        public Kind getKind() { return Kind.CUSTOM; }
+
+        @Override
+        public boolean test(Book book) {
+            return predicate.test(book);
+        }
+
+        @Override
+        public String toString() {
+            return "custom predicate";
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.library.hold;
+
+import java.time.LocalDate;
+
+// A patron's place in the waitlist for a book. A hold waits until a returned
+// copy is assigned to it, then stays ready until the patron checks the book
+// out or the pickup deadline passes. Holds with a higher priority are served
+// first; holds of equal priority in the order they were placed.
+public class Hold {
+    public enum State {
+        WAITING, READY, FULFILLED, EXPIRED, CANCELLED
+    }
+
+    private final long holdId;
+    private final String patronId;
+    private final String isbn;
+    private final int priority;
+    private final LocalDate placedDate;
+    private volatile State state;
+    private volatile LocalDate pickupDeadline;
+
+    Hold(long holdId, String patronId, String isbn, int priority, LocalDate placedDate) {
+        this.holdId = holdId;
+        this.patronId = patronId;
+        this.isbn = isbn;
+        this.priority = priority;
+        this.placedDate = placedDate;
+        this.state = State.WAITING;
+    }
+
+    public long getHoldId() { return holdId; }
+    public String getPatronId() { return patronId; }
+    public String getIsbn() { return isbn; }
+    public int getPriority() { return priority; }
+    public LocalDate getPlacedDate() { return placedDate; }
+    public State getState() { return state; }
+    // Null until a copy is assigned to the hold.
+    public LocalDate getPickupDeadline() { return pickupDeadline; }
+
+    void setState(State state) {
+        this.state = state;
+    }
+
+    void setPickupDeadline(LocalDate pickupDeadline) {
+        this.pickupDeadline = pickupDeadline;
+    }
+
+    public boolean isActive() {
+        State current = state;
+        return current == State.WAITING || current == State.READY;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Hold{ID=%d, PatronID='%s', ISBN='%s', Priority=%d, State=%s, PickupBy=%s}",
+                holdId, patronId, isbn, priority, state, pickupDeadline);
+    }
+}
@@ -0,0 +1,217 @@
+package com.library.hold;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Waitlists for every book. Each book's waiting holds sit in a sorted set by
+// priority and then placement order, and the ready holds of all books in one
+// set ordered by pickup deadline, so placing, assigning, cancelling and
+// expiring a hold are O(log n) and an expiry scan only reads the holds that
+// have actually expired.
+// Calls for the same ISBN must not run concurrently; Library makes them with
+// the book's circulation stripe held.
+public class HoldQueues {
+    // Spelled out rather than composed, as it runs on every queue operation.
+    private static final Comparator<Hold> QUEUE_ORDER = (a, b) -> a.getPriority() != b.getPriority()
+            ? Integer.compare(b.getPriority(), a.getPriority())
+            : Long.compare(a.getHoldId(), b.getHoldId());
+    private static final Comparator<Hold> DEADLINE_ORDER =
+            Comparator.comparing(Hold::getPickupDeadline).thenComparingLong(Hold::getHoldId);
+
+    private final Map<String, NavigableSet<Hold>> waitingByIsbn;
+    private final Map<String, Hold> readyByIsbn;
+    private final ConcurrentSkipListSet<Hold> readyByDeadline;
+    private final Map<String, Map<String, Hold>> holdsByPatron;
+    private final AtomicLong holdIdCounter;
+    private final AtomicInteger waiting;
+
+    public HoldQueues() {
+        this.waitingByIsbn = new ConcurrentHashMap<>();
+        this.readyByIsbn = new ConcurrentHashMap<>();
+        this.readyByDeadline = new ConcurrentSkipListSet<>(DEADLINE_ORDER);
+        this.holdsByPatron = new ConcurrentHashMap<>();
+        this.holdIdCounter = new AtomicLong(1);
+        this.waiting = new AtomicInteger();
+    }
+
+    public Hold enqueue(String patronId, String isbn, int priority, LocalDate placedDate) {
+        return add(new Hold(holdIdCounter.getAndIncrement(), patronId, isbn, priority, placedDate));
+    }
+
+    // Re-enters a waiting hold read back from a journal or snapshot under its
+    // original ID, so queue order is unchanged and new IDs follow it.
+    public Hold restore(long holdId, String patronId, String isbn, int priority, LocalDate placedDate) {
+        holdIdCounter.accumulateAndGet(holdId + 1, Math::max);
+        return add(new Hold(holdId, patronId, isbn, priority, placedDate));
+    }
+
+    private Hold add(Hold hold) {
+        waitingByIsbn.computeIfAbsent(hold.getIsbn(), key -> new TreeSet<>(QUEUE_ORDER)).add(hold);
+        holdsByPatron.computeIfAbsent(hold.getPatronId(), key -> new ConcurrentHashMap<>()).put(hold.getIsbn(), hold);
+        waiting.incrementAndGet();
+        return hold;
+    }
+
+    // Takes the head of the book's waitlist and makes it ready for pickup;
+    // returns null when nobody is waiting.
+    public Hold assignNext(String isbn, LocalDate pickupDeadline) {
+        NavigableSet<Hold> queue = waitingByIsbn.get(isbn);
+        if (queue == null) {
+            return null;
+        }
+        Hold hold = queue.pollFirst();
+        if (queue.isEmpty()) {
+            waitingByIsbn.remove(isbn);
+        }
+        if (hold == null) {
+            return null;
+        }
+        makeReady(hold, pickupDeadline);
+        return hold;
+    }
+
+    // Makes the given waiting hold ready, as assignNext did when it was
+    // journaled.
+    public boolean assign(Hold hold, LocalDate pickupDeadline) {
+        if (hold.getState() != Hold.State.WAITING || readyByIsbn.containsKey(hold.getIsbn())) {
+            return false;
+        }
+        NavigableSet<Hold> queue = waitingByIsbn.get(hold.getIsbn());
+        if (queue == null || !queue.remove(hold)) {
+            return false;
+        }
+        if (queue.isEmpty()) {
+            waitingByIsbn.remove(hold.getIsbn());
+        }
+        makeReady(hold, pickupDeadline);
+        return true;
+    }
+
+    private void makeReady(Hold hold, LocalDate pickupDeadline) {
+        waiting.decrementAndGet();
+        hold.setPickupDeadline(pickupDeadline);
+        hold.setState(Hold.State.READY);
+        readyByIsbn.put(hold.getIsbn(), hold);
+        readyByDeadline.add(hold);
+    }
+
+    public Hold readyHold(String isbn) {
+        return readyByIsbn.get(isbn);
+    }
+
+    // The patron's active hold on the book, or null.
+    public Hold find(String patronId, String isbn) {
+        Map<String, Hold> holds = holdsByPatron.get(patronId);
+        return holds == null ? null : holds.get(isbn);
+    }
+
+    public boolean fulfil(Hold hold) {
+        return hold.getState() == Hold.State.READY && close(hold, Hold.State.FULFILLED);
+    }
+
+    public boolean expire(Hold hold) {
+        return hold.getState() == Hold.State.READY && close(hold, Hold.State.EXPIRED);
+    }
+
+    public boolean cancel(Hold hold) {
+        return hold.isActive() && close(hold, Hold.State.CANCELLED);
+    }
+
+    public List<Hold> cancelAll(String isbn) {
+        List<Hold> cancelled = new ArrayList<>();
+        Hold ready = readyByIsbn.get(isbn);
+        if (ready != null && cancel(ready)) {
+            cancelled.add(ready);
+        }
+        NavigableSet<Hold> queue = waitingByIsbn.get(isbn);
+        if (queue != null) {
+            for (Hold hold : new ArrayList<>(queue)) {
+                if (cancel(hold)) {
+                    cancelled.add(hold);
+                }
+            }
+        }
+        return cancelled;
+    }
+
+    private boolean close(Hold hold, Hold.State state) {
+        if (hold.getState() == Hold.State.WAITING) {
+            NavigableSet<Hold> queue = waitingByIsbn.get(hold.getIsbn());
+            if (queue == null || !queue.remove(hold)) {
+                return false;
+            }
+            if (queue.isEmpty()) {
+                waitingByIsbn.remove(hold.getIsbn());
+            }
+            waiting.decrementAndGet();
+        } else {
+            if (!readyByIsbn.remove(hold.getIsbn(), hold)) {
+                return false;
+            }
+            readyByDeadline.remove(hold);
+        }
+        hold.setState(state);
+        Map<String, Hold> holds = holdsByPatron.get(hold.getPatronId());
+        if (holds != null) {
+            holds.remove(hold.getIsbn(), hold);
+        }
+        return true;
+    }
+
+    // Ready holds whose pickup deadline is before the given day, earliest
+    // first. Reads only the expired part of the deadline index.
+    public List<Hold> readyBefore(LocalDate day) {
+        List<Hold> expired = new ArrayList<>();
+        for (Hold hold : readyByDeadline) {
+            if (!hold.getPickupDeadline().isBefore(day)) {
+                break;
+            }
+            expired.add(hold);
+        }
+        return expired;
+    }
+
+    public int queueLength(String isbn) {
+        NavigableSet<Hold> queue = waitingByIsbn.get(isbn);
+        return queue == null ? 0 : queue.size();
+    }
+
+    public List<Hold> getHolds(String patronId) {
+        Map<String, Hold> holds = holdsByPatron.get(patronId);
+        if (holds == null) {
+            return Collections.emptyList();
+        }
+        List<Hold> result = new ArrayList<>(holds.values());
+        result.sort(Comparator.comparingLong(Hold::getHoldId));
+        return result;
+    }
+
+    // Every waiting and ready hold, by hold ID.
+    public List<Hold> getActiveHolds() {
+        List<Hold> result = new ArrayList<>();
+        for (Map<String, Hold> holds : holdsByPatron.values()) {
+            result.addAll(holds.values());
+        }
+        result.sort(Comparator.comparingLong(Hold::getHoldId));
+        return result;
+    }
+
+    public int getWaitingCount() {
+        return waiting.get();
+    }
+
+    // The skip list's size() walks every node, so count the per-book map.
+    public int getReadyCount() {
+        return readyByIsbn.size();
+    }
+}
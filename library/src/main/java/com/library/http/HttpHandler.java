@@ -0,0 +1,7 @@
+package com.library.http;
+
+// Turns a request into a response. Called on a worker thread, one request at
+// a time per connection; throw HttpException to answer with an error status.
+public interface HttpHandler {
+    HttpResponse handle(HttpRequest request);
+}
@@ -0,0 +1,91 @@
+package com.library.http;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class HttpRequest {
+    private final String method;
+    private final String path;
+    private final Map<String, String> parameters;
+    private final Map<String, String> headers;
+    private final boolean keepAlive;
+
+    // Header names are expected in lower case. Query and form parameters are
+    // merged, with the body winning on a clash.
+    HttpRequest(String method, String target, String version, Map<String, String> headers, byte[] body) {
+        this.method = method;
+        this.headers = headers;
+        int query = target.indexOf('?');
+        this.path = query < 0 ? target : target.substring(0, query);
+        Map<String, String> parameters = new HashMap<>();
+        if (query >= 0) {
+            decodeParameters(target.substring(query + 1), parameters);
+        }
+        String contentType = headers.get("content-type");
+        if (body.length > 0 && contentType != null && contentType.startsWith("application/x-www-form-urlencoded")) {
+            decodeParameters(new String(body, StandardCharsets.UTF_8), parameters);
+        }
+        this.parameters = parameters;
+        String connection = headers.get("connection");
+        this.keepAlive = "HTTP/1.1".equals(version)
+                ? !"close".equalsIgnoreCase(connection)
+                : "keep-alive".equalsIgnoreCase(connection);
+    }
+
+    public String getMethod() { return method; }
+    public String getPath() { return path; }
+    public Map<String, String> getParameters() { return Collections.unmodifiableMap(parameters); }
+    public String getHeader(String name) { return headers.get(name); }
+    public boolean isKeepAlive() { return keepAlive; }
+
+    public String parameter(String name) {
+        return parameters.get(name);
+    }
+
+    public String requiredParameter(String name) {
+        String value = parameters.get(name);
+        if (value == null || value.isEmpty()) {
+            throw new HttpException(400, "Missing parameter: " + name);
+        }
+        return value;
+    }
+
+    public int intParameter(String name, int defaultValue) {
+        String value = parameters.get(name);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new HttpException(400, "Not a number: " + name);
+        }
+    }
+
+    private static void decodeParameters(String encoded, Map<String, String> parameters) {
+        int start = 0;
+        while (start <= encoded.length()) {
+            int end = encoded.indexOf('&', start);
+            if (end < 0) {
+                end = encoded.length();
+            }
+            if (end > start) {
+                int equals = encoded.indexOf('=', start);
+                try {
+                    if (equals < 0 || equals > end) {
+                        parameters.put(URLDecoder.decode(encoded.substring(start, end), StandardCharsets.UTF_8), "");
+                    } else {
+                        parameters.put(URLDecoder.decode(encoded.substring(start, equals), StandardCharsets.UTF_8),
+                                URLDecoder.decode(encoded.substring(equals + 1, end), StandardCharsets.UTF_8));
+                    }
+                } catch (IllegalArgumentException e) {
+                    throw new HttpException(400, "Malformed parameter encoding");
+                }
+            }
+            start = end + 1;
+        }
+    }
+}
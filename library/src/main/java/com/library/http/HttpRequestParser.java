@@ -0,0 +1,121 @@
+package com.library.http;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+// Incremental HTTP/1.x request parser. parse() takes a buffer in read mode
+// and either consumes exactly one complete request or, when the request has
+// not fully arrived, leaves the buffer untouched and returns null, so
+// pipelined requests are taken off the buffer one at a time. Chunked request
+// bodies are not supported.
+class HttpRequestParser {
+    private final int maxRequestBytes;
+
+    HttpRequestParser(int maxRequestBytes) {
+        this.maxRequestBytes = maxRequestBytes;
+    }
+
+    HttpRequest parse(ByteBuffer input) {
+        byte[] bytes = input.array();
+        int start = input.arrayOffset() + input.position();
+        int limit = input.arrayOffset() + input.limit();
+        // Tolerate blank lines between pipelined requests.
+        while (start + 1 < limit && bytes[start] == '\r' && bytes[start + 1] == '\n') {
+            start += 2;
+            input.position(input.position() + 2);
+        }
+        int headerEnd = indexOfBlankLine(bytes, start, limit);
+        if (headerEnd < 0) {
+            if (limit - start >= maxRequestBytes) {
+                throw new HttpException(413, "Request headers too large");
+            }
+            return null;
+        }
+
+        int lineEnd = indexOfLineEnd(bytes, start, headerEnd);
+        String requestLine = new String(bytes, start, lineEnd - start, StandardCharsets.ISO_8859_1);
+        int firstSpace = requestLine.indexOf(' ');
+        int lastSpace = requestLine.lastIndexOf(' ');
+        if (firstSpace <= 0 || lastSpace == firstSpace) {
+            throw new HttpException(400, "Malformed request line");
+        }
+        String method = requestLine.substring(0, firstSpace);
+        String target = requestLine.substring(firstSpace + 1, lastSpace);
+        String version = requestLine.substring(lastSpace + 1);
+        if (!version.startsWith("HTTP/1.") || target.isEmpty() || target.charAt(0) != '/') {
+            throw new HttpException(400, "Malformed request line");
+        }
+
+        Map<String, String> headers = new HashMap<>();
+        int lineStart = lineEnd + 2;
+        while (lineStart < headerEnd) {
+            lineEnd = indexOfLineEnd(bytes, lineStart, headerEnd);
+            int colon = indexOf(bytes, (byte) ':', lineStart, lineEnd);
+            if (colon <= lineStart) {
+                throw new HttpException(400, "Malformed header");
+            }
+            String name = new String(bytes, lineStart, colon - lineStart, StandardCharsets.ISO_8859_1)
+                    .toLowerCase();
+            String value = new String(bytes, colon + 1, lineEnd - colon - 1, StandardCharsets.ISO_8859_1).trim();
+            headers.put(name, value);
+            lineStart = lineEnd + 2;
+        }
+
+        if (headers.containsKey("transfer-encoding")) {
+            throw new HttpException(501, "Chunked request bodies are not supported");
+        }
+        int contentLength = 0;
+        String declaredLength = headers.get("content-length");
+        if (declaredLength != null) {
+            try {
+                contentLength = Integer.parseInt(declaredLength);
+            } catch (NumberFormatException e) {
+                throw new HttpException(400, "Malformed Content-Length");
+            }
+            if (contentLength < 0) {
+                throw new HttpException(400, "Malformed Content-Length");
+            }
+        }
+        int bodyStart = headerEnd + 4;
+        if ((long) bodyStart - start + contentLength > maxRequestBytes) {
+            throw new HttpException(413, "Request too large");
+        }
+        if (limit - bodyStart < contentLength) {
+            return null;
+        }
+        byte[] body = new byte[contentLength];
+        System.arraycopy(bytes, bodyStart, body, 0, contentLength);
+        input.position(bodyStart + contentLength - input.arrayOffset());
+        return new HttpRequest(method, target, version, headers, body);
+    }
+
+    private static int indexOfBlankLine(byte[] bytes, int from, int limit) {
+        for (int i = from; i + 3 < limit; i++) {
+            if (bytes[i] == '\r' && bytes[i + 1] == '\n' && bytes[i + 2] == '\r' && bytes[i + 3] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Header blocks end in a blank line, so every line inside one ends in CRLF.
+    private static int indexOfLineEnd(byte[] bytes, int from, int headerEnd) {
+        for (int i = from; i < headerEnd; i++) {
+            if (bytes[i] == '\r' && bytes[i + 1] == '\n') {
+                return i;
+            }
+        }
+        return headerEnd;
+    }
+
+    private static int indexOf(byte[] bytes, byte b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,71 @@
+package com.library.http;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class HttpResponse {
+    private static final String JSON = "application/json";
+
+    private final int status;
+    private final String contentType;
+    private final ByteBuffer body;
+    private boolean close;
+
+    private HttpResponse(int status, String contentType, ByteBuffer body) {
+        this.status = status;
+        this.contentType = contentType;
+        this.body = body;
+    }
+
+    public static HttpResponse json(int status, JsonWriter json) {
+        return new HttpResponse(status, JSON, json.toByteBuffer());
+    }
+
+    public static HttpResponse text(int status, String contentType, String body) {
+        return new HttpResponse(status, contentType, ByteBuffer.wrap(body.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public static HttpResponse error(int status, String message) {
+        JsonWriter json = new JsonWriter(64 + message.length());
+        json.beginObject().name("error").value(message).endObject();
+        return json(status, json);
+    }
+
+    public int getStatus() { return status; }
+    public boolean isClose() { return close; }
+
+    HttpResponse closeConnection() {
+        this.close = true;
+        return this;
+    }
+
+    // The status line and headers followed by the body, ready for a gathering write.
+    ByteBuffer[] encode() {
+        StringBuilder head = new StringBuilder(128)
+                .append("HTTP/1.1 ").append(status).append(' ').append(reason(status)).append("\r\n")
+                .append("Content-Type: ").append(contentType).append("\r\n")
+                .append("Content-Length: ").append(body.remaining()).append("\r\n");
+        if (close) {
+            head.append("Connection: close\r\n");
+        }
+        head.append("\r\n");
+        return new ByteBuffer[] {
+                ByteBuffer.wrap(head.toString().getBytes(StandardCharsets.ISO_8859_1)), body.duplicate()
+        };
+    }
+
+    private static String reason(int status) {
+        switch (status) {
+            case 200: return "OK";
+            case 201: return "Created";
+            case 400: return "Bad Request";
+            case 404: return "Not Found";
+            case 405: return "Method Not Allowed";
+            case 409: return "Conflict";
+            case 413: return "Payload Too Large";
+            case 501: return "Not Implemented";
+            case 503: return "Service Unavailable";
+            default: return status < 500 ? "Client Error" : "Server Error";
+        }
+    }
+}
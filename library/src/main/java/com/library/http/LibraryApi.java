@@ -0,0 +1,409 @@
+package com.library.http;
+
+import com.library.hold.Hold;
+import com.library.index.RankedPage;
+import com.library.index.ScoredBook;
+import com.library.model.Book;
+import com.library.model.BorrowRecord;
+import com.library.model.Patron;
+import com.library.service.CirculationRequest;
+import com.library.service.CirculationResult;
+import com.library.service.Library;
+import com.library.service.ReadOnlyLibraryException;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+// JSON routes over a Library:
+//   GET  /books?title=|author=|isbn=|q=   search; q is ranked and pages with cursor=
+//   GET  /books/{isbn}
+//   GET  /autocomplete?title=|author=
+//   POST /checkout   patronId, isbn (comma-separated for several books)
+//   POST /return     isbn (comma-separated for several books)
+//   POST /patrons    patronId, name, email, phone
+//   GET  /patrons/{patronId}
+//   POST /holds      patronId, isbn, priority (optional, higher is served first)
+//   DELETE /holds    patronId, isbn
+//   GET  /holds?patronId=
+//   GET  /loans/overdue
+//   GET  /statistics
+//   GET  /metrics    Prometheus text format
+// Parameters come from the query string or a form-encoded body. List results
+// are capped by limit= (default 20, at most 1000). Changes to a read-only
+// library, such as a replica, are refused with 403.
+public class LibraryApi implements HttpHandler {
+    private static final int DEFAULT_LIMIT = 20;
+    private static final int MAX_LIMIT = 1000;
+
+    private final Library library;
+
+    public LibraryApi(Library library) {
+        this.library = library;
+    }
+
+    @Override
+    public HttpResponse handle(HttpRequest request) {
+        try {
+            return route(request);
+        } catch (ReadOnlyLibraryException e) {
+            throw new HttpException(403, e.getMessage());
+        }
+    }
+
+    private HttpResponse route(HttpRequest request) {
+        String path = request.getPath();
+        switch (path) {
+            case "/books":
+                requireMethod(request, "GET");
+                return searchBooks(request);
+            case "/autocomplete":
+                requireMethod(request, "GET");
+                return autocomplete(request);
+            case "/checkout":
+                requireMethod(request, "POST");
+                return checkout(request);
+            case "/return":
+                requireMethod(request, "POST");
+                return returnBooks(request);
+            case "/patrons":
+                requireMethod(request, "POST");
+                return addPatron(request);
+            case "/holds":
+                return holds(request);
+            case "/loans/overdue":
+                requireMethod(request, "GET");
+                return overdue(request);
+            case "/statistics":
+                requireMethod(request, "GET");
+                return statistics();
+            case "/metrics":
+                requireMethod(request, "GET");
+                return HttpResponse.text(200, "text/plain; version=0.0.4",
+                        library.getMetrics().snapshot().toPrometheus());
+            default:
+                break;
+        }
+        if (path.startsWith("/books/")) {
+            requireMethod(request, "GET");
+            return book(pathSegment(path, "/books/"));
+        }
+        if (path.startsWith("/patrons/")) {
+            requireMethod(request, "GET");
+            return patron(pathSegment(path, "/patrons/"));
+        }
+        throw new HttpException(404, "No such resource: " + path);
+    }
+
+    private HttpResponse searchBooks(HttpRequest request) {
+        int limit = limit(request);
+        String title = request.parameter("title");
+        String author = request.parameter("author");
+        String isbn = request.parameter("isbn");
+        String query = request.parameter("q");
+        if (query != null) {
+            RankedPage page;
+            try {
+                page = library.searchRanked(query, limit, request.parameter("cursor"));
+            } catch (UnsupportedOperationException e) {
+                throw new HttpException(501, e.getMessage());
+            } catch (IllegalArgumentException e) {
+                throw new HttpException(400, e.getMessage());
+            }
+            JsonWriter json = new JsonWriter();
+            json.beginObject().name("results").beginArray();
+            for (ScoredBook scored : page.getResults()) {
+                json.beginObject();
+                writeBookFields(json, scored.getBook());
+                json.name("score").value(scored.getScore()).endObject();
+            }
+            json.endArray().name("nextCursor").value(page.getNextCursor()).endObject();
+            return HttpResponse.json(200, json);
+        }
+        List<Book> books;
+        if (isbn != null) {
+            books = library.searchByIsbn(isbn).map(List::of).orElse(List.of());
+        } else if (title != null) {
+            books = library.searchByTitle(title);
+        } else if (author != null) {
+            books = library.searchByAuthor(author);
+        } else {
+            throw new HttpException(400, "Missing parameter: one of title, author, isbn or q");
+        }
+        return bookList(books, limit);
+    }
+
+    private HttpResponse autocomplete(HttpRequest request) {
+        String title = request.parameter("title");
+        String author = request.parameter("author");
+        if (title == null && author == null) {
+            throw new HttpException(400, "Missing parameter: title or author");
+        }
+        List<Book> books;
+        try {
+            books = title != null ? library.autocompleteTitle(title) : library.autocompleteAuthor(author);
+        } catch (UnsupportedOperationException e) {
+            throw new HttpException(501, e.getMessage());
+        }
+        return bookList(books, limit(request));
+    }
+
+    private HttpResponse book(String isbn) {
+        Book book = library.searchByIsbn(isbn)
+                .orElseThrow(() -> new HttpException(404, "No book with ISBN " + isbn));
+        JsonWriter json = new JsonWriter(256);
+        writeBook(json, book);
+        return HttpResponse.json(200, json);
+    }
+
+    private HttpResponse checkout(HttpRequest request) {
+        String patronId = request.requiredParameter("patronId");
+        List<String> isbns = splitList(request.requiredParameter("isbn"));
+        List<CirculationRequest> items = new ArrayList<>(isbns.size());
+        for (String isbn : isbns) {
+            items.add(new CirculationRequest(patronId, isbn));
+        }
+        return circulation(library.checkoutBooks(items), 201);
+    }
+
+    private HttpResponse returnBooks(HttpRequest request) {
+        return circulation(library.returnBooks(splitList(request.requiredParameter("isbn"))), 200);
+    }
+
+    // A single item answers with its own status code; a batch answers 200
+    // and reports each item's status.
+    private HttpResponse circulation(List<CirculationResult> results, int successStatus) {
+        JsonWriter json = new JsonWriter();
+        if (results.size() == 1) {
+            CirculationResult result = results.get(0);
+            writeResult(json, result);
+            return HttpResponse.json(result.isSuccess() ? successStatus : failureStatus(result), json);
+        }
+        json.beginObject().name("results").beginArray();
+        for (CirculationResult result : results) {
+            writeResult(json, result);
+        }
+        json.endArray().endObject();
+        return HttpResponse.json(200, json);
+    }
+
+    private static int failureStatus(CirculationResult result) {
+        switch (result.getStatus()) {
+            case PATRON_NOT_FOUND:
+            case BOOK_NOT_FOUND:
+                return 404;
+            default:
+                return 409;
+        }
+    }
+
+    private HttpResponse addPatron(HttpRequest request) {
+        Patron patron = new Patron(request.requiredParameter("patronId"), request.requiredParameter("name"),
+                request.parameter("email"), request.parameter("phone"));
+        if (!library.addPatron(patron)) {
+            throw new HttpException(409, "Patron already exists: " + patron.getPatronId());
+        }
+        JsonWriter json = new JsonWriter(256);
+        writePatron(json, patron);
+        return HttpResponse.json(201, json);
+    }
+
+    private HttpResponse patron(String patronId) {
+        Patron patron = library.getPatron(patronId)
+                .orElseThrow(() -> new HttpException(404, "No patron with ID " + patronId));
+        JsonWriter json = new JsonWriter();
+        writePatron(json, patron);
+        return HttpResponse.json(200, json);
+    }
+
+    private HttpResponse holds(HttpRequest request) {
+        String patronId = request.requiredParameter("patronId");
+        switch (request.getMethod()) {
+            case "GET": {
+                JsonWriter json = new JsonWriter();
+                json.beginObject().name("holds").beginArray();
+                for (Hold hold : library.getHolds(patronId)) {
+                    writeHold(json, hold);
+                }
+                json.endArray().endObject();
+                return HttpResponse.json(200, json);
+            }
+            case "POST": {
+                String isbn = request.requiredParameter("isbn");
+                Hold hold = library.placeHold(patronId, isbn, request.intParameter("priority", 0))
+                        .orElseThrow(() -> holdRejected(patronId, isbn));
+                JsonWriter json = new JsonWriter(256);
+                writeHold(json, hold);
+                return HttpResponse.json(201, json);
+            }
+            case "DELETE": {
+                String isbn = request.requiredParameter("isbn");
+                if (!library.cancelHold(patronId, isbn)) {
+                    throw new HttpException(404, "No active hold on " + isbn + " for patron " + patronId);
+                }
+                JsonWriter json = new JsonWriter(128);
+                json.beginObject().name("patronId").value(patronId).name("isbn").value(isbn)
+                        .name("cancelled").value(true).endObject();
+                return HttpResponse.json(200, json);
+            }
+            default:
+                throw new HttpException(405, request.getMethod() + " not allowed on " + request.getPath());
+        }
+    }
+
+    private HttpException holdRejected(String patronId, String isbn) {
+        if (library.getPatron(patronId).isEmpty()) {
+            return new HttpException(404, "No patron with ID " + patronId);
+        }
+        if (library.searchByIsbn(isbn).isEmpty()) {
+            return new HttpException(404, "No book with ISBN " + isbn);
+        }
+        return new HttpException(409, "Patron " + patronId + " already has " + isbn + " on loan or on hold");
+    }
+
+    private HttpResponse overdue(HttpRequest request) {
+        int limit = limit(request);
+        LocalDate today = LocalDate.now();
+        List<BorrowRecord> records = library.getOverdueBooks(today);
+        JsonWriter json = new JsonWriter();
+        json.beginObject().name("total").value(records.size()).name("loans").beginArray();
+        for (int i = 0; i < records.size() && i < limit; i++) {
+            writeRecord(json, records.get(i));
+        }
+        json.endArray().endObject();
+        return HttpResponse.json(200, json);
+    }
+
+    private HttpResponse statistics() {
+        JsonWriter json = new JsonWriter(256);
+        json.beginObject();
+        for (Map.Entry<String, Integer> entry : new TreeMap<>(library.getBorrowingStatistics()).entrySet()) {
+            json.name(entry.getKey()).value(entry.getValue());
+        }
+        json.endObject();
+        return HttpResponse.json(200, json);
+    }
+
+    private static HttpResponse bookList(List<Book> books, int limit) {
+        JsonWriter json = new JsonWriter();
+        json.beginObject().name("total").value(books.size()).name("results").beginArray();
+        for (int i = 0; i < books.size() && i < limit; i++) {
+            writeBook(json, books.get(i));
+        }
+        json.endArray().endObject();
+        return HttpResponse.json(200, json);
+    }
+
+    private static void writeBook(JsonWriter json, Book book) {
+        json.beginObject();
+        writeBookFields(json, book);
+        json.endObject();
+    }
+
+    private static void writeBookFields(JsonWriter json, Book book) {
+        json.name("isbn").value(book.getIsbn())
+                .name("title").value(book.getTitle())
+                .name("author").value(book.getAuthor())
+                .name("publicationYear").value(book.getPublicationYear())
+                .name("available").value(book.isAvailable());
+    }
+
+    // getActiveLoans is a view checkouts and returns running meanwhile do
+    // not change, so the iteration cannot break.
+    private static void writePatron(JsonWriter json, Patron patron) {
+        Set<BorrowRecord> loans = patron.getActiveLoans();
+        json.beginObject()
+                .name("patronId").value(patron.getPatronId())
+                .name("name").value(patron.getName())
+                .name("email").value(patron.getEmail())
+                .name("phone").value(patron.getPhone())
+                .name("activeLoans").beginArray();
+        for (BorrowRecord record : loans) {
+            writeRecord(json, record);
+        }
+        json.endArray().endObject();
+    }
+
+    private static void writeResult(JsonWriter json, CirculationResult result) {
+        json.beginObject()
+                .name("status").value(result.getStatus().name())
+                .name("patronId").value(result.getPatronId())
+                .name("isbn").value(result.getIsbn())
+                .name("loan");
+        if (result.getRecord() != null) {
+            writeRecord(json, result.getRecord());
+        } else {
+            json.nullValue();
+        }
+        json.endObject();
+    }
+
+    private static void writeHold(JsonWriter json, Hold hold) {
+        LocalDate pickupDeadline = hold.getPickupDeadline();
+        json.beginObject()
+                .name("holdId").value(hold.getHoldId())
+                .name("patronId").value(hold.getPatronId())
+                .name("isbn").value(hold.getIsbn())
+                .name("priority").value(hold.getPriority())
+                .name("state").value(hold.getState().name())
+                .name("placedDate").value(String.valueOf(hold.getPlacedDate()))
+                .name("pickupDeadline").value(pickupDeadline == null ? null : pickupDeadline.toString())
+                .endObject();
+    }
+
+    private static void writeRecord(JsonWriter json, BorrowRecord record) {
+        json.beginObject()
+                .name("recordId").value(record.getRecordId())
+                .name("patronId").value(record.getPatronId())
+                .name("isbn").value(record.getBookIsbn())
+                .name("borrowDate").value(String.valueOf(record.getBorrowDate()))
+                .name("dueDate").value(String.valueOf(record.getDueDate()))
+                .name("returnDate").value(record.getReturnDate() == null ? null : record.getReturnDate().toString())
+                .endObject();
+    }
+
+    private static void requireMethod(HttpRequest request, String method) {
+        if (!method.equals(request.getMethod())) {
+            throw new HttpException(405, request.getMethod() + " not allowed on " + request.getPath());
+        }
+    }
+
+    private static int limit(HttpRequest request) {
+        int limit = request.intParameter("limit", DEFAULT_LIMIT);
+        if (limit <= 0) {
+            throw new HttpException(400, "limit must be positive");
+        }
+        return Math.min(limit, MAX_LIMIT);
+    }
+
+    private static String pathSegment(String path, String prefix) {
+        String segment = path.substring(prefix.length());
+        if (segment.isEmpty() || segment.indexOf('/') >= 0) {
+            throw new HttpException(404, "No such resource: " + path);
+        }
+        try {
+            return URLDecoder.decode(segment, StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new HttpException(400, "Malformed path");
+        }
+    }
+
+    private static List<String> splitList(String value) {
+        List<String> items = new ArrayList<>();
+        for (String item : value.split(",")) {
+            String trimmed = item.trim();
+            if (!trimmed.isEmpty()) {
+                items.add(trimmed);
+            }
+        }
+        if (items.isEmpty()) {
+            throw new HttpException(400, "Empty list");
+        }
+        return items;
+    }
+}
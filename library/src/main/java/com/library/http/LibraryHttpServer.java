@@ -0,0 +1,490 @@
+package com.library.http;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Non-blocking HTTP/1.1 server. One selector thread accepts connections,
+// reads into a per-connection buffer and parses as many pipelined requests
+// as have arrived; the requests then run on a worker executor, serially per
+// connection so responses go out in request order. Workers write responses
+// themselves and only hand a connection back to the selector thread when the
+// socket is full. Reading pauses while a connection has too many requests or
+// responses queued. Connections stay open until the client closes them or
+// asks to with Connection: close, or until they time out: an idle keep-alive
+// connection (or one whose client stopped reading responses) after the idle
+// timeout, and one that started a request without finishing it after the
+// read timeout. Past the connection cap the server stops accepting, leaving
+// new clients in the listen backlog until a connection closes.
+public class LibraryHttpServer implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(LibraryHttpServer.class);
+    private static final int INITIAL_BUFFER_BYTES = 8 * 1024;
+    private static final int MAX_REQUEST_BYTES = 64 * 1024;
+    private static final int MAX_QUEUED_REQUESTS = 128;
+    private static final long SWEEP_INTERVAL_MILLIS = 1000;
+    public static final int DEFAULT_MAX_CONNECTIONS = 10_000;
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 60_000;
+    public static final long DEFAULT_READ_TIMEOUT_MILLIS = 10_000;
+    private static final ByteBuffer[] NO_BUFFERS = new ByteBuffer[0];
+
+    private final HttpHandler handler;
+    private final InetSocketAddress address;
+    private final ExecutorService workers;
+    private final HttpRequestParser parser;
+    private final Queue<Runnable> selectorTasks;
+    private final Set<Connection> connections;
+    private final LongAdder accepted;
+    private final LongAdder served;
+    private final LongAdder timedOut;
+    private final int maxConnections;
+    private final long idleTimeoutNanos;
+    private final long readTimeoutNanos;
+    private final long sweepIntervalMillis;
+    private ServerSocketChannel serverChannel;
+    private SelectionKey acceptKey;
+    private Selector selector;
+    private Thread selectorThread;
+    private volatile boolean running;
+
+    public LibraryHttpServer(HttpHandler handler, int port) {
+        this(handler, new InetSocketAddress(port), Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    // workerThreads only sizes the platform-thread pool; with virtual threads
+    // every request runs on its own thread.
+    public LibraryHttpServer(HttpHandler handler, InetSocketAddress address, int workerThreads) {
+        this(handler, address, workerThreads, DEFAULT_MAX_CONNECTIONS,
+                DEFAULT_IDLE_TIMEOUT_MILLIS, DEFAULT_READ_TIMEOUT_MILLIS);
+    }
+
+    public LibraryHttpServer(HttpHandler handler, InetSocketAddress address, int workerThreads,
+                             int maxConnections, long idleTimeoutMillis, long readTimeoutMillis) {
+        if (maxConnections <= 0 || idleTimeoutMillis <= 0 || readTimeoutMillis <= 0) {
+            throw new IllegalArgumentException("Connection cap and timeouts must be positive");
+        }
+        this.handler = handler;
+        this.address = address;
+        this.workers = newWorkerExecutor(workerThreads);
+        this.parser = new HttpRequestParser(MAX_REQUEST_BYTES);
+        this.selectorTasks = new ConcurrentLinkedQueue<>();
+        this.connections = ConcurrentHashMap.newKeySet();
+        this.accepted = new LongAdder();
+        this.served = new LongAdder();
+        this.timedOut = new LongAdder();
+        this.maxConnections = maxConnections;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.readTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(readTimeoutMillis);
+        this.sweepIntervalMillis = Math.max(10, Math.min(SWEEP_INTERVAL_MILLIS,
+                Math.min(idleTimeoutMillis, readTimeoutMillis) / 2));
+    }
+
+    // Same lookup as NotificationDispatcher: virtual threads when the runtime
+    // has them (Java 21+), a fixed daemon pool otherwise.
+    private static ExecutorService newWorkerExecutor(int threads) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger counter = new AtomicInteger();
+            return Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "library-http-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public synchronized void start() throws IOException {
+        if (running) {
+            return;
+        }
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address, 1024);
+        serverChannel.configureBlocking(false);
+        acceptKey = serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        running = true;
+        selectorThread = new Thread(this::selectLoop, "library-http");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+        logger.info("HTTP server listening on {}", serverChannel.getLocalAddress());
+    }
+
+    // The bound port, useful when started on port 0.
+    public int getPort() {
+        try {
+            return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+        } catch (IOException e) {
+            throw new IllegalStateException("Server is not bound", e);
+        }
+    }
+
+    public long getAcceptedConnections() { return accepted.sum(); }
+    public long getServedRequests() { return served.sum(); }
+    public int getOpenConnections() { return connections.size(); }
+    public long getTimedOutConnections() { return timedOut.sum(); }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+        }
+        selector.wakeup();
+        try {
+            selectorThread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Connection connection : connections) {
+            connection.close();
+        }
+        try {
+            serverChannel.close();
+            selector.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close HTTP server channel", e);
+        }
+        workers.shutdown();
+    }
+
+    private void selectLoop() {
+        long nextSweep = System.nanoTime();
+        while (running) {
+            try {
+                selector.select(sweepIntervalMillis);
+                Runnable task;
+                while ((task = selectorTasks.poll()) != null) {
+                    task.run();
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Connection connection = (Connection) key.attachment();
+                    if (key.isWritable()) {
+                        connection.flush();
+                    }
+                    if (key.isValid() && key.isReadable()) {
+                        connection.read();
+                    }
+                }
+                long now = System.nanoTime();
+                if (now - nextSweep >= 0) {
+                    closeTimedOut(now);
+                    nextSweep = now + TimeUnit.MILLISECONDS.toNanos(sweepIntervalMillis);
+                }
+            } catch (ClosedSelectorException e) {
+                break;
+            } catch (IOException | RuntimeException e) {
+                logger.error("HTTP selector loop failed", e);
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while (connections.size() < maxConnections && (channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            Connection connection = new Connection(channel);
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            connections.add(connection);
+            accepted.increment();
+        }
+        if (connections.size() >= maxConnections) {
+            acceptKey.interestOps(0);
+            logger.debug("HTTP server at its limit of {} connections; pausing accepts", maxConnections);
+        }
+    }
+
+    private void resumeAccepting() {
+        if (acceptKey.isValid() && acceptKey.interestOps() == 0 && connections.size() < maxConnections) {
+            acceptKey.interestOps(SelectionKey.OP_ACCEPT);
+        }
+    }
+
+    private void closeTimedOut(long now) {
+        for (Connection connection : connections) {
+            if (connection.isTimedOut(now)) {
+                timedOut.increment();
+                connection.close();
+            }
+        }
+    }
+
+    private void onSelectorThread(Runnable task) {
+        if (Thread.currentThread() == selectorThread) {
+            task.run();
+        } else {
+            selectorTasks.add(task);
+            selector.wakeup();
+        }
+    }
+
+    private HttpResponse respond(HttpRequest request) {
+        HttpResponse response;
+        try {
+            response = handler.handle(request);
+        } catch (HttpException e) {
+            response = HttpResponse.error(e.getStatus(), e.getMessage());
+        } catch (RuntimeException e) {
+            logger.error("Request {} {} failed", request.getMethod(), request.getPath(), e);
+            response = HttpResponse.error(500, "Internal error");
+        }
+        served.increment();
+        return request.isKeepAlive() ? response : response.closeConnection();
+    }
+
+    // Queued items are requests, or a ready-made error response when the
+    // input could not be parsed. The selector thread owns the input buffer;
+    // everything else is guarded by the connection's monitor.
+    private final class Connection {
+        private final SocketChannel channel;
+        private final ArrayDeque<Object> pending;
+        private final ArrayDeque<ByteBuffer> output;
+        private SelectionKey key;
+        private ByteBuffer input;
+        private boolean processing;
+        private boolean readPaused;
+        private boolean writeInterest;
+        private boolean finishing;
+        private boolean closed;
+        // When bytes were last read or written, and when the buffer last
+        // went from empty to holding part of a request (0 when empty).
+        private long lastActivity;
+        private long partialSince;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+            this.pending = new ArrayDeque<>();
+            this.output = new ArrayDeque<>();
+            this.input = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+            this.lastActivity = System.nanoTime();
+        }
+
+        void read() {
+            int read;
+            try {
+                read = channel.read(input);
+            } catch (IOException e) {
+                close();
+                return;
+            }
+            if (read > 0) {
+                synchronized (this) {
+                    lastActivity = System.nanoTime();
+                }
+            }
+            if (read < 0) {
+                synchronized (this) {
+                    finishing = true;
+                    key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+                }
+                closeIfDone();
+                return;
+            }
+            parseInput();
+        }
+
+        private void parseInput() {
+            input.flip();
+            boolean schedule = false;
+            synchronized (this) {
+                try {
+                    while (!finishing && pending.size() < MAX_QUEUED_REQUESTS) {
+                        HttpRequest request = parser.parse(input);
+                        if (request == null) {
+                            break;
+                        }
+                        pending.add(request);
+                        finishing = !request.isKeepAlive();
+                    }
+                } catch (HttpException e) {
+                    pending.add(HttpResponse.error(e.getStatus(), e.getMessage()).closeConnection());
+                    finishing = true;
+                }
+                if (finishing) {
+                    key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+                } else if (pending.size() >= MAX_QUEUED_REQUESTS || output.size() >= 2 * MAX_QUEUED_REQUESTS) {
+                    readPaused = true;
+                    key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+                }
+                if (!pending.isEmpty() && !processing) {
+                    processing = true;
+                    schedule = true;
+                }
+            }
+            input.compact();
+            synchronized (this) {
+                if (input.position() == 0) {
+                    partialSince = 0;
+                } else if (partialSince == 0) {
+                    partialSince = System.nanoTime();
+                }
+            }
+            if (!input.hasRemaining() && input.capacity() < MAX_REQUEST_BYTES) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.min(input.capacity() * 2, MAX_REQUEST_BYTES));
+                input.flip();
+                grown.put(input);
+                input = grown;
+            }
+            if (schedule) {
+                try {
+                    workers.execute(this::process);
+                } catch (RejectedExecutionException e) {
+                    close();
+                }
+            }
+        }
+
+        private void process() {
+            while (true) {
+                Object item;
+                synchronized (this) {
+                    item = pending.poll();
+                    if (item == null) {
+                        processing = false;
+                        break;
+                    }
+                }
+                HttpResponse response = item instanceof HttpResponse ? (HttpResponse) item : respond((HttpRequest) item);
+                boolean flushNow;
+                synchronized (this) {
+                    if (closed) {
+                        return;
+                    }
+                    for (ByteBuffer buffer : response.encode()) {
+                        output.add(buffer);
+                    }
+                    if (response.isClose()) {
+                        finishing = true;
+                        pending.clear();
+                    }
+                    // Responses to a pipelined burst go out in one write.
+                    flushNow = pending.isEmpty();
+                }
+                if (flushNow) {
+                    flush();
+                }
+                resumeReadingIfDrained();
+            }
+            closeIfDone();
+        }
+
+        synchronized void flush() {
+            if (closed) {
+                return;
+            }
+            try {
+                while (!output.isEmpty()) {
+                    if (channel.write(output.toArray(NO_BUFFERS)) > 0) {
+                        lastActivity = System.nanoTime();
+                    }
+                    while (!output.isEmpty() && !output.peek().hasRemaining()) {
+                        output.poll();
+                    }
+                    if (!output.isEmpty()) {
+                        break;
+                    }
+                }
+            } catch (IOException e) {
+                close();
+                return;
+            }
+            boolean wantWrite = !output.isEmpty();
+            if (wantWrite != writeInterest) {
+                writeInterest = wantWrite;
+                onSelectorThread(() -> {
+                    if (key.isValid()) {
+                        key.interestOps(wantWrite ? key.interestOps() | SelectionKey.OP_WRITE
+                                : key.interestOps() & ~SelectionKey.OP_WRITE);
+                    }
+                });
+            }
+            if (!wantWrite) {
+                resumeReadingIfDrained();
+                closeIfDone();
+            }
+        }
+
+        private synchronized void resumeReadingIfDrained() {
+            if (readPaused && !finishing && pending.size() < MAX_QUEUED_REQUESTS / 2
+                    && output.size() < MAX_QUEUED_REQUESTS) {
+                readPaused = false;
+                onSelectorThread(() -> {
+                    if (key.isValid()) {
+                        key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+                        // Requests may already be waiting in the buffer.
+                        parseInput();
+                    }
+                });
+            }
+        }
+
+        // Requests being handled never time out; a request held back while
+        // reading is paused is not a stalled one.
+        synchronized boolean isTimedOut(long now) {
+            if (closed || processing || !pending.isEmpty()) {
+                return false;
+            }
+            if (partialSince != 0 && !readPaused && !finishing && now - partialSince > readTimeoutNanos) {
+                return true;
+            }
+            return now - lastActivity > idleTimeoutNanos;
+        }
+
+        private synchronized void closeIfDone() {
+            if (finishing && pending.isEmpty() && !processing && output.isEmpty()) {
+                close();
+            }
+        }
+
+        synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            connections.remove(this);
+            if (running) {
+                onSelectorThread(LibraryHttpServer.this::resumeAccepting);
+            }
+            pending.clear();
+            output.clear();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.debug("Failed to close connection", e);
+            }
+        }
+    }
+}
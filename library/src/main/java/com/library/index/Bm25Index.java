@@ -0,0 +1,473 @@
+package com.library.index;
+
+import com.library.model.Book;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+// Word index over titles and authors for ranked search. Each book is a
+// document with two fields scored by BM25F: per-field term frequencies are
+// length-normalised, weighted (titles count double) and summed before the
+// usual BM25 saturation. Postings are kept in document order and remember
+// the best weight any of their documents can get, so a query walks them
+// together, skips documents that cannot make the page (MaxScore) and keeps
+// only the best results in a bounded heap.
+//
+// Documents are the catalog's book ordinals and books are resolved through
+// the catalog. Since ordinals of removed books are reused, a removal takes
+// the document out of its postings at once rather than leaving a tombstone.
+// Like the n-gram indexes, it relies on Library's catalog lock.
+public class Bm25Index {
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final double TITLE_WEIGHT = 2.0;
+    private static final double AUTHOR_WEIGHT = 1.0;
+    private static final Comparator<ScoredBook> WORST_FIRST = (a, b) -> {
+        int byScore = Double.compare(a.getScore(), b.getScore());
+        return byScore != 0 ? byScore : b.getBook().getIsbn().compareTo(a.getBook().getIsbn());
+    };
+    private static final Postings[] NO_POSTINGS = new Postings[0];
+
+    private final IntFunction<Book> books;
+    private final Map<String, Postings> postings;
+    private Postings[][] docPostings;
+    private int[] titleLengths;
+    private int[] authorLengths;
+    private int liveDocs;
+    private long totalTitleLength;
+    private long totalAuthorLength;
+
+    public Bm25Index(IntFunction<Book> books) {
+        this.books = books;
+        this.postings = new HashMap<>();
+        this.docPostings = new Postings[1024][];
+        this.titleLengths = new int[1024];
+        this.authorLengths = new int[1024];
+    }
+
+    public void add(Book book) {
+        int doc = book.getOrdinal();
+        if (doc >= docPostings.length) {
+            grow(doc);
+        }
+        if (docPostings[doc] != null) {
+            return;
+        }
+        List<String> titleTokens = tokenize(book.getFoldedTitle());
+        List<String> authorTokens = tokenize(book.getFoldedAuthor());
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String token : titleTokens) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+        for (String token : authorTokens) {
+            frequencies.merge(token, 1 << 16, Integer::sum);
+        }
+        Postings[] lists = frequencies.isEmpty() ? NO_POSTINGS : new Postings[frequencies.size()];
+        int i = 0;
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            Postings list = postings.computeIfAbsent(entry.getKey(), Postings::new);
+            list.insert(doc, entry.getValue(), titleTokens.size(), authorTokens.size());
+            lists[i++] = list;
+        }
+        docPostings[doc] = lists;
+        titleLengths[doc] = titleTokens.size();
+        authorLengths[doc] = authorTokens.size();
+        liveDocs++;
+        totalTitleLength += titleTokens.size();
+        totalAuthorLength += authorTokens.size();
+    }
+
+    public void remove(Book book) {
+        int doc = book.getOrdinal();
+        if (doc < 0 || doc >= docPostings.length || docPostings[doc] == null) {
+            return;
+        }
+        for (Postings list : docPostings[doc]) {
+            list.delete(doc, titleLengths, authorLengths);
+            if (list.size == 0) {
+                postings.remove(list.term);
+            }
+        }
+        docPostings[doc] = null;
+        liveDocs--;
+        totalTitleLength -= titleLengths[doc];
+        totalAuthorLength -= authorLengths[doc];
+    }
+
+    public void update(Book book) {
+        remove(book);
+        add(book);
+    }
+
+    public int size() {
+        return liveDocs;
+    }
+
+    private void grow(int doc) {
+        int capacity = Math.max(docPostings.length * 2, doc + 1);
+        docPostings = Arrays.copyOf(docPostings, capacity);
+        titleLengths = Arrays.copyOf(titleLengths, capacity);
+        authorLengths = Arrays.copyOf(authorLengths, capacity);
+    }
+
+    // Returns up to limit books ranked by score, then by ISBN. A non-null
+    // cursor from a previous page restricts the results to those ranked after it.
+    public RankedPage search(String query, int limit, String cursor) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        double afterScore = Double.POSITIVE_INFINITY;
+        String afterIsbn = "";
+        if (cursor != null) {
+            int separator = cursor.indexOf(':');
+            try {
+                afterScore = Double.longBitsToDouble(Long.parseUnsignedLong(cursor.substring(0, separator), 16));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            afterIsbn = cursor.substring(separator + 1);
+        }
+
+        List<Postings> found = new ArrayList<>();
+        for (String term : new LinkedHashSet<>(tokenize(Book.fold(query)))) {
+            Postings list = postings.get(term);
+            if (list != null) {
+                found.add(list);
+            }
+        }
+        if (found.isEmpty()) {
+            return new RankedPage(Collections.emptyList(), null);
+        }
+
+        double averageTitle = Math.max(1e-9, (double) totalTitleLength / liveDocs);
+        double averageAuthor = Math.max(1e-9, (double) totalAuthorLength / liveDocs);
+        // Terms in increasing order of their score bound, with prefix sums:
+        // bounds[0..t] is the most the first t + 1 terms can add to any score.
+        // The bound is padded slightly so rounding can never prune a match.
+        int terms = found.size();
+        double[] foundIdfs = new double[terms];
+        double[] foundBounds = new double[terms];
+        Integer[] order = new Integer[terms];
+        for (int t = 0; t < terms; t++) {
+            Postings list = found.get(t);
+            foundIdfs[t] = Math.log(1 + (liveDocs - list.size + 0.5) / (list.size + 0.5));
+            foundBounds[t] = foundIdfs[t] * saturate(list.maxWeight(averageTitle, averageAuthor)) * (1 + 1e-9);
+            order[t] = t;
+        }
+        Arrays.sort(order, Comparator.comparingDouble(t -> foundBounds[t]));
+        Postings[] lists = new Postings[terms];
+        double[] idfs = new double[terms];
+        double[] prefix = new double[terms + 1];
+        for (int i = 0; i < terms; i++) {
+            lists[i] = found.get(order[i]);
+            idfs[i] = foundIdfs[order[i]];
+            prefix[i + 1] = prefix[i] + foundBounds[order[i]];
+        }
+
+        // MaxScore: once the page is full, terms whose combined bound cannot
+        // reach its worst score are non-essential. Candidates come only from
+        // the essential terms' postings; the others are probed by binary
+        // search, and scoring stops as soon as the bound of what is left
+        // cannot lift the document into the page. The score itself is summed
+        // in query-term order whatever was pruned, so it is the same on every
+        // page and cursors compare exactly.
+        int[] positions = new int[terms];
+        double[] contributions = new double[terms];
+        TopDocs best = new TopDocs(limit, books);
+        int essential = 0;
+        while (true) {
+            double threshold = best.threshold();
+            while (essential < terms && prefix[essential + 1] < threshold) {
+                essential++;
+            }
+            int doc = Integer.MAX_VALUE;
+            for (int t = essential; t < terms; t++) {
+                if (positions[t] < lists[t].size) {
+                    doc = Math.min(doc, lists[t].docs[positions[t]]);
+                }
+            }
+            if (doc == Integer.MAX_VALUE) {
+                break;
+            }
+            Arrays.fill(contributions, 0);
+            double bound = 0;
+            for (int t = essential; t < terms; t++) {
+                Postings list = lists[t];
+                if (positions[t] < list.size && list.docs[positions[t]] == doc) {
+                    double contribution = termScore(idfs[t], list.frequencies[positions[t]++], doc, averageTitle, averageAuthor);
+                    contributions[order[t]] = contribution;
+                    bound += contribution;
+                }
+            }
+            Book book = books.apply(doc);
+            if (book == null) {
+                continue;
+            }
+            boolean pruned = false;
+            for (int t = essential - 1; t >= 0 && !pruned; t--) {
+                if (bound + prefix[t + 1] < threshold) {
+                    pruned = true;
+                    break;
+                }
+                Postings list = lists[t];
+                int position = list.seek(positions[t], doc);
+                positions[t] = position;
+                if (position < list.size && list.docs[position] == doc) {
+                    double contribution = termScore(idfs[t], list.frequencies[position], doc, averageTitle, averageAuthor);
+                    contributions[order[t]] = contribution;
+                    bound += contribution;
+                }
+            }
+            if (pruned) {
+                continue;
+            }
+            double score = 0;
+            for (double contribution : contributions) {
+                score += contribution;
+            }
+            if (score > afterScore || (score == afterScore && book.getIsbn().compareTo(afterIsbn) <= 0)) {
+                continue;
+            }
+            best.offer(doc, score);
+        }
+
+        List<ScoredBook> results = best.sorted();
+        String next = null;
+        if (results.size() == limit) {
+            ScoredBook last = results.get(results.size() - 1);
+            next = Long.toHexString(Double.doubleToLongBits(last.getScore())) + ":" + last.getBook().getIsbn();
+        }
+        return new RankedPage(results, next);
+    }
+
+    private double termScore(double idf, int frequency, int doc, double averageTitle, double averageAuthor) {
+        double weighted = TITLE_WEIGHT * (frequency & 0xFFFF) / (1 - B + B * titleLengths[doc] / averageTitle)
+                + AUTHOR_WEIGHT * (frequency >>> 16) / (1 - B + B * authorLengths[doc] / averageAuthor);
+        return idf * weighted * (K1 + 1) / (weighted + K1);
+    }
+
+    private static double saturate(double weighted) {
+        return weighted * (K1 + 1) / (weighted + K1);
+    }
+
+    // Bounded min-heap of the best documents so far, worst at the root, with
+    // the same order as WORST_FIRST; only the final page becomes ScoredBooks.
+    private static final class TopDocs {
+        private final int limit;
+        private final IntFunction<Book> books;
+        private int[] docs;
+        private double[] scores;
+        private int size;
+
+        TopDocs(int limit, IntFunction<Book> books) {
+            this.limit = limit;
+            this.books = books;
+            this.docs = new int[Math.min(limit, 1024)];
+            this.scores = new double[docs.length];
+        }
+
+        // The score a document must reach to be considered: the worst one on
+        // the page once it is full. A tie can still win on ISBN.
+        double threshold() {
+            return size < limit ? Double.NEGATIVE_INFINITY : scores[0];
+        }
+
+        void offer(int doc, double score) {
+            if (size < limit) {
+                if (size == docs.length) {
+                    grow();
+                }
+                docs[size] = doc;
+                scores[size] = score;
+                siftUp(size++);
+            } else if (worse(docs[0], scores[0], doc, score)) {
+                docs[0] = doc;
+                scores[0] = score;
+                siftDown(0);
+            }
+        }
+
+        private void grow() {
+            int capacity = (int) Math.min(limit, docs.length * 2L);
+            docs = Arrays.copyOf(docs, capacity);
+            scores = Arrays.copyOf(scores, capacity);
+        }
+
+        List<ScoredBook> sorted() {
+            List<ScoredBook> results = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                results.add(new ScoredBook(books.apply(docs[i]), scores[i]));
+            }
+            results.sort(WORST_FIRST.reversed());
+            return results;
+        }
+
+        private boolean worse(int doc, double score, int otherDoc, double otherScore) {
+            int byScore = Double.compare(score, otherScore);
+            return byScore != 0 ? byScore < 0 : books.apply(doc).getIsbn().compareTo(books.apply(otherDoc).getIsbn()) > 0;
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!worse(docs[i], scores[i], docs[parent], scores[parent])) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int worst = i;
+                int left = 2 * i + 1;
+                int right = left + 1;
+                if (left < size && worse(docs[left], scores[left], docs[worst], scores[worst])) {
+                    worst = left;
+                }
+                if (right < size && worse(docs[right], scores[right], docs[worst], scores[worst])) {
+                    worst = right;
+                }
+                if (worst == i) {
+                    return;
+                }
+                swap(i, worst);
+                i = worst;
+            }
+        }
+
+        private void swap(int i, int j) {
+            int doc = docs[i];
+            docs[i] = docs[j];
+            docs[j] = doc;
+            double score = scores[i];
+            scores[i] = scores[j];
+            scores[j] = score;
+        }
+    }
+
+    // Splits folded text into runs of letters and digits.
+    static List<String> tokenize(String folded) {
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean wordChar = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(folded.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    // Document IDs in increasing order with their title frequency in the low
+    // 16 bits and author frequency in the high 16 bits. The largest
+    // frequencies and shortest fields bound the term's score; removals leave
+    // them as they are, which only loosens the bound, until the list has
+    // halved since they were last computed.
+    private static final class Postings {
+        private final String term;
+        private int[] docs = new int[4];
+        private int[] frequencies = new int[4];
+        private int size;
+        private int boundSize;
+        private int maxTitleFrequency;
+        private int maxAuthorFrequency;
+        private int minTitleLength = Integer.MAX_VALUE;
+        private int minAuthorLength = Integer.MAX_VALUE;
+
+        Postings(String term) {
+            this.term = term;
+        }
+
+        // Appends when doc is past the last document, which is the usual case.
+        void insert(int doc, int frequency, int titleLength, int authorLength) {
+            int position = size == 0 || docs[size - 1] < doc ? size : Arrays.binarySearch(docs, 0, size, doc);
+            if (position < 0) {
+                position = -position - 1;
+            }
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            System.arraycopy(docs, position, docs, position + 1, size - position);
+            System.arraycopy(frequencies, position, frequencies, position + 1, size - position);
+            docs[position] = doc;
+            frequencies[position] = frequency;
+            size++;
+            boundSize = Math.max(boundSize, size);
+            widenBound(frequency, titleLength, authorLength);
+        }
+
+        void delete(int doc, int[] titleLengths, int[] authorLengths) {
+            int position = Arrays.binarySearch(docs, 0, size, doc);
+            if (position < 0) {
+                return;
+            }
+            System.arraycopy(docs, position + 1, docs, position, size - position - 1);
+            System.arraycopy(frequencies, position + 1, frequencies, position, size - position - 1);
+            size--;
+            if (size > 0 && size * 2 < boundSize) {
+                maxTitleFrequency = 0;
+                maxAuthorFrequency = 0;
+                minTitleLength = Integer.MAX_VALUE;
+                minAuthorLength = Integer.MAX_VALUE;
+                for (int i = 0; i < size; i++) {
+                    widenBound(frequencies[i], titleLengths[docs[i]], authorLengths[docs[i]]);
+                }
+                boundSize = size;
+            }
+        }
+
+        private void widenBound(int frequency, int titleLength, int authorLength) {
+            if ((frequency & 0xFFFF) > 0) {
+                maxTitleFrequency = Math.max(maxTitleFrequency, frequency & 0xFFFF);
+                minTitleLength = Math.min(minTitleLength, titleLength);
+            }
+            if ((frequency >>> 16) > 0) {
+                maxAuthorFrequency = Math.max(maxAuthorFrequency, frequency >>> 16);
+                minAuthorLength = Math.min(minAuthorLength, authorLength);
+            }
+        }
+
+        // An upper bound on the weighted frequency of any document here.
+        double maxWeight(double averageTitle, double averageAuthor) {
+            double weight = 0;
+            if (maxTitleFrequency > 0) {
+                weight += TITLE_WEIGHT * maxTitleFrequency / (1 - B + B * minTitleLength / averageTitle);
+            }
+            if (maxAuthorFrequency > 0) {
+                weight += AUTHOR_WEIGHT * maxAuthorFrequency / (1 - B + B * minAuthorLength / averageAuthor);
+            }
+            return weight;
+        }
+
+        // The first position at or after from whose document is at least
+        // target, found by galloping and then binary search.
+        int seek(int from, int target) {
+            if (from >= size || docs[from] >= target) {
+                return from;
+            }
+            int step = 1;
+            int low = from;
+            int high = from + 1;
+            while (high < size && docs[high] < target) {
+                low = high;
+                step <<= 1;
+                high = from + step;
+            }
+            int found = Arrays.binarySearch(docs, low + 1, Math.min(high, size - 1) + 1, target);
+            return found >= 0 ? found : -found - 1;
+        }
+    }
+}
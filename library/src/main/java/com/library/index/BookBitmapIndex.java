@@ -0,0 +1,131 @@
+package com.library.index;
+
+import com.library.model.Book;
+
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.IntFunction;
+
+// Bitmaps over the catalog's book ordinals for availability and publication
+// year, so availability and year filters can be combined by bitmap
+// intersection before any Book is read. Books are resolved through the
+// catalog, so the index shares the catalog's ordinal space and holds no
+// Book references.
+//
+// Catalog changes and reads rely on Library's catalog lock, like the n-gram
+// indexes. Availability also changes during checkout and return, which only
+// hold circulation locks, so that bitmap is guarded by its own monitor and
+// only touched for books the catalog still resolves at their ordinal.
+public class BookBitmapIndex {
+    private final IntFunction<Book> books;
+    private final OrdinalBitmap live;
+    private final OrdinalBitmap available;
+    private final NavigableMap<Integer, OrdinalBitmap> byYear;
+
+    public BookBitmapIndex(IntFunction<Book> books) {
+        this.books = books;
+        this.live = new OrdinalBitmap();
+        this.available = new OrdinalBitmap();
+        this.byYear = new TreeMap<>();
+    }
+
+    public void add(Book book) {
+        int ordinal = book.getOrdinal();
+        if (!live.add(ordinal)) {
+            return;
+        }
+        byYear.computeIfAbsent(book.getPublicationYear(), year -> new OrdinalBitmap()).add(ordinal);
+        synchronized (available) {
+            if (book.isAvailable()) {
+                available.add(ordinal);
+            }
+        }
+    }
+
+    public void remove(Book book) {
+        int ordinal = book.getOrdinal();
+        if (!live.remove(ordinal)) {
+            return;
+        }
+        synchronized (available) {
+            available.remove(ordinal);
+        }
+        removeFromYear(ordinal, book.getPublicationYear());
+    }
+
+    // Call with the year the book was indexed under, after changing it.
+    public void updateYear(Book book, int previousYear) {
+        int ordinal = book.getOrdinal();
+        if (live.contains(ordinal) && previousYear != book.getPublicationYear()) {
+            removeFromYear(ordinal, previousYear);
+            byYear.computeIfAbsent(book.getPublicationYear(), year -> new OrdinalBitmap()).add(ordinal);
+        }
+    }
+
+    private void removeFromYear(int ordinal, int year) {
+        OrdinalBitmap books = byYear.get(year);
+        if (books != null && books.remove(ordinal) && books.isEmpty()) {
+            byYear.remove(year);
+        }
+    }
+
+    public void setAvailable(Book book, boolean isAvailable) {
+        int ordinal = book.getOrdinal();
+        synchronized (available) {
+            if (books.apply(ordinal) != book) {
+                return;
+            }
+            if (isAvailable) {
+                available.add(ordinal);
+            } else {
+                available.remove(ordinal);
+            }
+        }
+    }
+
+    public int size() {
+        return live.cardinality();
+    }
+
+    public OrdinalBitmap years(int startYear, int endYear) {
+        OrdinalBitmap result = new OrdinalBitmap();
+        if (endYear < startYear) {
+            return result;
+        }
+        for (OrdinalBitmap books : byYear.subMap(startYear, true, endYear, true).values()) {
+            result = OrdinalBitmap.or(result, books);
+        }
+        return result;
+    }
+
+    // Size of years(startYear, endYear), summed without building the union.
+    public int countYears(int startYear, int endYear) {
+        if (endYear < startYear) {
+            return 0;
+        }
+        int count = 0;
+        for (OrdinalBitmap books : byYear.subMap(startYear, true, endYear, true).values()) {
+            count += books.cardinality();
+        }
+        return count;
+    }
+
+    public int countAvailability(boolean isAvailable) {
+        synchronized (available) {
+            int count = available.cardinality();
+            return isAvailable ? count : live.cardinality() - count;
+        }
+    }
+
+    // Books with the given availability, restricted to within when it is not null.
+    public OrdinalBitmap availability(boolean isAvailable, OrdinalBitmap within) {
+        OrdinalBitmap scope = within != null ? within : live;
+        synchronized (available) {
+            return isAvailable ? OrdinalBitmap.and(scope, available) : OrdinalBitmap.andNot(scope, available);
+        }
+    }
+
+    public Book book(int ordinal) {
+        return books.apply(ordinal);
+    }
+}
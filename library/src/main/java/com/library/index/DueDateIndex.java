@@ -0,0 +1,111 @@
+package com.library.index;
+
+import com.library.model.BorrowRecord;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Active loans ordered by due date. The number of loans due before the
+// current cutoff day is kept as a running count, so asking for today's
+// overdue count is O(1) and only a change of day walks the older dates.
+public class DueDateIndex {
+    private final ConcurrentSkipListMap<LocalDate, Set<BorrowRecord>> loansByDueDate;
+    private final ReadWriteLock cutoffLock;
+    private final AtomicInteger overdue;
+    private LocalDate cutoff;
+
+    public DueDateIndex() {
+        this.loansByDueDate = new ConcurrentSkipListMap<>();
+        this.cutoffLock = new ReentrantReadWriteLock();
+        this.overdue = new AtomicInteger();
+        this.cutoff = LocalDate.MIN;
+    }
+
+    public void add(BorrowRecord record) {
+        cutoffLock.readLock().lock();
+        try {
+            loansByDueDate.computeIfAbsent(record.getDueDate(), date -> ConcurrentHashMap.newKeySet()).add(record);
+            if (record.getDueDate().isBefore(cutoff)) {
+                overdue.incrementAndGet();
+            }
+        } finally {
+            cutoffLock.readLock().unlock();
+        }
+    }
+
+    // Empty date buckets are left in place and pruned when the cutoff moves,
+    // which avoids racing a concurrent add for the same date.
+    public void remove(BorrowRecord record) {
+        cutoffLock.readLock().lock();
+        try {
+            Set<BorrowRecord> loans = loansByDueDate.get(record.getDueDate());
+            if (loans != null && loans.remove(record) && record.getDueDate().isBefore(cutoff)) {
+                overdue.decrementAndGet();
+            }
+        } finally {
+            cutoffLock.readLock().unlock();
+        }
+    }
+
+    public int overdueCount(LocalDate today) {
+        cutoffLock.readLock().lock();
+        try {
+            if (today.equals(cutoff)) {
+                return overdue.get();
+            }
+        } finally {
+            cutoffLock.readLock().unlock();
+        }
+        cutoffLock.writeLock().lock();
+        try {
+            if (!today.equals(cutoff)) {
+                int count = 0;
+                Iterator<Map.Entry<LocalDate, Set<BorrowRecord>>> dates =
+                        loansByDueDate.headMap(today, false).entrySet().iterator();
+                while (dates.hasNext()) {
+                    Set<BorrowRecord> loans = dates.next().getValue();
+                    if (loans.isEmpty()) {
+                        dates.remove();
+                    } else {
+                        count += loans.size();
+                    }
+                }
+                overdue.set(count);
+                cutoff = today;
+            }
+            return overdue.get();
+        } finally {
+            cutoffLock.writeLock().unlock();
+        }
+    }
+
+    // Loans due strictly before the given day, oldest due date first.
+    public List<BorrowRecord> dueBefore(LocalDate day) {
+        return collect(loansByDueDate.headMap(day, false));
+    }
+
+    // Loans due on any day from first to last, both inclusive.
+    public List<BorrowRecord> dueBetween(LocalDate first, LocalDate last) {
+        if (last.isBefore(first)) {
+            return new ArrayList<>();
+        }
+        return collect(loansByDueDate.subMap(first, true, last, true));
+    }
+
+    private static List<BorrowRecord> collect(Map<LocalDate, Set<BorrowRecord>> range) {
+        List<BorrowRecord> loans = new ArrayList<>();
+        for (Set<BorrowRecord> dueOnDate : range.values()) {
+            loans.addAll(dueOnDate);
+        }
+        return loans;
+    }
+}
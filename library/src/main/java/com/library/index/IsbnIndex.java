@@ -0,0 +1,138 @@
+package com.library.index;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Maps normalized ISBN keys to the ISBN a book was stored under, so that
+// "0-451-52493-4", "0451524934" and "978-0451524935" all find the same book.
+// All-digit keys, which is every valid ISBN, are packed into a long and kept
+// in a primitive hash map; a lookup of such an ISBN allocates nothing. Other
+// keys fall back to a string map. Like the n-gram indexes, it relies on
+// Library's catalog lock.
+public class IsbnIndex {
+    private static final long NOT_NUMERIC = -1;
+    private static final int MAX_NUMERIC_DIGITS = 17;
+
+    private final LongHashMap<String> numericKeys = new LongHashMap<>();
+    private final Map<String, String> otherKeys = new HashMap<>();
+
+    public void add(String isbn) {
+        long key = numericKey(isbn);
+        if (key != NOT_NUMERIC) {
+            numericKeys.putIfAbsent(key, isbn);
+        } else {
+            otherKeys.putIfAbsent(normalize(isbn), isbn);
+        }
+    }
+
+    public void remove(String isbn) {
+        long key = numericKey(isbn);
+        if (key != NOT_NUMERIC) {
+            numericKeys.remove(key, isbn);
+        } else {
+            otherKeys.remove(normalize(isbn), isbn);
+        }
+    }
+
+    public String find(String isbn) {
+        if (isbn == null) {
+            return null;
+        }
+        long key = numericKey(isbn);
+        return key != NOT_NUMERIC ? numericKeys.get(key) : otherKeys.get(normalize(isbn));
+    }
+
+    // The normalized form packed as its digit value shifted left by five bits
+    // plus its digit count, so keys differing only in leading zeros stay apart.
+    // Returns NOT_NUMERIC when the normalized form is not all digits or is too
+    // long to pack.
+    static long numericKey(String isbn) {
+        long value = 0;
+        int digits = 0;
+        int isbn10Sum = 0;
+        boolean checkX = false;
+        for (int i = 0; i < isbn.length(); i++) {
+            char c = isbn.charAt(i);
+            if (c == '-' || c == ' ') {
+                continue;
+            }
+            if (checkX) {
+                return NOT_NUMERIC;
+            }
+            if (c >= '0' && c <= '9') {
+                if (++digits > MAX_NUMERIC_DIGITS) {
+                    return NOT_NUMERIC;
+                }
+                value = value * 10 + (c - '0');
+                isbn10Sum += (c - '0') * (11 - digits);
+            } else if ((c == 'X' || c == 'x') && digits == 9) {
+                checkX = true;
+                isbn10Sum += 10;
+            } else {
+                return NOT_NUMERIC;
+            }
+        }
+        if (checkX || digits == 10) {
+            if (isbn10Sum % 11 != 0) {
+                return checkX ? NOT_NUMERIC : value << 5 | digits;
+            }
+            long isbn13 = 978_000_000_000L + (checkX ? value : value / 10);
+            return (isbn13 * 10 + isbn13CheckDigit(isbn13)) << 5 | 13;
+        }
+        return value << 5 | digits;
+    }
+
+    // Check digit for the first twelve digits of an ISBN-13.
+    private static int isbn13CheckDigit(long first12) {
+        int sum = 0;
+        for (int i = 11; i >= 0; i--) {
+            int digit = (int) (first12 % 10);
+            first12 /= 10;
+            sum += (i % 2 == 0) ? digit : digit * 3;
+        }
+        return (10 - sum % 10) % 10;
+    }
+
+    // Drops separators and upper-cases the check character; valid ISBN-10s are
+    // converted to their ISBN-13 form. Anything else is kept as stripped.
+    public static String normalize(String isbn) {
+        StringBuilder key = new StringBuilder(isbn.length());
+        for (int i = 0; i < isbn.length(); i++) {
+            char c = isbn.charAt(i);
+            if (c != '-' && c != ' ') {
+                key.append(Character.toUpperCase(c));
+            }
+        }
+        if (key.length() == 10 && isValidIsbn10(key)) {
+            return toIsbn13(key);
+        }
+        return key.toString();
+    }
+
+    private static boolean isValidIsbn10(CharSequence isbn) {
+        int sum = 0;
+        for (int i = 0; i < 10; i++) {
+            char c = isbn.charAt(i);
+            int digit;
+            if (c >= '0' && c <= '9') {
+                digit = c - '0';
+            } else if (c == 'X' && i == 9) {
+                digit = 10;
+            } else {
+                return false;
+            }
+            sum += digit * (10 - i);
+        }
+        return sum % 11 == 0;
+    }
+
+    private static String toIsbn13(CharSequence isbn10) {
+        StringBuilder isbn13 = new StringBuilder(13).append("978").append(isbn10, 0, 9);
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            int digit = isbn13.charAt(i) - '0';
+            sum += (i % 2 == 0) ? digit : digit * 3;
+        }
+        return isbn13.append((10 - sum % 10) % 10).toString();
+    }
+}
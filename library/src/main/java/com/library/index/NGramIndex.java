@@ -0,0 +1,172 @@
+package com.library.index;
+
+import com.library.model.Book;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+// Substring index over one folded book field. Every trigram of the field maps
+// to a compressed bitmap of the ordinals of the books containing it, and the
+// books themselves are resolved through the catalog, so the index holds no
+// Book references and no copy of the text. A query intersects the bitmaps of
+// its trigrams, rarest first, and verifies the survivors against the field.
+// Every character and character pair has a bitmap too, which answers a
+// one- or two-character query on its own; the empty query matches every
+// indexed book.
+//
+// Catalog changes and reads rely on Library's catalog lock. A book must be
+// removed before its field changes and added again afterwards, since the
+// index finds the trigrams to remove from the field itself.
+public class NGramIndex {
+    private static final int GRAM_LENGTH = 3;
+    // Key ranges of the shorter grams, above the 48 bits of a trigram.
+    private static final long BIGRAM = 1L << 48;
+    private static final long UNIGRAM = 2L << 48;
+
+    private final Function<Book, String> field;
+    private final IntFunction<Book> books;
+    private final LongHashMap<OrdinalBitmap> postings;
+    private final OrdinalBitmap indexed;
+
+    public NGramIndex(Function<Book, String> field, IntFunction<Book> books) {
+        this.field = field;
+        this.books = books;
+        this.postings = new LongHashMap<>();
+        this.indexed = new OrdinalBitmap();
+    }
+
+    public void add(Book book) {
+        int ordinal = book.getOrdinal();
+        if (!indexed.add(ordinal)) {
+            return;
+        }
+        String text = fold(field.apply(book));
+        for (int i = 0; i < text.length(); i++) {
+            for (int length = 1; length <= GRAM_LENGTH && i + length <= text.length(); length++) {
+                long gram = gram(text, i, length);
+                OrdinalBitmap posting = postings.get(gram);
+                if (posting == null) {
+                    posting = new OrdinalBitmap();
+                    postings.putIfAbsent(gram, posting);
+                }
+                posting.add(ordinal);
+            }
+        }
+    }
+
+    public void remove(Book book) {
+        int ordinal = book.getOrdinal();
+        if (!indexed.remove(ordinal)) {
+            return;
+        }
+        String text = fold(field.apply(book));
+        for (int i = 0; i < text.length(); i++) {
+            for (int length = 1; length <= GRAM_LENGTH && i + length <= text.length(); length++) {
+                long gram = gram(text, i, length);
+                OrdinalBitmap posting = postings.get(gram);
+                if (posting != null && posting.remove(ordinal) && posting.isEmpty()) {
+                    postings.remove(gram, posting);
+                }
+            }
+        }
+    }
+
+    public List<Book> search(String query) {
+        String folded = fold(query);
+        List<Book> results = new ArrayList<>();
+        OrdinalBitmap[] lists = lists(folded);
+        if (lists == null) {
+            return results;
+        }
+        OrdinalBitmap candidates = lists[0];
+        for (int i = 1; i < lists.length && !candidates.isEmpty(); i++) {
+            candidates = OrdinalBitmap.and(candidates, lists[i]);
+        }
+        // A single gram is answered by its posting alone; longer queries can
+        // match every trigram without containing the query.
+        boolean verify = folded.length() > GRAM_LENGTH;
+        candidates.forEach(ordinal -> {
+            Book book = books.apply(ordinal);
+            if (book != null && (!verify || fold(field.apply(book)).contains(folded))) {
+                results.add(book);
+            }
+        });
+        return results;
+    }
+
+    public boolean matches(Book book, String query) {
+        return fold(field.apply(book)).contains(fold(query));
+    }
+
+    // Upper bound on the number of matches, read from posting sizes only.
+    public int estimate(String query) {
+        String folded = fold(query);
+        OrdinalBitmap[] lists = lists(folded);
+        return lists == null ? 0 : lists[0].cardinality();
+    }
+
+    public int size() {
+        return indexed.cardinality();
+    }
+
+    // The postings of the query's distinct trigrams, smallest first, or null
+    // when one of them has no posting and nothing can match. A shorter query
+    // is one gram, and the empty query gets the bitmap of every indexed book.
+    private OrdinalBitmap[] lists(String folded) {
+        if (folded.isEmpty()) {
+            return new OrdinalBitmap[] {indexed};
+        }
+        int length = Math.min(folded.length(), GRAM_LENGTH);
+        int count = folded.length() - length + 1;
+        OrdinalBitmap[] lists = new OrdinalBitmap[count];
+        int[] sizes = new int[count];
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            OrdinalBitmap posting = postings.get(gram(folded, i, length));
+            if (posting == null) {
+                return null;
+            }
+            boolean seen = false;
+            for (int j = 0; j < distinct && !seen; j++) {
+                seen = lists[j] == posting;
+            }
+            if (!seen) {
+                lists[distinct] = posting;
+                sizes[distinct] = posting.cardinality();
+                distinct++;
+            }
+        }
+        // Insertion sort by size; queries have few trigrams.
+        for (int i = 1; i < distinct; i++) {
+            for (int j = i; j > 0 && sizes[j] < sizes[j - 1]; j--) {
+                int size = sizes[j];
+                sizes[j] = sizes[j - 1];
+                sizes[j - 1] = size;
+                OrdinalBitmap list = lists[j];
+                lists[j] = lists[j - 1];
+                lists[j - 1] = list;
+            }
+        }
+        return Arrays.copyOf(lists, distinct);
+    }
+
+    // Up to three UTF-16 chars packed into one key.
+    private static long gram(String text, int start, int length) {
+        if (length == 1) {
+            return UNIGRAM | text.charAt(start);
+        }
+        if (length == 2) {
+            return BIGRAM | ((long) text.charAt(start) << 16) | text.charAt(start + 1);
+        }
+        return ((long) text.charAt(start) << 32) | ((long) text.charAt(start + 1) << 16) | text.charAt(start + 2);
+    }
+
+    // Already-folded fields (Book::getFoldedTitle) come back as the same
+    // instance, so no copy is made for the stored fields.
+    private static String fold(String text) {
+        return Book.fold(text);
+    }
+}
@@ -0,0 +1,446 @@
+package com.library.index;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+// Compressed set of non-negative ints in the style of Roaring bitmaps: values
+// are split by their high 16 bits into chunks, and each chunk is stored as a
+// sorted char array while sparse or as a 65536-bit bitmap once it holds more
+// than ARRAY_LIMIT values. Not thread-safe.
+public final class OrdinalBitmap {
+    private static final int ARRAY_LIMIT = 4096;
+    // Removals turn a bitmap chunk back into an array only well below
+    // ARRAY_LIMIT, so a chunk hovering around the limit does not convert on
+    // every other add and remove.
+    private static final int SHRINK_LIMIT = ARRAY_LIMIT / 2;
+    private static final int BITMAP_WORDS = 1024;
+
+    private char[] keys;
+    private Container[] containers;
+    private int chunks;
+
+    public OrdinalBitmap() {
+        this.keys = new char[4];
+        this.containers = new Container[4];
+    }
+
+    private OrdinalBitmap(char[] keys, Container[] containers, int chunks) {
+        this.keys = keys;
+        this.containers = containers;
+        this.chunks = chunks;
+    }
+
+    public boolean add(int value) {
+        char high = (char) (value >>> 16);
+        int slot = find(high);
+        if (slot < 0) {
+            slot = -slot - 1;
+            insertChunk(slot, high, new ArrayContainer());
+        }
+        Container container = containers[slot];
+        boolean added = container.add((char) value);
+        if (added && container instanceof ArrayContainer && container.cardinality > ARRAY_LIMIT) {
+            containers[slot] = ((ArrayContainer) container).toBitmap();
+        }
+        return added;
+    }
+
+    public boolean remove(int value) {
+        int slot = find((char) (value >>> 16));
+        if (slot < 0) {
+            return false;
+        }
+        Container container = containers[slot];
+        if (!container.remove((char) value)) {
+            return false;
+        }
+        if (container.cardinality == 0) {
+            removeChunk(slot);
+        } else if (container instanceof BitmapContainer && container.cardinality <= SHRINK_LIMIT) {
+            containers[slot] = ((BitmapContainer) container).toArray();
+        }
+        return true;
+    }
+
+    public boolean contains(int value) {
+        int slot = find((char) (value >>> 16));
+        return slot >= 0 && containers[slot].contains((char) value);
+    }
+
+    public int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < chunks; i++) {
+            cardinality += containers[i].cardinality;
+        }
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return chunks == 0;
+    }
+
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < chunks; i++) {
+            containers[i].forEach(keys[i] << 16, action);
+        }
+    }
+
+    public OrdinalBitmap copy() {
+        Container[] copied = new Container[Math.max(4, chunks)];
+        for (int i = 0; i < chunks; i++) {
+            copied[i] = containers[i].copy();
+        }
+        return new OrdinalBitmap(Arrays.copyOf(keys, copied.length), copied, chunks);
+    }
+
+    public static OrdinalBitmap and(OrdinalBitmap left, OrdinalBitmap right) {
+        OrdinalBitmap result = new OrdinalBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < left.chunks && j < right.chunks) {
+            if (left.keys[i] < right.keys[j]) {
+                i++;
+            } else if (left.keys[i] > right.keys[j]) {
+                j++;
+            } else {
+                Container both = left.containers[i].and(right.containers[j]);
+                if (both.cardinality > 0) {
+                    result.insertChunk(result.chunks, left.keys[i], both);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    public static OrdinalBitmap or(OrdinalBitmap left, OrdinalBitmap right) {
+        OrdinalBitmap result = new OrdinalBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < left.chunks || j < right.chunks) {
+            if (j >= right.chunks || (i < left.chunks && left.keys[i] < right.keys[j])) {
+                result.insertChunk(result.chunks, left.keys[i], left.containers[i].copy());
+                i++;
+            } else if (i >= left.chunks || left.keys[i] > right.keys[j]) {
+                result.insertChunk(result.chunks, right.keys[j], right.containers[j].copy());
+                j++;
+            } else {
+                result.insertChunk(result.chunks, left.keys[i], left.containers[i].or(right.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    public static OrdinalBitmap andNot(OrdinalBitmap left, OrdinalBitmap right) {
+        OrdinalBitmap result = new OrdinalBitmap();
+        int j = 0;
+        for (int i = 0; i < left.chunks; i++) {
+            while (j < right.chunks && right.keys[j] < left.keys[i]) {
+                j++;
+            }
+            Container remaining = j < right.chunks && right.keys[j] == left.keys[i]
+                    ? left.containers[i].andNot(right.containers[j])
+                    : left.containers[i].copy();
+            if (remaining.cardinality > 0) {
+                result.insertChunk(result.chunks, left.keys[i], remaining);
+            }
+        }
+        return result;
+    }
+
+    private int find(char high) {
+        return Arrays.binarySearch(keys, 0, chunks, high);
+    }
+
+    private void insertChunk(int slot, char high, Container container) {
+        if (chunks == keys.length) {
+            keys = Arrays.copyOf(keys, chunks * 2);
+            containers = Arrays.copyOf(containers, chunks * 2);
+        }
+        System.arraycopy(keys, slot, keys, slot + 1, chunks - slot);
+        System.arraycopy(containers, slot, containers, slot + 1, chunks - slot);
+        keys[slot] = high;
+        containers[slot] = container;
+        chunks++;
+    }
+
+    private void removeChunk(int slot) {
+        System.arraycopy(keys, slot + 1, keys, slot, chunks - slot - 1);
+        System.arraycopy(containers, slot + 1, containers, slot, chunks - slot - 1);
+        chunks--;
+        containers[chunks] = null;
+    }
+
+    private abstract static class Container {
+        int cardinality;
+
+        abstract boolean add(char low);
+
+        abstract boolean remove(char low);
+
+        abstract boolean contains(char low);
+
+        abstract void forEach(int base, IntConsumer action);
+
+        abstract Container copy();
+
+        abstract Container and(Container other);
+
+        abstract Container or(Container other);
+
+        abstract Container andNot(Container other);
+    }
+
+    private static final class ArrayContainer extends Container {
+        private char[] values;
+
+        ArrayContainer() {
+            this.values = new char[4];
+        }
+
+        ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        boolean add(char low) {
+            int slot = Arrays.binarySearch(values, 0, cardinality, low);
+            if (slot >= 0) {
+                return false;
+            }
+            slot = -slot - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(Math.max(4, cardinality * 2), ARRAY_LIMIT + 1));
+            }
+            System.arraycopy(values, slot, values, slot + 1, cardinality - slot);
+            values[slot] = low;
+            cardinality++;
+            return true;
+        }
+
+        @Override
+        boolean remove(char low) {
+            int slot = Arrays.binarySearch(values, 0, cardinality, low);
+            if (slot < 0) {
+                return false;
+            }
+            System.arraycopy(values, slot + 1, values, slot, cardinality - slot - 1);
+            cardinality--;
+            return true;
+        }
+
+        @Override
+        boolean contains(char low) {
+            return Arrays.binarySearch(values, 0, cardinality, low) >= 0;
+        }
+
+        @Override
+        void forEach(int base, IntConsumer action) {
+            for (int i = 0; i < cardinality; i++) {
+                action.accept(base | values[i]);
+            }
+        }
+
+        @Override
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, Math.max(4, cardinality)), cardinality);
+        }
+
+        @Override
+        Container and(Container other) {
+            char[] result = new char[cardinality];
+            int count = 0;
+            if (other instanceof BitmapContainer) {
+                for (int i = 0; i < cardinality; i++) {
+                    if (other.contains(values[i])) {
+                        result[count++] = values[i];
+                    }
+                }
+                return new ArrayContainer(result, count);
+            }
+            ArrayContainer array = (ArrayContainer) other;
+            int i = 0;
+            int j = 0;
+            while (i < cardinality && j < array.cardinality) {
+                if (values[i] < array.values[j]) {
+                    i++;
+                } else if (values[i] > array.values[j]) {
+                    j++;
+                } else {
+                    result[count++] = values[i];
+                    i++;
+                    j++;
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        Container or(Container other) {
+            if (other instanceof BitmapContainer) {
+                return other.or(this);
+            }
+            ArrayContainer array = (ArrayContainer) other;
+            char[] result = new char[cardinality + array.cardinality];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < cardinality || j < array.cardinality) {
+                if (j >= array.cardinality || (i < cardinality && values[i] < array.values[j])) {
+                    result[count++] = values[i++];
+                } else if (i >= cardinality || values[i] > array.values[j]) {
+                    result[count++] = array.values[j++];
+                } else {
+                    result[count++] = values[i];
+                    i++;
+                    j++;
+                }
+            }
+            ArrayContainer merged = new ArrayContainer(result, count);
+            return count > ARRAY_LIMIT ? merged.toBitmap() : merged;
+        }
+
+        @Override
+        Container andNot(Container other) {
+            char[] result = new char[cardinality];
+            int count = 0;
+            for (int i = 0; i < cardinality; i++) {
+                if (!other.contains(values[i])) {
+                    result[count++] = values[i];
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer(new long[BITMAP_WORDS], 0);
+            for (int i = 0; i < cardinality; i++) {
+                bitmap.add(values[i]);
+            }
+            return bitmap;
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+        private final long[] words;
+
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        boolean add(char low) {
+            long bit = 1L << low;
+            long word = words[low >>> 6];
+            if ((word & bit) != 0) {
+                return false;
+            }
+            words[low >>> 6] = word | bit;
+            cardinality++;
+            return true;
+        }
+
+        @Override
+        boolean remove(char low) {
+            long bit = 1L << low;
+            long word = words[low >>> 6];
+            if ((word & bit) == 0) {
+                return false;
+            }
+            words[low >>> 6] = word & ~bit;
+            cardinality--;
+            return true;
+        }
+
+        @Override
+        boolean contains(char low) {
+            return (words[low >>> 6] & (1L << low)) != 0;
+        }
+
+        @Override
+        void forEach(int base, IntConsumer action) {
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                long word = words[w];
+                while (word != 0) {
+                    action.accept(base | (w << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        @Override
+        Container copy() {
+            return new BitmapContainer(words.clone(), cardinality);
+        }
+
+        @Override
+        Container and(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.and(this);
+            }
+            long[] otherWords = ((BitmapContainer) other).words;
+            long[] result = new long[BITMAP_WORDS];
+            int count = 0;
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                result[w] = words[w] & otherWords[w];
+                count += Long.bitCount(result[w]);
+            }
+            BitmapContainer both = new BitmapContainer(result, count);
+            return count <= ARRAY_LIMIT ? both.toArray() : both;
+        }
+
+        @Override
+        Container or(Container other) {
+            long[] result = words.clone();
+            BitmapContainer merged = new BitmapContainer(result, 0);
+            if (other instanceof ArrayContainer) {
+                merged.cardinality = cardinality;
+                ArrayContainer array = (ArrayContainer) other;
+                for (int i = 0; i < array.cardinality; i++) {
+                    merged.add(array.values[i]);
+                }
+                return merged;
+            }
+            long[] otherWords = ((BitmapContainer) other).words;
+            int count = 0;
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                result[w] |= otherWords[w];
+                count += Long.bitCount(result[w]);
+            }
+            merged.cardinality = count;
+            return merged;
+        }
+
+        @Override
+        Container andNot(Container other) {
+            BitmapContainer remaining = (BitmapContainer) copy();
+            if (other instanceof ArrayContainer) {
+                ArrayContainer array = (ArrayContainer) other;
+                for (int i = 0; i < array.cardinality; i++) {
+                    remaining.remove(array.values[i]);
+                }
+            } else {
+                long[] otherWords = ((BitmapContainer) other).words;
+                int count = 0;
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    remaining.words[w] &= ~otherWords[w];
+                    count += Long.bitCount(remaining.words[w]);
+                }
+                remaining.cardinality = count;
+            }
+            return remaining.cardinality <= ARRAY_LIMIT ? remaining.toArray() : remaining;
+        }
+
+        ArrayContainer toArray() {
+            char[] values = new char[cardinality];
+            int[] count = new int[1];
+            forEach(0, value -> values[count[0]++] = (char) value);
+            return new ArrayContainer(values, cardinality);
+        }
+    }
+}
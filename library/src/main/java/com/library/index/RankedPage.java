@@ -0,0 +1,19 @@
+package com.library.index;
+
+import java.util.List;
+
+// One page of ranked results. The cursor fetches the following page and is
+// null when this page was the last one.
+public class RankedPage {
+    private final List<ScoredBook> results;
+    private final String nextCursor;
+
+    public RankedPage(List<ScoredBook> results, String nextCursor) {
+        this.results = results;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<ScoredBook> getResults() { return results; }
+    public String getNextCursor() { return nextCursor; }
+    public boolean hasNext() { return nextCursor != null; }
+}
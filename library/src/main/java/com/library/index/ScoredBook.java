@@ -0,0 +1,21 @@
+package com.library.index;
+
+import com.library.model.Book;
+
+public class ScoredBook {
+    private final Book book;
+    private final double score;
+
+    public ScoredBook(Book book, double score) {
+        this.book = book;
+        this.score = score;
+    }
+
+    public Book getBook() { return book; }
+    public double getScore() { return score; }
+
+    @Override
+    public String toString() {
+        return String.format("ScoredBook{ISBN='%s', Title='%s', Score=%.3f}", book.getIsbn(), book.getTitle(), score);
+    }
+}
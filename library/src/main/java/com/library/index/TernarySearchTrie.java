@@ -0,0 +1,292 @@
+package com.library.index;
+
+import com.library.model.Book;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+// Ternary search trie from a folded book field (a whole title or author name)
+// to the books that carry it, for type-ahead completion. Nodes live in
+// parallel primitive arrays instead of objects. The books whose key ends at a
+// node are a list of catalog ordinals linked through per-ordinal arrays, and
+// are resolved through the catalog, so the trie holds no Book references.
+// Keys whose last book is removed keep their nodes; they simply stop
+// producing results.
+//
+// Fuzzy lookups walk the trie with one Levenshtein row per node, which
+// simulates the query's Levenshtein automaton: a branch is abandoned as soon
+// as every cell of its row exceeds the edit budget.
+//
+// Like the n-gram indexes, it relies on Library's catalog lock.
+public class TernarySearchTrie {
+    private static final int NONE = -1;
+
+    private final Function<Book, String> field;
+    private final IntFunction<Book> books;
+    private char[] splitChars;
+    private int[] lo;
+    private int[] eq;
+    private int[] hi;
+    private int[] firstBook;
+    private int nodes;
+    private int root;
+    // Per ordinal: the node its key ends at and the next book ending there.
+    private int[] bookNode;
+    private int[] nextBook;
+
+    public TernarySearchTrie(Function<Book, String> field, IntFunction<Book> books) {
+        this.field = field;
+        this.books = books;
+        this.splitChars = new char[1024];
+        this.lo = new int[1024];
+        this.eq = new int[1024];
+        this.hi = new int[1024];
+        this.firstBook = new int[1024];
+        this.root = NONE;
+        this.bookNode = new int[1024];
+        this.nextBook = new int[1024];
+        Arrays.fill(bookNode, NONE);
+    }
+
+    public void add(Book book) {
+        String key = field.apply(book);
+        int ordinal = book.getOrdinal();
+        if (key == null || key.isEmpty() || (ordinal < bookNode.length && bookNode[ordinal] != NONE)) {
+            return;
+        }
+        if (ordinal >= bookNode.length) {
+            int capacity = Math.max(bookNode.length * 2, ordinal + 1);
+            int previous = bookNode.length;
+            bookNode = Arrays.copyOf(bookNode, capacity);
+            nextBook = Arrays.copyOf(nextBook, capacity);
+            Arrays.fill(bookNode, previous, capacity, NONE);
+        }
+        int node = insert(key);
+        bookNode[ordinal] = node;
+        nextBook[ordinal] = firstBook[node];
+        firstBook[node] = ordinal;
+    }
+
+    public void remove(Book book) {
+        int ordinal = book.getOrdinal();
+        if (ordinal < 0 || ordinal >= bookNode.length || bookNode[ordinal] == NONE) {
+            return;
+        }
+        int node = bookNode[ordinal];
+        bookNode[ordinal] = NONE;
+        if (firstBook[node] == ordinal) {
+            firstBook[node] = nextBook[ordinal];
+            return;
+        }
+        int previous = firstBook[node];
+        while (nextBook[previous] != ordinal) {
+            previous = nextBook[previous];
+        }
+        nextBook[previous] = nextBook[ordinal];
+    }
+
+    public void update(Book book) {
+        remove(book);
+        add(book);
+    }
+
+    // Books whose key starts with the prefix, in key order, at most limit.
+    public List<Book> complete(String prefix, int limit) {
+        Set<Book> results = new LinkedHashSet<>();
+        if (prefix.isEmpty()) {
+            collect(root, results, limit);
+        } else {
+            int node = find(prefix);
+            if (node != NONE) {
+                addValues(node, results, limit);
+                collect(eq[node], results, limit);
+            }
+        }
+        return new ArrayList<>(results);
+    }
+
+    // Books whose key starts with something within maxEdits edits of the
+    // prefix. Closer matches come first; at most limit books are returned.
+    public List<Book> completeFuzzy(String prefix, int maxEdits, int limit) {
+        List<List<Integer>> matchesByDistance = new ArrayList<>();
+        for (int d = 0; d <= maxEdits; d++) {
+            matchesByDistance.add(new ArrayList<>());
+        }
+        int[] firstRow = new int[prefix.length() + 1];
+        for (int i = 0; i < firstRow.length; i++) {
+            firstRow[i] = i;
+        }
+        if (firstRow[prefix.length()] <= maxEdits) {
+            matchesByDistance.get(firstRow[prefix.length()]).add(root);
+        } else {
+            walk(root, prefix, firstRow, maxEdits, matchesByDistance);
+        }
+
+        Set<Book> results = new LinkedHashSet<>();
+        for (List<Integer> matches : matchesByDistance) {
+            for (int node : matches) {
+                if (results.size() >= limit) {
+                    return new ArrayList<>(results);
+                }
+                if (node == root && firstRow[prefix.length()] <= maxEdits) {
+                    collect(root, results, limit);
+                } else {
+                    addValues(node, results, limit);
+                    collect(eq[node], results, limit);
+                }
+            }
+        }
+        return new ArrayList<>(results);
+    }
+
+    // Whether the book's key starts with something within maxEdits edits of
+    // the folded prefix, using the same row recurrence as the trie walk.
+    public boolean matches(Book book, String prefix, int maxEdits) {
+        String key = field.apply(book);
+        if (key == null || key.isEmpty()) {
+            return false;
+        }
+        int[] row = new int[prefix.length() + 1];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = i;
+        }
+        if (row[prefix.length()] <= maxEdits) {
+            return true;
+        }
+        for (int k = 0; k < key.length(); k++) {
+            int[] next = new int[row.length];
+            next[0] = row[0] + 1;
+            int smallest = next[0];
+            for (int i = 1; i < next.length; i++) {
+                int substitution = row[i - 1] + (prefix.charAt(i - 1) == key.charAt(k) ? 0 : 1);
+                next[i] = Math.min(substitution, Math.min(next[i - 1] + 1, row[i] + 1));
+                smallest = Math.min(smallest, next[i]);
+            }
+            if (next[prefix.length()] <= maxEdits) {
+                return true;
+            }
+            if (smallest > maxEdits) {
+                return false;
+            }
+            row = next;
+        }
+        return false;
+    }
+
+    // Visits the subtree at node, where previousRow is the Levenshtein row of
+    // the key prefix leading to it. A node whose row ends within the budget is
+    // recorded with that distance; its subtree is only walked further while
+    // some cell is lower, as a longer key prefix could then match more closely.
+    private void walk(int node, String prefix, int[] previousRow, int maxEdits, List<List<Integer>> matches) {
+        while (node != NONE) {
+            walk(lo[node], prefix, previousRow, maxEdits, matches);
+            char c = splitChars[node];
+            int[] row = new int[previousRow.length];
+            row[0] = previousRow[0] + 1;
+            int smallest = row[0];
+            for (int i = 1; i < row.length; i++) {
+                int substitution = previousRow[i - 1] + (prefix.charAt(i - 1) == c ? 0 : 1);
+                row[i] = Math.min(substitution, Math.min(row[i - 1] + 1, previousRow[i] + 1));
+                smallest = Math.min(smallest, row[i]);
+            }
+            int distance = row[row.length - 1];
+            if (distance <= maxEdits) {
+                matches.get(distance).add(node);
+            }
+            if (smallest < Math.min(distance, maxEdits + 1)) {
+                walk(eq[node], prefix, row, maxEdits, matches);
+            }
+            node = hi[node];
+        }
+    }
+
+    private void collect(int node, Set<Book> results, int limit) {
+        while (node != NONE && results.size() < limit) {
+            collect(lo[node], results, limit);
+            addValues(node, results, limit);
+            collect(eq[node], results, limit);
+            node = hi[node];
+        }
+    }
+
+    private void addValues(int node, Set<Book> results, int limit) {
+        for (int ordinal = firstBook[node]; ordinal != NONE && results.size() < limit; ordinal = nextBook[ordinal]) {
+            Book book = books.apply(ordinal);
+            if (book != null) {
+                results.add(book);
+            }
+        }
+    }
+
+    private int find(String key) {
+        int node = root;
+        int i = 0;
+        while (node != NONE) {
+            char c = key.charAt(i);
+            if (c < splitChars[node]) {
+                node = lo[node];
+            } else if (c > splitChars[node]) {
+                node = hi[node];
+            } else if (++i == key.length()) {
+                return node;
+            } else {
+                node = eq[node];
+            }
+        }
+        return NONE;
+    }
+
+    private int insert(String key) {
+        if (root == NONE) {
+            root = newNode(key.charAt(0));
+        }
+        int node = root;
+        int i = 0;
+        while (true) {
+            char c = key.charAt(i);
+            if (c < splitChars[node]) {
+                if (lo[node] == NONE) {
+                    int child = newNode(c);
+                    lo[node] = child;
+                }
+                node = lo[node];
+            } else if (c > splitChars[node]) {
+                if (hi[node] == NONE) {
+                    int child = newNode(c);
+                    hi[node] = child;
+                }
+                node = hi[node];
+            } else if (++i == key.length()) {
+                return node;
+            } else {
+                if (eq[node] == NONE) {
+                    int child = newNode(key.charAt(i));
+                    eq[node] = child;
+                }
+                node = eq[node];
+            }
+        }
+    }
+
+    private int newNode(char c) {
+        if (nodes == splitChars.length) {
+            int capacity = nodes * 2;
+            splitChars = Arrays.copyOf(splitChars, capacity);
+            lo = Arrays.copyOf(lo, capacity);
+            eq = Arrays.copyOf(eq, capacity);
+            hi = Arrays.copyOf(hi, capacity);
+            firstBook = Arrays.copyOf(firstBook, capacity);
+        }
+        splitChars[nodes] = c;
+        lo[nodes] = NONE;
+        eq[nodes] = NONE;
+        hi[nodes] = NONE;
+        firstBook[nodes] = NONE;
+        return nodes++;
+    }
+}
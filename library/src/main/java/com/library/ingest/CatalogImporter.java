@@ -0,0 +1,303 @@
+package com.library.ingest;
+
+import com.library.model.Book;
+import com.library.patterns.BookFactory;
+import com.library.service.Library;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Streams a delimited catalog file into a Library. One reader thread cuts the
+// file into chunks of whole records and hands the chunk buffers (not copies)
+// to a fixed set of workers through a bounded queue, so heap use is bounded by
+// roughly (queue capacity + workers) * chunk size whatever the file size.
+public class CatalogImporter {
+    private static final Logger logger = LoggerFactory.getLogger(CatalogImporter.class);
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private static final Chunk END = new Chunk(new byte[0], 0, 0, 0);
+
+    private final Library library;
+    private final char delimiter;
+    private int workers;
+    private int batchSize;
+    private int chunkSize;
+    private boolean hasHeader;
+    private int maxReportedErrors;
+
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder added = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder errorCount = new LongAdder();
+    private final List<ImportError> errors = new ArrayList<>();
+    private volatile Throwable failure;
+
+    public CatalogImporter(Library library, char delimiter) {
+        this.library = library;
+        this.delimiter = delimiter;
+        this.workers = Runtime.getRuntime().availableProcessors();
+        this.batchSize = 1000;
+        this.chunkSize = 1 << 20;
+        this.maxReportedErrors = 1000;
+    }
+
+    public static CatalogImporter forPath(Library library, Path path) {
+        String name = path.getFileName().toString().toLowerCase();
+        char delimiter = name.endsWith(".tsv") || name.endsWith(".tab") ? '\t' : ',';
+        return new CatalogImporter(library, delimiter);
+    }
+
+    public void setWorkers(int workers) { this.workers = Math.max(1, workers); }
+    public void setBatchSize(int batchSize) { this.batchSize = Math.max(1, batchSize); }
+    public void setChunkSize(int chunkSize) { this.chunkSize = Math.max(1024, chunkSize); }
+    public void setHasHeader(boolean hasHeader) { this.hasHeader = hasHeader; }
+    public void setMaxReportedErrors(int maxReportedErrors) { this.maxReportedErrors = maxReportedErrors; }
+
+    public ImportResult importFile(Path path) throws IOException {
+        rows.reset();
+        added.reset();
+        duplicates.reset();
+        errorCount.reset();
+        errors.clear();
+        failure = null;
+
+        long start = System.nanoTime();
+        BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(workers * 2);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < workers; i++) {
+            Thread thread = new Thread(() -> work(queue), "catalog-import-" + i);
+            thread.start();
+            threads.add(thread);
+        }
+
+        try {
+            read(path, queue, start);
+        } finally {
+            for (int i = 0; i < workers; i++) {
+                enqueue(queue, END);
+            }
+            for (Thread thread : threads) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        if (failure != null) {
+            throw new IllegalStateException("Catalog import failed", failure);
+        }
+
+        ImportResult result;
+        synchronized (errors) {
+            result = new ImportResult(rows.sum(), added.sum(), duplicates.sum(), errorCount.sum(),
+                    new ArrayList<>(errors), System.nanoTime() - start);
+        }
+        logger.info("Imported {}: {}", path, result);
+        return result;
+    }
+
+    private void read(Path path, BlockingQueue<Chunk> queue, long start) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            byte[] buffer = new byte[chunkSize];
+            int filled = 0;
+            int scanned = 0;
+            int boundary = 0;
+            int newlines = 0;
+            int boundaryNewlines = 0;
+            boolean inQuotes = false;
+            boolean headerPending = hasHeader;
+            long firstLine = 1;
+            long lastProgress = start;
+
+            while (failure == null) {
+                int read = channel.read(ByteBuffer.wrap(buffer, filled, buffer.length - filled));
+                if (read > 0) {
+                    filled += read;
+                }
+                for (; scanned < filled; scanned++) {
+                    byte b = buffer[scanned];
+                    if (b == '"') {
+                        inQuotes = !inQuotes;
+                    } else if (b == '\n') {
+                        newlines++;
+                        if (!inQuotes) {
+                            boundary = scanned + 1;
+                            boundaryNewlines = newlines;
+                        }
+                    }
+                }
+
+                if (read < 0) {
+                    if (filled > 0) {
+                        submit(queue, buffer, filled, firstLine, headerPending);
+                    }
+                    return;
+                }
+                if (filled < buffer.length) {
+                    continue;
+                }
+                if (boundary == 0) {
+                    // A single record is longer than the buffer.
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                    continue;
+                }
+
+                byte[] next = new byte[Math.max(chunkSize, filled - boundary)];
+                System.arraycopy(buffer, boundary, next, 0, filled - boundary);
+                submit(queue, buffer, boundary, firstLine, headerPending);
+                headerPending = false;
+                firstLine += boundaryNewlines;
+
+                buffer = next;
+                filled -= boundary;
+                scanned -= boundary;
+                newlines -= boundaryNewlines;
+                boundary = 0;
+                boundaryNewlines = 0;
+
+                long now = System.nanoTime();
+                if (now - lastProgress >= PROGRESS_INTERVAL_NANOS) {
+                    lastProgress = now;
+                    logger.info("Importing {}: {} rows, {} rows/s", path, rows.sum(),
+                            (long) (rows.sum() * 1_000_000_000.0 / (now - start)));
+                }
+            }
+        }
+    }
+
+    private void submit(BlockingQueue<Chunk> queue, byte[] buffer, int end, long firstLine, boolean skipHeader) {
+        int start = 0;
+        if (skipHeader) {
+            while (start < end && buffer[start] != '\n') {
+                start++;
+            }
+            start = Math.min(start + 1, end);
+            firstLine++;
+        }
+        enqueue(queue, new Chunk(buffer, start, end, firstLine));
+    }
+
+    private void enqueue(BlockingQueue<Chunk> queue, Chunk chunk) {
+        try {
+            while (!queue.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+                if (failure != null && chunk != END) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure = e;
+        }
+    }
+
+    private void work(BlockingQueue<Chunk> queue) {
+        DelimitedFields parser = new DelimitedFields(delimiter);
+        List<String> fields = new ArrayList<>();
+        List<Book> batch = new ArrayList<>(batchSize);
+        try {
+            while (true) {
+                Chunk chunk = queue.take();
+                if (chunk == END) {
+                    break;
+                }
+                if (failure == null) {
+                    process(chunk, parser, fields, batch);
+                }
+            }
+            flush(batch);
+        } catch (Throwable t) {
+            failure = t;
+            // Keep draining so the reader never blocks on a full queue.
+            try {
+                while (queue.take() != END) {
+                    // discard
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void process(Chunk chunk, DelimitedFields parser, List<String> fields, List<Book> batch) {
+        byte[] data = chunk.data;
+        int recordStart = chunk.start;
+        long line = chunk.firstLine;
+        long recordLine = line;
+        boolean inQuotes = false;
+        for (int i = chunk.start; i < chunk.end; i++) {
+            byte b = data[i];
+            if (b == '"') {
+                inQuotes = !inQuotes;
+            } else if (b == '\n') {
+                line++;
+                if (!inQuotes) {
+                    processRecord(data, recordStart, i, recordLine, parser, fields, batch);
+                    recordStart = i + 1;
+                    recordLine = line;
+                }
+            }
+        }
+        if (recordStart < chunk.end) {
+            processRecord(data, recordStart, chunk.end, recordLine, parser, fields, batch);
+        }
+    }
+
+    private void processRecord(byte[] data, int start, int end, long line, DelimitedFields parser,
+                               List<String> fields, List<Book> batch) {
+        if (end == start || (end == start + 1 && data[start] == '\r')) {
+            return;
+        }
+        rows.increment();
+        try {
+            parser.split(data, start, end, fields);
+            batch.add(BookFactory.createBookFromFields(fields));
+        } catch (IllegalArgumentException e) {
+            errorCount.increment();
+            synchronized (errors) {
+                if (errors.size() < maxReportedErrors) {
+                    errors.add(new ImportError(line, e.getMessage()));
+                }
+            }
+            return;
+        }
+        if (batch.size() >= batchSize) {
+            flush(batch);
+        }
+    }
+
+    private void flush(List<Book> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        int inserted = library.addBooks(batch);
+        added.add(inserted);
+        duplicates.add(batch.size() - inserted);
+        batch.clear();
+    }
+
+    private static class Chunk {
+        final byte[] data;
+        final int start;
+        final int end;
+        final long firstLine;
+
+        Chunk(byte[] data, int start, int end, long firstLine) {
+            this.data = data;
+            this.start = start;
+            this.end = end;
+            this.firstLine = firstLine;
+        }
+    }
+}
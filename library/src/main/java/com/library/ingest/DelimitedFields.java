@@ -0,0 +1,92 @@
+package com.library.ingest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Splits delimited records straight from their UTF-8 bytes. Fields may be
+// quoted with '"', in which case delimiters and newlines are literal and
+// a doubled quote stands for one quote character.
+public class DelimitedFields {
+    private static final byte QUOTE = '"';
+
+    private final byte delimiter;
+    private byte[] scratch = new byte[256];
+
+    public DelimitedFields(char delimiter) {
+        this.delimiter = (byte) delimiter;
+    }
+
+    public static List<String> split(String line, char delimiter) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        List<String> fields = new ArrayList<>();
+        new DelimitedFields(delimiter).split(bytes, 0, bytes.length, fields);
+        return fields;
+    }
+
+    // Parses the record in bytes[start, end) into fields, which is cleared first.
+    public void split(byte[] bytes, int start, int end, List<String> fields) {
+        fields.clear();
+        if (end > start && bytes[end - 1] == '\r') {
+            end--;
+        }
+        int position = start;
+        while (true) {
+            if (position < end && bytes[position] == QUOTE) {
+                position = readQuoted(bytes, position + 1, end, fields);
+            } else {
+                int fieldEnd = position;
+                while (fieldEnd < end && bytes[fieldEnd] != delimiter) {
+                    fieldEnd++;
+                }
+                fields.add(new String(bytes, position, fieldEnd - position, StandardCharsets.UTF_8));
+                position = fieldEnd;
+            }
+            if (position >= end) {
+                return;
+            }
+            position++;
+            if (position == end) {
+                fields.add("");
+                return;
+            }
+        }
+    }
+
+    private int readQuoted(byte[] bytes, int position, int end, List<String> fields) {
+        int length = 0;
+        boolean closed = false;
+        while (position < end) {
+            byte b = bytes[position];
+            if (b == QUOTE) {
+                if (position + 1 < end && bytes[position + 1] == QUOTE) {
+                    append(length++, QUOTE);
+                    position += 2;
+                    continue;
+                }
+                position++;
+                closed = true;
+                break;
+            }
+            append(length++, b);
+            position++;
+        }
+        if (!closed) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        if (position < end && bytes[position] != delimiter) {
+            throw new IllegalArgumentException("Unexpected character after closing quote");
+        }
+        fields.add(new String(scratch, 0, length, StandardCharsets.UTF_8));
+        return position;
+    }
+
+    private void append(int index, byte b) {
+        if (index == scratch.length) {
+            byte[] grown = new byte[scratch.length * 2];
+            System.arraycopy(scratch, 0, grown, 0, scratch.length);
+            scratch = grown;
+        }
+        scratch[index] = b;
+    }
+}
@@ -0,0 +1,19 @@
+package com.library.ingest;
+
+public class ImportError {
+    private final long lineNumber;
+    private final String message;
+
+    public ImportError(long lineNumber, String message) {
+        this.lineNumber = lineNumber;
+        this.message = message;
+    }
+
+    public long getLineNumber() { return lineNumber; }
+    public String getMessage() { return message; }
+
+    @Override
+    public String toString() {
+        return String.format("ImportError{Line=%d, Message='%s'}", lineNumber, message);
+    }
+}
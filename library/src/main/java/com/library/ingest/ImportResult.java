@@ -0,0 +1,42 @@
+package com.library.ingest;
+
+import java.util.Collections;
+import java.util.List;
+
+public class ImportResult {
+    private final long rowsRead;
+    private final long booksAdded;
+    private final long duplicates;
+    private final long errorCount;
+    private final List<ImportError> errors;
+    private final long elapsedNanos;
+
+    public ImportResult(long rowsRead, long booksAdded, long duplicates, long errorCount,
+                        List<ImportError> errors, long elapsedNanos) {
+        this.rowsRead = rowsRead;
+        this.booksAdded = booksAdded;
+        this.duplicates = duplicates;
+        this.errorCount = errorCount;
+        this.errors = Collections.unmodifiableList(errors);
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getRowsRead() { return rowsRead; }
+    public long getBooksAdded() { return booksAdded; }
+    public long getDuplicates() { return duplicates; }
+    public long getErrorCount() { return errorCount; }
+    // Only the first errors are kept (see CatalogImporter.setMaxReportedErrors);
+    // getErrorCount() counts all of them.
+    public List<ImportError> getErrors() { return errors; }
+    public long getElapsedNanos() { return elapsedNanos; }
+
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rowsRead * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ImportResult{Rows=%d, Added=%d, Duplicates=%d, Errors=%d, RowsPerSecond=%.0f}",
+                rowsRead, booksAdded, duplicates, errorCount, getRowsPerSecond());
+    }
+}
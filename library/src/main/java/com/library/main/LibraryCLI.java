@@ -1,27 +1,133 @@
 package com.library.main;
 
 
+import com.library.cache.QueryCache;
 import com.library.model.Book;
 import com.library.model.Patron;
 import com.library.model.BorrowRecord;
+import com.library.hold.Hold;
+import com.library.service.HoldExpirySweep;
 import com.library.service.Library;
+import com.library.service.ReadOnlyLibraryException;
 import com.library.patterns.BookFactory;
 import com.library.patterns.*;
 import com.library.filter.BookFilter;
+import com.library.http.LibraryApi;
+import com.library.http.LibraryHttpServer;
+import com.library.metrics.HistogramSnapshot;
+import com.library.metrics.MetricsSnapshot;
+import com.library.metrics.OperationStats;
+import com.library.persistence.LibraryPersistence;
+import com.library.replication.LibraryReplica;
+import com.library.replication.ReplicationPrimary;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Paths;
 import java.util.List;
+import java.util.Optional;
 import java.util.Scanner;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 public class LibraryCLI {
     private Library library;
     private Scanner scanner;
     private boolean running;
+    private LibraryPersistence persistence;
+    private LibraryHttpServer httpServer;
+    private ReplicationPrimary replicationPrimary;
+    private LibraryReplica replica;
+    private HoldExpirySweep holdExpiry;
     
     public LibraryCLI() {
         this.library = new Library();
+        library.setQueryCache(new QueryCache(QueryCache.Policy.LRU, 100_000, 10, TimeUnit.MINUTES));
         this.scanner = new Scanner(System.in);
         this.running = true;
-        initializeSampleData();
+        if (!startReplica()) {
+            openPersistence();
+            // Seed only a brand-new data directory; anything recovered from a
+            // snapshot or the journal already is the library.
+            if (persistence == null || persistence.getDurableSeq() == 0) {
+                initializeSampleData();
+            }
+            startReplicationPrimary();
+        }
+        startHttpServer();
+        // A replica receives expired holds from the primary.
+        if (replica == null) {
+            holdExpiry = new HoldExpirySweep(library);
+            holdExpiry.start(1, TimeUnit.HOURS);
+        }
+    }
+    
+    // -Dlibrary.replicate.from=host:port makes this a replica that follows the
+    // primary instead of keeping its own data.
+    private boolean startReplica() {
+        String primary = System.getProperty("library.replicate.from");
+        if (primary == null) {
+            return false;
+        }
+        int colon = primary.lastIndexOf(':');
+        try {
+            replica = new LibraryReplica(library, new InetSocketAddress(primary.substring(0, colon),
+                    Integer.parseInt(primary.substring(colon + 1))));
+        } catch (RuntimeException e) {
+            System.out.println(" Invalid primary address: " + primary);
+            return false;
+        }
+        replica.start();
+        System.out.println(" Replicating from " + primary + "; this library is read-only");
+        return true;
+    }
+    
+    // Replication ships the journal, so it needs -Dlibrary.data.dir as well.
+    private void startReplicationPrimary() {
+        String port = System.getProperty("library.replication.port");
+        if (port == null) {
+            return;
+        }
+        if (persistence == null) {
+            System.out.println(" Replication needs library.data.dir to be set");
+            return;
+        }
+        try {
+            replicationPrimary = new ReplicationPrimary(persistence, Integer.parseInt(port));
+            replicationPrimary.start();
+            System.out.println(" Replicating to replicas on port " + replicationPrimary.getPort());
+        } catch (IOException | NumberFormatException e) {
+            System.out.println(" Could not start replication: " + e.getMessage());
+            replicationPrimary = null;
+        }
+    }
+    
+    private void openPersistence() {
+        String dataDir = System.getProperty("library.data.dir");
+        if (dataDir == null) {
+            return;
+        }
+        try {
+            persistence = LibraryPersistence.open(Paths.get(dataDir), library);
+            System.out.println(" Restored library state in " + persistence.getRecoveryMillis() + " ms");
+        } catch (IOException e) {
+            System.out.println(" Could not open data directory: " + e.getMessage());
+        }
+    }
+    
+    // Serves the same library over HTTP when -Dlibrary.http.port is set.
+    private void startHttpServer() {
+        String port = System.getProperty("library.http.port");
+        if (port == null) {
+            return;
+        }
+        try {
+            httpServer = new LibraryHttpServer(new LibraryApi(library), Integer.parseInt(port));
+            httpServer.start();
+            System.out.println(" HTTP API listening on port " + httpServer.getPort());
+        } catch (IOException | NumberFormatException e) {
+            System.out.println(" Could not start HTTP API: " + e.getMessage());
+            httpServer = null;
+        }
     }
     
     private void initializeSampleData() {
@@ -48,22 +154,32 @@ public class LibraryCLI {
             displayMenu();
             String choice = scanner.nextLine().trim();
             
-            switch (choice) {
-                case "1": addBook(); break;
-                case "2": addPatron(); break;
-                case "3": searchBooks(); break;
-                case "4": checkoutBook(); break;
-                case "5": returnBook(); break;
-                case "6": viewAllBooks(); break;
-                case "7": viewAllPatrons(); break;
-                case "8": viewStatistics(); break;
-                case "9": testDesignPatterns(); break;
-                case "0": exit(); break;
-                default: System.out.println(" Invalid choice. Please try again.");
+            try {
+                dispatch(choice);
+            } catch (ReadOnlyLibraryException e) {
+                System.out.println(" " + e.getMessage() + "; make changes on the primary.");
             }
         }
     }
     
+    private void dispatch(String choice) {
+        switch (choice) {
+            case "1": addBook(); break;
+            case "2": addPatron(); break;
+            case "3": searchBooks(); break;
+            case "4": checkoutBook(); break;
+            case "5": returnBook(); break;
+            case "6": viewAllBooks(); break;
+            case "7": viewAllPatrons(); break;
+            case "8": viewStatistics(); break;
+            case "9": testDesignPatterns(); break;
+            case "10": viewMetrics(); break;
+            case "11": manageHolds(); break;
+            case "0": exit(); break;
+            default: System.out.println(" Invalid choice. Please try again.");
+        }
+    }
+    
     private void displayMenu() {
         System.out.println("\n===== MAIN MENU =====");
         System.out.println("1. Add New Book");
@@ -75,6 +191,8 @@ public class LibraryCLI {
         System.out.println("7. View All Patrons");
         System.out.println("8. View Statistics");
         System.out.println("9. Test Design Patterns");
+        System.out.println("10. View Performance Metrics");
+        System.out.println("11. Manage Holds");
         System.out.println("0. Exit");
         System.out.print("Choose an option: ");
     }
@@ -185,6 +303,7 @@ public class LibraryCLI {
                     System.out.print("Enter ISBN to search: ");
                     String isbn = scanner.nextLine();
                     results = library.searchByIsbn(isbn)
+                            .or(() -> library.searchByNormalizedIsbn(isbn))
                             .map(List::of)
                             .orElse(List.of());
                     break;
@@ -238,6 +357,7 @@ public class LibraryCLI {
                 System.out.println(" Checkout failed. Possible reasons:");
                 System.out.println("   - Patron or book not found");
                 System.out.println("   - Book already borrowed");
+                System.out.println("   - Book is on hold for another patron");
                 System.out.println("   - Patron has reached borrowing limit (5 books)");
             }
             
@@ -323,6 +443,91 @@ public class LibraryCLI {
         }
     }
     
+    private void viewMetrics() {
+        System.out.println("\n===== PERFORMANCE METRICS =====");
+        MetricsSnapshot snapshot = library.getMetrics().snapshot();
+        System.out.printf("%-16s %8s %8s %10s %10s %10s %10s%n",
+            "Operation", "Calls", "Rejected", "Mean(us)", "P50(us)", "P99(us)", "Max(us)");
+        for (OperationStats stats : snapshot.getOperations()) {
+            HistogramSnapshot latency = stats.getLatency();
+            System.out.printf("%-16s %8d %8d %10.1f %10.1f %10.1f %10.1f%n",
+                stats.getOperation().getMetricName(), stats.getCalls(), stats.getRejections(),
+                latency.getMeanNanos() / 1000.0, latency.getValueAtPercentile(50) / 1000.0,
+                latency.getValueAtPercentile(99) / 1000.0, latency.getMaxNanos() / 1000.0);
+        }
+        if (library.getQueryCache() != null) {
+            System.out.println("\n " + library.getQueryCache().getStats());
+        }
+        if (replica != null) {
+            System.out.println(" " + replica.getStatus());
+        }
+        if (replicationPrimary != null) {
+            System.out.println(" Replica lag (entries): " + replicationPrimary.getReplicaLag());
+        }
+        
+        System.out.print("\nShow Prometheus export? (y/n): ");
+        if (scanner.nextLine().trim().equalsIgnoreCase("y")) {
+            System.out.print(snapshot.toPrometheus());
+        }
+    }
+    
+    private void manageHolds() {
+        System.out.println("\n===== MANAGE HOLDS =====");
+        System.out.println("1. Place Hold");
+        System.out.println("2. Cancel Hold");
+        System.out.println("3. View Patron Holds");
+        System.out.print("Choose option: ");
+        
+        String option = scanner.nextLine();
+        
+        try {
+            System.out.print("Enter Patron ID: ");
+            String patronId = scanner.nextLine();
+            
+            switch (option) {
+                case "1": {
+                    System.out.print("Enter Book ISBN: ");
+                    String isbn = scanner.nextLine();
+                    Optional<Hold> hold = library.placeHold(patronId, isbn);
+                    if (hold.isPresent()) {
+                        System.out.println(" Hold placed: " + hold.get());
+                        System.out.println(" Patrons waiting for this book: " + library.getHoldQueueLength(isbn));
+                    } else {
+                        System.out.println(" Hold failed. Patron or book not found, or the patron");
+                        System.out.println(" already has this book on loan or on hold.");
+                    }
+                    break;
+                }
+                    
+                case "2": {
+                    System.out.print("Enter Book ISBN: ");
+                    String isbn = scanner.nextLine();
+                    if (library.cancelHold(patronId, isbn)) {
+                        System.out.println(" Hold cancelled.");
+                    } else {
+                        System.out.println(" No active hold found.");
+                    }
+                    break;
+                }
+                    
+                case "3":
+                    List<Hold> holds = library.getHolds(patronId);
+                    if (holds.isEmpty()) {
+                        System.out.println(" No active holds.");
+                    } else {
+                        holds.forEach(hold -> System.out.println(" - " + hold));
+                    }
+                    break;
+                    
+                default:
+                    System.out.println(" Invalid option.");
+            }
+            
+        } catch (Exception e) {
+            System.out.println(" Error managing holds: " + e.getMessage());
+        }
+    }
+    
     private void testDesignPatterns() {
         System.out.println("\n===== DESIGN PATTERNS DEMO =====");
         
@@ -361,6 +566,28 @@ public class LibraryCLI {
         System.out.println("Goodbye!");
         running = false;
         scanner.close();
+        if (holdExpiry != null) {
+            holdExpiry.close();
+        }
+        if (httpServer != null) {
+            httpServer.close();
+        }
+        if (replica != null) {
+            replica.close();
+        }
+        if (replicationPrimary != null) {
+            replicationPrimary.close();
+        }
+        if (library.getNotificationDispatcher() != null) {
+            library.getNotificationDispatcher().close();
+        }
+        if (persistence != null) {
+            try {
+                persistence.close();
+            } catch (IOException e) {
+                System.out.println(" Error closing journal: " + e.getMessage());
+            }
+        }
     }
     
     public static void main(String[] args) {
@@ -0,0 +1,48 @@
+package com.library.metrics;
+
+public class HistogramSnapshot {
+    private final long[] counts;
+    private final long count;
+    private final long totalNanos;
+    private final long maxNanos;
+
+    HistogramSnapshot(long[] counts, long count, long totalNanos, long maxNanos) {
+        this.counts = counts;
+        this.count = count;
+        this.totalNanos = totalNanos;
+        this.maxNanos = maxNanos;
+    }
+
+    public long getCount() { return count; }
+    public long getTotalNanos() { return totalNanos; }
+    public long getMaxNanos() { return maxNanos; }
+
+    public double getMeanNanos() {
+        return count == 0 ? 0 : (double) totalNanos / count;
+    }
+
+    // The smallest bucket bound that at least the given percentage of
+    // recorded values fall under, capped at the observed maximum.
+    public long getValueAtPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < counts.length; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank) {
+                return Math.min(LatencyHistogram.highestValueIn(bucket), maxNanos);
+            }
+        }
+        return maxNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("HistogramSnapshot{Count=%d, MeanMicros=%.1f, P50Micros=%.1f, P99Micros=%.1f, "
+                        + "MaxMicros=%.1f}",
+                count, getMeanNanos() / 1000.0, getValueAtPercentile(50) / 1000.0,
+                getValueAtPercentile(99) / 1000.0, maxNanos / 1000.0);
+    }
+}
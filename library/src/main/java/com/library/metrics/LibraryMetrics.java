@@ -0,0 +1,81 @@
+package com.library.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+// Per-operation call counts, rejection counts and latency histograms for
+// Library. Every operation owns its recorders from construction, so
+// recording is an array lookup plus lock-free updates with no allocation.
+public class LibraryMetrics {
+    public enum Operation {
+        CHECKOUT("checkout"),
+        RETURN("return"),
+        CHECKOUT_BATCH("checkout_batch"),
+        RETURN_BATCH("return_batch"),
+        PLACE_HOLD("place_hold"),
+        SEARCH_TITLE("search_title"),
+        SEARCH_AUTHOR("search_author"),
+        SEARCH_ISBN("search_isbn"),
+        SEARCH_STRATEGY("search_strategy"),
+        SEARCH_FILTER("search_filter"),
+        SEARCH_RANKED("search_ranked"),
+        AUTOCOMPLETE("autocomplete"),
+        STATISTICS("statistics");
+
+        private final String metricName;
+
+        Operation(String metricName) {
+            this.metricName = metricName;
+        }
+
+        public String getMetricName() {
+            return metricName;
+        }
+    }
+
+    private static final Operation[] OPERATIONS = Operation.values();
+
+    private final LatencyHistogram[] latencies;
+    private final LongAdder[] rejections;
+
+    public LibraryMetrics() {
+        this.latencies = new LatencyHistogram[OPERATIONS.length];
+        this.rejections = new LongAdder[OPERATIONS.length];
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            latencies[i] = new LatencyHistogram();
+            rejections[i] = new LongAdder();
+        }
+    }
+
+    // Records a call that started at the given System.nanoTime() reading.
+    public void record(Operation operation, long startNanos) {
+        latencies[operation.ordinal()].record(System.nanoTime() - startNanos);
+    }
+
+    // As record, also counting the call as rejected when it had no effect,
+    // such as a checkout of an unavailable book.
+    public void record(Operation operation, long startNanos, boolean succeeded) {
+        record(operation, startNanos);
+        if (!succeeded) {
+            rejections[operation.ordinal()].increment();
+        }
+    }
+
+    // As record, for a batch call with the given number of rejected items.
+    public void record(Operation operation, long startNanos, int rejectedItems) {
+        record(operation, startNanos);
+        if (rejectedItems > 0) {
+            rejections[operation.ordinal()].add(rejectedItems);
+        }
+    }
+
+    public MetricsSnapshot snapshot() {
+        List<OperationStats> operations = new ArrayList<>(OPERATIONS.length);
+        for (Operation operation : OPERATIONS) {
+            operations.add(new OperationStats(operation, latencies[operation.ordinal()].snapshot(),
+                    rejections[operation.ordinal()].sum()));
+        }
+        return new MetricsSnapshot(operations);
+    }
+}
@@ -0,0 +1,64 @@
+package com.library.metrics;
+
+import java.util.Collections;
+import java.util.List;
+
+public class MetricsSnapshot {
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final List<OperationStats> operations;
+
+    MetricsSnapshot(List<OperationStats> operations) {
+        this.operations = Collections.unmodifiableList(operations);
+    }
+
+    public List<OperationStats> getOperations() {
+        return operations;
+    }
+
+    public OperationStats get(LibraryMetrics.Operation operation) {
+        return operations.get(operation.ordinal());
+    }
+
+    // Prometheus text exposition format: latencies as a summary in seconds
+    // with fixed quantiles, rejections as a counter.
+    public String toPrometheus() {
+        StringBuilder text = new StringBuilder();
+        text.append("# HELP library_operation_duration_seconds Latency of Library operations.\n");
+        text.append("# TYPE library_operation_duration_seconds summary\n");
+        for (OperationStats stats : operations) {
+            String name = stats.getOperation().getMetricName();
+            HistogramSnapshot latency = stats.getLatency();
+            for (double quantile : QUANTILES) {
+                text.append("library_operation_duration_seconds{operation=\"").append(name)
+                        .append("\",quantile=\"").append(quantile).append("\"} ")
+                        .append(seconds(latency.getValueAtPercentile(quantile * 100))).append('\n');
+            }
+            text.append("library_operation_duration_seconds_sum{operation=\"").append(name).append("\"} ")
+                    .append(seconds(latency.getTotalNanos())).append('\n');
+            text.append("library_operation_duration_seconds_count{operation=\"").append(name).append("\"} ")
+                    .append(latency.getCount()).append('\n');
+        }
+        text.append("# HELP library_operation_rejections_total Library operations that returned without effect.\n");
+        text.append("# TYPE library_operation_rejections_total counter\n");
+        for (OperationStats stats : operations) {
+            text.append("library_operation_rejections_total{operation=\"")
+                    .append(stats.getOperation().getMetricName()).append("\"} ")
+                    .append(stats.getRejections()).append('\n');
+        }
+        return text.toString();
+    }
+
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / 1e9);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (OperationStats stats : operations) {
+            text.append(stats).append('\n');
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,27 @@
+package com.library.metrics;
+
+public class OperationStats {
+    private final LibraryMetrics.Operation operation;
+    private final HistogramSnapshot latency;
+    private final long rejections;
+
+    public OperationStats(LibraryMetrics.Operation operation, HistogramSnapshot latency, long rejections) {
+        this.operation = operation;
+        this.latency = latency;
+        this.rejections = rejections;
+    }
+
+    public LibraryMetrics.Operation getOperation() { return operation; }
+    public HistogramSnapshot getLatency() { return latency; }
+    public long getCalls() { return latency.getCount(); }
+    public long getRejections() { return rejections; }
+
+    @Override
+    public String toString() {
+        return String.format("OperationStats{Operation=%s, Calls=%d, Rejected=%d, MeanMicros=%.1f, "
+                        + "P50Micros=%.1f, P99Micros=%.1f, MaxMicros=%.1f}",
+                operation.getMetricName(), getCalls(), rejections, latency.getMeanNanos() / 1000.0,
+                latency.getValueAtPercentile(50) / 1000.0, latency.getValueAtPercentile(99) / 1000.0,
+                latency.getMaxNanos() / 1000.0);
+    }
+}
@@ -5,32 +5,56 @@ public class Book {
     private final String isbn;
     private String title;
     private String author;
+    private String foldedTitle;
+    private String foldedAuthor;
     private int publicationYear;
-    private boolean available;
+    private volatile boolean available;
+    private int ordinal = -1;
     
     public Book(String isbn, String title, String author, int publicationYear) {
         this.isbn = isbn;
         this.title = title;
         this.author = author;
+        this.foldedTitle = fold(title);
+        this.foldedAuthor = fold(author);
         this.publicationYear = publicationYear;
         this.available = true;
     }
     
+    // Lower-cased once per change, so case-insensitive searches can compare
+    // against the stored form instead of folding every candidate per query.
+    public static String fold(String text) {
+        return text == null ? "" : text.toLowerCase();
+    }
+    
     // Getters and setters
     public String getIsbn() { return isbn; }
     public String getTitle() { return title; }
-    public void setTitle(String title) { this.title = title; }
+    public void setTitle(String title) {
+        this.title = title;
+        this.foldedTitle = fold(title);
+    }
     public String getAuthor() { return author; }
-    public void setAuthor(String author) { this.author = author; }
+    public void setAuthor(String author) {
+        this.author = author;
+        this.foldedAuthor = fold(author);
+    }
+    public String getFoldedTitle() { return foldedTitle; }
+    public String getFoldedAuthor() { return foldedAuthor; }
     public int getPublicationYear() { return publicationYear; }
     public void setPublicationYear(int publicationYear) { this.publicationYear = publicationYear; }
     public boolean isAvailable() { return available; }
     public void setAvailable(boolean available) { this.available = available; }
     
+    // Dense internal ID assigned by the catalog holding the book, -1 before
+    // it is added. Ordinals of removed books may be given to new ones.
+    public int getOrdinal() { return ordinal; }
+    public void setOrdinal(int ordinal) { this.ordinal = ordinal; }
+    
     @Override
     public String toString() {
         return String.format("Book{ISBN='%s', Title='%s', Author='%s', Year=%d, Available=%s}",
-                isbn, title, author, publicationYear, available);
+                getIsbn(), getTitle(), getAuthor(), getPublicationYear(), isAvailable());
     }
     
     @Override
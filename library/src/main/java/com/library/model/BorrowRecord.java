@@ -0,0 +1,117 @@
+package com.library.model;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+public class BorrowRecord {
+    private static final String RECORD_PREFIX = "REC-";
+
+    // Record IDs of the form REC-<n> are kept as n; only IDs in any other
+    // form, such as from imported data, keep their string.
+    private final long recordNumber;
+    private final String foreignRecordId;
+    private final String patronId;
+    private final String bookIsbn;
+    private final int patronOrdinal;
+    private final int bookOrdinal;
+    private final LocalDate borrowDate;
+    private volatile LocalDate returnDate;
+    private final LocalDate dueDate;
+    
+    public BorrowRecord(String recordId, String patronId, String bookIsbn, 
+                       LocalDate borrowDate, LocalDate dueDate) {
+        this(parseRecordNumber(recordId), recordId, patronId, bookIsbn, -1, -1, borrowDate, dueDate);
+    }
+    
+    // Shares the ID strings of the patron and book and records their ordinals,
+    // so the library can resolve both without hashing.
+    public BorrowRecord(long recordNumber, Patron patron, Book book, LocalDate borrowDate, LocalDate dueDate) {
+        this(recordNumber, null, patron.getPatronId(), book.getIsbn(), patron.getOrdinal(), book.getOrdinal(),
+                borrowDate, dueDate);
+    }
+    
+    // A loan to a patron registered at another library, who has no ordinal here.
+    public BorrowRecord(long recordNumber, String patronId, Book book, LocalDate borrowDate, LocalDate dueDate) {
+        this(recordNumber, null, patronId, book.getIsbn(), -1, book.getOrdinal(), borrowDate, dueDate);
+    }
+    
+    private BorrowRecord(long recordNumber, String recordId, String patronId, String bookIsbn,
+                         int patronOrdinal, int bookOrdinal, LocalDate borrowDate, LocalDate dueDate) {
+        this.recordNumber = recordNumber;
+        this.foreignRecordId = recordNumber < 0 ? recordId : null;
+        this.patronId = patronId;
+        this.bookIsbn = bookIsbn;
+        this.patronOrdinal = patronOrdinal;
+        this.bookOrdinal = bookOrdinal;
+        this.borrowDate = borrowDate;
+        this.dueDate = dueDate;
+    }
+    
+    // A copy tied to the library's own patron and, when still catalogued,
+    // book; used when restoring records read back from storage.
+    public BorrowRecord boundTo(Patron patron, Book book) {
+        BorrowRecord bound = new BorrowRecord(recordNumber, foreignRecordId, patron.getPatronId(),
+                book != null ? book.getIsbn() : bookIsbn, patron.getOrdinal(),
+                book != null ? book.getOrdinal() : -1, borrowDate, dueDate);
+        bound.returnDate = returnDate;
+        return bound;
+    }
+    
+    private static long parseRecordNumber(String recordId) {
+        if (recordId == null || !recordId.startsWith(RECORD_PREFIX)) {
+            return -1;
+        }
+        try {
+            long number = Long.parseLong(recordId.substring(RECORD_PREFIX.length()));
+            return number >= 0 && recordId.equals(RECORD_PREFIX + number) ? number : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+    
+    // Getters
+    public String getRecordId() {
+        return foreignRecordId != null ? foreignRecordId : RECORD_PREFIX + recordNumber;
+    }
+    // -1 when the record ID is not of the form REC-<n>.
+    public long getRecordNumber() { return recordNumber; }
+    public String getPatronId() { return patronId; }
+    public String getBookIsbn() { return bookIsbn; }
+    // -1 when the record was not created or restored by a library.
+    public int getPatronOrdinal() { return patronOrdinal; }
+    public int getBookOrdinal() { return bookOrdinal; }
+    public LocalDate getBorrowDate() { return borrowDate; }
+    public LocalDate getReturnDate() { return returnDate; }
+    public LocalDate getDueDate() { return dueDate; }
+    
+    public void setReturnDate(LocalDate returnDate) {
+        this.returnDate = returnDate;
+    }
+    
+    public boolean isOverdue() {
+        return isOverdue(LocalDate.now());
+    }
+    
+    public boolean isOverdue(LocalDate today) {
+        return returnDate == null && today.isAfter(dueDate);
+    }
+    
+    public long getDaysOverdue() {
+        return getDaysOverdue(LocalDate.now());
+    }
+    
+    public long getDaysOverdue(LocalDate today) {
+        if (!isOverdue(today)) return 0;
+        return ChronoUnit.DAYS.between(dueDate, today);
+    }
+    
+    public boolean isActive() {
+        return returnDate == null;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("BorrowRecord{BookISBN='%s', PatronID='%s', Borrowed=%s, Due=%s, Returned=%s, Overdue=%s}",
+                bookIsbn, patronId, borrowDate, dueDate, returnDate, isOverdue());
+    }
+}
@@ -0,0 +1,123 @@
+package com.library.model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Set;
+
+public class Patron 
+{
+	private final String patronId;
+	private String name;
+	private String email;
+	private String phone;
+	// Both are replaced rather than changed, so readers get them as they are
+	// without locking or copying.
+	private volatile RecordList borrowingHistory;
+	private volatile Set<BorrowRecord> activeLoans;
+	private volatile int activeLoanCount;
+	// Loans held at other branches, plus slots reserved for ones being made.
+	private volatile int remoteLoanCount;
+	private int ordinal = -1;
+
+	public Patron(String patronId, String name, String email, String phone) {
+		this.patronId = patronId;
+		this.name = name;
+		this.email = email;
+		this.phone = phone;
+		this.borrowingHistory = new RecordList(new BorrowRecord[0], 0);
+		this.activeLoans = Collections.emptySet();
+	}
+
+	// Getters and setters
+	public String getPatronId() { return patronId; }
+	public String getName() { return name; }
+	public void setName(String name) { this.name = name; }
+	public String getEmail() { return email; }
+	public void setEmail(String email) { this.email = email; }
+	public String getPhone() { return phone; }
+	public void setPhone(String phone) { this.phone = phone; }
+	// Read-only views that later checkouts and returns do not change.
+	public List<BorrowRecord> getBorrowingHistory() { return borrowingHistory; }
+	public Set<BorrowRecord> getActiveLoans() { return activeLoans; }
+	// Dense internal ID assigned when the patron joins a library, -1 before.
+	public int getOrdinal() { return ordinal; }
+	public void setOrdinal(int ordinal) { this.ordinal = ordinal; }
+
+	// History is append-only: the new record goes into the shared array past
+	// the end of every published view, so appending copies nothing but the
+	// occasional growth. Active loans are few, as the borrowing limit caps
+	// them, and are copied on change.
+	public synchronized void addBorrowRecord(BorrowRecord record) {
+		RecordList history = borrowingHistory;
+		BorrowRecord[] records = history.records;
+		if (history.size == records.length) {
+			records = Arrays.copyOf(records, Math.max(4, records.length * 2));
+		}
+		records[history.size] = record;
+		borrowingHistory = new RecordList(records, history.size + 1);
+		if (record.isActive() && !activeLoans.contains(record)) {
+			Set<BorrowRecord> loans = new LinkedHashSet<>(activeLoans);
+			loans.add(record);
+			activeLoans = Collections.unmodifiableSet(loans);
+			activeLoanCount++;
+		}
+	}
+
+	public synchronized boolean completeBorrowRecord(BorrowRecord record) {
+		if (!activeLoans.contains(record)) {
+			return false;
+		}
+		Set<BorrowRecord> loans = new LinkedHashSet<>(activeLoans);
+		loans.remove(record);
+		activeLoans = Collections.unmodifiableSet(loans);
+		activeLoanCount--;
+		return true;
+	}
+
+	public synchronized void adjustRemoteLoans(int delta) {
+		remoteLoanCount = Math.max(0, remoteLoanCount + delta);
+	}
+
+	public int getRemoteLoanCount() {
+		return remoteLoanCount;
+	}
+
+	// Includes remote loans, which count against the borrowing limit too.
+	public int getCurrentlyBorrowedCount() {
+		return activeLoanCount + remoteLoanCount;
+	}
+
+	// The first size records of an array that is only ever written past them.
+	private static final class RecordList extends AbstractList<BorrowRecord> implements RandomAccess {
+		private final BorrowRecord[] records;
+		private final int size;
+
+		RecordList(BorrowRecord[] records, int size) {
+			this.records = records;
+			this.size = size;
+		}
+
+		@Override
+		public BorrowRecord get(int index) {
+			if (index < 0 || index >= size) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+			}
+			return records[index];
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Patron{ID='%s', Name='%s', Email='%s', Phone='%s', CurrentlyBorrowed=%d}", 
+				patronId, name, email, phone, getCurrentlyBorrowedCount());
+	}
+}
\ No newline at end of file
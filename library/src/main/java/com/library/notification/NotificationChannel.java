@@ -0,0 +1,12 @@
+package com.library.notification;
+
+import com.library.model.Book;
+import com.library.patterns.BookObserver;
+
+import java.util.List;
+
+// Delivers one event to a batch of observers of the same type, so a channel
+// can pay its per-delivery cost (an I/O call, a message send) once per batch.
+public interface NotificationChannel<T extends BookObserver> {
+    void deliver(Book book, String message, List<T> observers);
+}
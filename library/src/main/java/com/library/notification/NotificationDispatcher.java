@@ -0,0 +1,224 @@
+package com.library.notification;
+
+import com.library.model.Book;
+import com.library.patterns.BookObserver;
+import com.library.patterns.ObservableBook;
+import com.library.patterns.PatronNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Moves observer delivery off the publishing thread. Events wait in a bounded
+// queue; a single dispatch thread groups each event's observers by type into
+// batches and hands them to the worker executor, with at most twice the
+// worker count of batches outstanding. A full queue rejects the event after
+// the publish timeout rather than stalling the caller indefinitely.
+public class NotificationDispatcher implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(NotificationDispatcher.class);
+    private static final NotificationChannel<BookObserver> DIRECT = (book, message, observers) -> {
+        for (BookObserver observer : observers) {
+            observer.update(book, message);
+        }
+    };
+
+    private final BlockingQueue<Event> events;
+    private final ExecutorService workers;
+    private final Semaphore inFlight;
+    private final int batchSize;
+    private final long publishTimeoutMillis;
+    private final Map<Class<?>, NotificationChannel<?>> channels;
+    private final LongAdder published;
+    private final LongAdder rejected;
+    private final LongAdder delivered;
+    private final LongAdder failed;
+    private final LongAdder batches;
+    private final LongAdder deliveryNanos;
+    private Thread dispatchThread;
+    private volatile boolean closed;
+
+    public NotificationDispatcher() {
+        this(10_000, 256, Runtime.getRuntime().availableProcessors(), 0);
+    }
+
+    // workerThreads only sizes the platform-thread pool; with virtual threads
+    // the in-flight limit (twice workerThreads) is the only bound.
+    public NotificationDispatcher(int queueCapacity, int batchSize, int workerThreads, long publishTimeoutMillis) {
+        this.events = new ArrayBlockingQueue<>(queueCapacity);
+        this.workers = newWorkerExecutor(workerThreads);
+        this.inFlight = new Semaphore(workerThreads * 2);
+        this.batchSize = batchSize;
+        this.publishTimeoutMillis = publishTimeoutMillis;
+        this.channels = new ConcurrentHashMap<>();
+        this.published = new LongAdder();
+        this.rejected = new LongAdder();
+        this.delivered = new LongAdder();
+        this.failed = new LongAdder();
+        this.batches = new LongAdder();
+        this.deliveryNanos = new LongAdder();
+        registerChannel(PatronNotification.class, new PatronConsoleChannel());
+    }
+
+    // Uses a virtual thread per batch when the runtime has them (Java 21+);
+    // the project targets Java 11, so the factory is looked up reflectively.
+    private static ExecutorService newWorkerExecutor(int threads) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger counter = new AtomicInteger();
+            return Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "library-notify-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public <T extends BookObserver> void registerChannel(Class<T> observerType, NotificationChannel<? super T> channel) {
+        channels.put(observerType, channel);
+    }
+
+    // Returns false when the dispatcher is closed or the queue stayed full for
+    // the whole publish timeout.
+    public boolean publish(ObservableBook book, String message) {
+        if (closed) {
+            rejected.increment();
+            return false;
+        }
+        ensureStarted();
+        boolean accepted;
+        try {
+            accepted = events.offer(new Event(book, message), publishTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            accepted = false;
+        }
+        if (accepted) {
+            published.increment();
+        } else {
+            rejected.increment();
+            logger.warn("Notification queue full, dropped event for book {}", book.getBook().getIsbn());
+        }
+        return accepted;
+    }
+
+    private synchronized void ensureStarted() {
+        if (dispatchThread == null) {
+            dispatchThread = new Thread(this::dispatchLoop, "library-notify-dispatch");
+            dispatchThread.setDaemon(true);
+            dispatchThread.start();
+        }
+    }
+
+    private void dispatchLoop() {
+        try {
+            while (!closed || !events.isEmpty()) {
+                Event event = events.poll(100, TimeUnit.MILLISECONDS);
+                if (event != null) {
+                    dispatch(event);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void dispatch(Event event) throws InterruptedException {
+        Map<Class<?>, List<BookObserver>> byType = new LinkedHashMap<>();
+        for (BookObserver observer : event.book.getObservers()) {
+            byType.computeIfAbsent(observer.getClass(), type -> new ArrayList<>()).add(observer);
+        }
+        Book book = event.book.getBook();
+        for (Map.Entry<Class<?>, List<BookObserver>> group : byType.entrySet()) {
+            NotificationChannel<BookObserver> channel = channelFor(group.getKey());
+            List<BookObserver> observers = group.getValue();
+            for (int from = 0; from < observers.size(); from += batchSize) {
+                List<BookObserver> batch = observers.subList(from, Math.min(from + batchSize, observers.size()));
+                inFlight.acquire();
+                try {
+                    workers.execute(() -> deliver(channel, book, event.message, batch));
+                } catch (RuntimeException e) {
+                    inFlight.release();
+                    failed.add(batch.size());
+                    logger.error("Could not schedule notification batch", e);
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private NotificationChannel<BookObserver> channelFor(Class<?> observerType) {
+        NotificationChannel<?> channel = channels.get(observerType);
+        return channel != null ? (NotificationChannel<BookObserver>) channel : DIRECT;
+    }
+
+    private void deliver(NotificationChannel<BookObserver> channel, Book book, String message,
+                         List<BookObserver> batch) {
+        long start = System.nanoTime();
+        try {
+            channel.deliver(book, message, batch);
+            delivered.add(batch.size());
+        } catch (RuntimeException e) {
+            failed.add(batch.size());
+            logger.error("Notification batch for book {} failed", book.getIsbn(), e);
+        } finally {
+            batches.increment();
+            deliveryNanos.add(System.nanoTime() - start);
+            inFlight.release();
+        }
+    }
+
+    public NotificationStats getStats() {
+        return new NotificationStats(published.sum(), rejected.sum(), delivered.sum(), failed.sum(),
+                batches.sum(), deliveryNanos.sum(), events.size());
+    }
+
+    // Stops accepting events, delivers everything already queued and waits up
+    // to the given time for the outstanding batches to finish.
+    public boolean close(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        closed = true;
+        Thread thread;
+        synchronized (this) {
+            thread = dispatchThread;
+        }
+        if (thread != null) {
+            TimeUnit.NANOSECONDS.timedJoin(thread, Math.max(1, deadline - System.nanoTime()));
+        }
+        workers.shutdown();
+        boolean drained = workers.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        logger.info("Closed notification dispatcher: {}", getStats());
+        return drained;
+    }
+
+    @Override
+    public void close() {
+        try {
+            close(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Event {
+        private final ObservableBook book;
+        private final String message;
+
+        private Event(ObservableBook book, String message) {
+            this.book = book;
+            this.message = message;
+        }
+    }
+}
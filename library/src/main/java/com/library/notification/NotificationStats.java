@@ -0,0 +1,46 @@
+package com.library.notification;
+
+public class NotificationStats {
+    private final long publishedEvents;
+    private final long rejectedEvents;
+    private final long deliveredNotifications;
+    private final long failedNotifications;
+    private final long batches;
+    private final long deliveryNanos;
+    private final int queuedEvents;
+
+    public NotificationStats(long publishedEvents, long rejectedEvents, long deliveredNotifications,
+                             long failedNotifications, long batches, long deliveryNanos, int queuedEvents) {
+        this.publishedEvents = publishedEvents;
+        this.rejectedEvents = rejectedEvents;
+        this.deliveredNotifications = deliveredNotifications;
+        this.failedNotifications = failedNotifications;
+        this.batches = batches;
+        this.deliveryNanos = deliveryNanos;
+        this.queuedEvents = queuedEvents;
+    }
+
+    public long getPublishedEvents() { return publishedEvents; }
+    public long getRejectedEvents() { return rejectedEvents; }
+    public long getDeliveredNotifications() { return deliveredNotifications; }
+    public long getFailedNotifications() { return failedNotifications; }
+    public long getBatches() { return batches; }
+    public long getDeliveryNanos() { return deliveryNanos; }
+    public int getQueuedEvents() { return queuedEvents; }
+
+    public double getNotificationsPerBatch() {
+        return batches == 0 ? 0 : (double) deliveredNotifications / batches;
+    }
+
+    public double getDeliveryNanosPerNotification() {
+        return deliveredNotifications == 0 ? 0 : (double) deliveryNanos / deliveredNotifications;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("NotificationStats{Published=%d, Rejected=%d, Queued=%d, Delivered=%d, Failed=%d, "
+                        + "Batches=%d, PerBatch=%.1f, MicrosPerNotification=%.1f}",
+                publishedEvents, rejectedEvents, queuedEvents, deliveredNotifications, failedNotifications,
+                batches, getNotificationsPerBatch(), getDeliveryNanosPerNotification() / 1000.0);
+    }
+}
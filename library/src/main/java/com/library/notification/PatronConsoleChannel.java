@@ -0,0 +1,19 @@
+package com.library.notification;
+
+import com.library.model.Book;
+import com.library.patterns.PatronNotification;
+
+import java.util.List;
+
+// Writes a whole batch of patron notifications with a single console call.
+public class PatronConsoleChannel implements NotificationChannel<PatronNotification> {
+    @Override
+    public void deliver(Book book, String message, List<PatronNotification> observers) {
+        String suffix = ": Book '" + book.getTitle() + "' - " + message + System.lineSeparator();
+        StringBuilder out = new StringBuilder(observers.size() * (suffix.length() + 32));
+        for (PatronNotification observer : observers) {
+            out.append(" Notification for Patron ").append(observer.getPatronId()).append(suffix);
+        }
+        System.out.print(out);
+    }
+}
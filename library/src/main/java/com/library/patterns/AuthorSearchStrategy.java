@@ -0,0 +1,41 @@
+package com.library.patterns;
+
+import com.library.model.Book;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+public class AuthorSearchStrategy implements SearchStrategy 
+{
+    @Override
+    public List<Book> search(List<Book> books, String query) {
+        String folded = Book.fold(query);
+        List<Book> results = new ArrayList<>();
+        for (Book book : books) {
+            if (book.getFoldedAuthor().contains(folded)) {
+                results.add(book);
+            }
+        }
+        return results;
+    }
+    
+    @Override
+    public boolean matches(Book book, String query) {
+        return book.getFoldedAuthor().contains(Book.fold(query));
+    }
+    
+    @Override
+    public String normalize(String query) {
+        return Book.fold(query);
+    }
+    
+    @Override
+    public boolean dependsOnAvailability() {
+        return false;
+    }
+    
+    @Override
+    public Set<String> cacheTerms(String normalizedQuery) {
+        return CacheTerms.containing(CacheTerms.AUTHOR, normalizedQuery);
+    }
+}
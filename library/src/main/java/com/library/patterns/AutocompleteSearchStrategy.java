@@ -0,0 +1,80 @@
+package com.library.patterns;
+
+import com.library.index.TernarySearchTrie;
+import com.library.model.Book;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Type-ahead search: books whose field starts with the query come first, and
+// when there are fewer than limit of them the rest is filled with books whose
+// field starts within maxEdits typos of the query. field is CacheTerms.TITLE
+// or CacheTerms.AUTHOR, whichever the trie covers.
+public class AutocompleteSearchStrategy implements SearchStrategy {
+    private final String field;
+    private final TernarySearchTrie trie;
+    private final int maxEdits;
+    private final int limit;
+
+    public AutocompleteSearchStrategy(String field, TernarySearchTrie trie, int maxEdits, int limit) {
+        this.field = field;
+        this.trie = trie;
+        this.maxEdits = maxEdits;
+        this.limit = limit;
+    }
+
+    public List<Book> search(String query) {
+        String prefix = Book.fold(query);
+        List<Book> exact = trie.complete(prefix, limit);
+        if (exact.size() >= limit || maxEdits == 0) {
+            return exact;
+        }
+        Set<Book> results = new LinkedHashSet<>(exact);
+        for (Book book : trie.completeFuzzy(prefix, maxEdits, limit)) {
+            if (results.size() >= limit) {
+                break;
+            }
+            results.add(book);
+        }
+        return new ArrayList<>(results);
+    }
+
+    @Override
+    public List<Book> search(List<Book> books, String query) {
+        Set<Book> matches = new HashSet<>(search(query));
+        return books.stream()
+                .filter(matches::contains)
+                .collect(Collectors.toList());
+    }
+
+    // True when the book is a candidate completion, whether or not it would
+    // make the limited result list.
+    @Override
+    public boolean matches(Book book, String query) {
+        return trie.matches(book, Book.fold(query), maxEdits);
+    }
+
+    @Override
+    public String normalize(String query) {
+        return Book.fold(query);
+    }
+
+    @Override
+    public boolean dependsOnAvailability() {
+        return false;
+    }
+
+    @Override
+    public String cacheKey() {
+        return "autocomplete:" + field + ":" + maxEdits + ":" + limit;
+    }
+
+    @Override
+    public Set<String> cacheTerms(String normalizedQuery) {
+        return CacheTerms.fuzzyPrefix(field, normalizedQuery, maxEdits);
+    }
+}
@@ -0,0 +1,63 @@
+package com.library.patterns;
+
+import com.library.ingest.DelimitedFields;
+import com.library.model.Book;
+
+import java.util.List;
+
+public class BookFactory {
+    
+    public enum BookType {
+        STANDARD,
+        REFERENCE, 
+        BESTSELLER 
+    }
+    
+    public static Book createBook(BookType type, String isbn, String title, 
+                                 String author, int publicationYear) {
+        switch (type) {
+            case REFERENCE:
+                Book referenceBook = new Book(isbn, title, author, publicationYear);
+                referenceBook.setAvailable(false);
+                return referenceBook;
+                
+            case BESTSELLER:
+                return new Book(isbn, title + " [Bestseller]", author, publicationYear);
+                
+            case STANDARD:
+            default:
+                return new Book(isbn, title, author, publicationYear);
+        }
+    }
+    
+    public static Book createBookFromData(String data) {
+        return createBookFromFields(DelimitedFields.split(data, ','));
+    }
+    
+    // Expects ISBN, title, author and publication year, optionally followed by
+    // a BookType name.
+    public static Book createBookFromFields(List<String> fields) {
+        if (fields.size() < 4) {
+            throw new IllegalArgumentException("Invalid book data format");
+        }
+        String isbn = fields.get(0).trim();
+        if (isbn.isEmpty()) {
+            throw new IllegalArgumentException("Missing ISBN");
+        }
+        int publicationYear;
+        try {
+            publicationYear = Integer.parseInt(fields.get(3).trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid publication year: " + fields.get(3).trim());
+        }
+        BookType type = BookType.STANDARD;
+        if (fields.size() > 4 && !fields.get(4).trim().isEmpty()) {
+            try {
+                type = BookType.valueOf(fields.get(4).trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown book type: " + fields.get(4).trim());
+            }
+        }
+        return createBook(type, isbn, fields.get(1).trim(), fields.get(2).trim(), publicationYear);
+    }
+}
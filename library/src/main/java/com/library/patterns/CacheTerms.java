@@ -0,0 +1,69 @@
+package com.library.patterns;
+
+import com.library.model.Book;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+// Terms that let a result cache find the entries a catalog change can affect
+// without checking every entry. A book's terms are its ISBN and every folded
+// title and author substring of up to three characters (including the empty
+// one); a query's terms must include at least one term of every book it can
+// match. An empty set of query terms means any book may match.
+public final class CacheTerms {
+    public static final String TITLE = "t";
+    public static final String AUTHOR = "a";
+    private static final String ISBN = "i";
+    private static final int SUBSTRING_LENGTH = 3;
+
+    private CacheTerms() {
+    }
+
+    public static Set<String> forBook(Book book) {
+        Set<String> terms = new HashSet<>();
+        terms.add(ISBN + book.getIsbn());
+        addSubstrings(terms, TITLE, book.getFoldedTitle());
+        addSubstrings(terms, AUTHOR, book.getFoldedAuthor());
+        return terms;
+    }
+
+    public static Set<String> isbn(String isbn) {
+        return Collections.singleton(ISBN + isbn);
+    }
+
+    // A field that contains the folded text also contains its first characters.
+    public static Set<String> containing(String field, String folded) {
+        return Collections.singleton(field + prefix(folded));
+    }
+
+    // A field starting within maxEdits edits of the folded prefix contains at
+    // least one of maxEdits + 1 disjoint pieces of it unchanged.
+    public static Set<String> fuzzyPrefix(String field, String folded, int maxEdits) {
+        int pieces = maxEdits + 1;
+        Set<String> terms = new HashSet<>();
+        for (int i = 0; i < pieces; i++) {
+            int start = folded.length() * i / pieces;
+            int end = folded.length() * (i + 1) / pieces;
+            terms.add(field + prefix(folded.substring(start, end)));
+        }
+        return terms;
+    }
+
+    private static String prefix(String folded) {
+        return folded.length() <= SUBSTRING_LENGTH ? folded : folded.substring(0, SUBSTRING_LENGTH);
+    }
+
+    private static void addSubstrings(Set<String> terms, String field, String folded) {
+        terms.add(field);
+        if (folded == null) {
+            return;
+        }
+        for (int start = 0; start < folded.length(); start++) {
+            int end = Math.min(folded.length(), start + SUBSTRING_LENGTH);
+            for (int i = start + 1; i <= end; i++) {
+                terms.add(field + folded.substring(start, i));
+            }
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.library.patterns;
 
 import com.library.model.Book;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 public class ISBNSearchStrategy implements SearchStrategy 
@@ -12,4 +13,19 @@ public class ISBNSearchStrategy implements SearchStrategy
                 .filter(book -> book.getIsbn().equals(query))
                 .collect(Collectors.toList());
     }
+    
+    @Override
+    public boolean matches(Book book, String query) {
+        return book.getIsbn().equals(query);
+    }
+    
+    @Override
+    public boolean dependsOnAvailability() {
+        return false;
+    }
+    
+    @Override
+    public Set<String> cacheTerms(String normalizedQuery) {
+        return CacheTerms.isbn(normalizedQuery);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,58 @@
+package com.library.patterns;
+
+import com.library.index.NGramIndex;
+import com.library.model.Book;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Substring search over one field's n-gram index; field is CacheTerms.TITLE
+// or CacheTerms.AUTHOR, whichever the index covers.
+public class IndexedSearchStrategy implements SearchStrategy {
+    private final String field;
+    private final NGramIndex index;
+
+    public IndexedSearchStrategy(String field, NGramIndex index) {
+        this.field = field;
+        this.index = index;
+    }
+
+    public List<Book> search(String query) {
+        return index.search(query);
+    }
+
+    @Override
+    public List<Book> search(List<Book> books, String query) {
+        Set<Book> matches = new HashSet<>(index.search(query));
+        return books.stream()
+                .filter(matches::contains)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public boolean matches(Book book, String query) {
+        return index.matches(book, query);
+    }
+
+    @Override
+    public String normalize(String query) {
+        return Book.fold(query);
+    }
+
+    @Override
+    public boolean dependsOnAvailability() {
+        return false;
+    }
+
+    @Override
+    public String cacheKey() {
+        return "indexed:" + field;
+    }
+
+    @Override
+    public Set<String> cacheTerms(String normalizedQuery) {
+        return CacheTerms.containing(field, normalizedQuery);
+    }
+}
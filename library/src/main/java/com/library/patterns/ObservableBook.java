@@ -1,8 +1,9 @@
 package com.library.patterns;
 
 import com.library.model.Book;
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class ObservableBook {
     private final Book book;
@@ -10,7 +11,7 @@ public class ObservableBook {
     
     public ObservableBook(Book book) {
         this.book = book;
-        this.observers = new ArrayList<>();
+        this.observers = new CopyOnWriteArrayList<>();
     }
     
     public void addObserver(BookObserver observer) {
@@ -27,6 +28,12 @@ public class ObservableBook {
         }
     }
     
+    // Iterating the returned list walks a snapshot, so observers added or
+    // removed meanwhile do not affect a delivery in progress.
+    public List<BookObserver> getObservers() {
+        return Collections.unmodifiableList(observers);
+    }
+    
     public Book getBook() {
         return book;
     }
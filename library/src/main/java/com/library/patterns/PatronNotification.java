@@ -9,6 +9,10 @@ public class PatronNotification implements BookObserver {
         this.patronId = patronId;
     }
     
+    public String getPatronId() {
+        return patronId;
+    }
+    
     @Override
     public void update(Book book, String message) {
         System.out.println(" Notification for Patron " + patronId + 
@@ -0,0 +1,38 @@
+package com.library.patterns;
+
+import com.library.model.Book;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+public interface SearchStrategy {
+    List<Book> search(List<Book> books, String query);
+    
+    // Whether this single book would be part of the result for the query.
+    // Result caches use it to find the entries a catalog change affects.
+    default boolean matches(Book book, String query) {
+        return !search(List.of(book), query).isEmpty();
+    }
+    
+    // Queries that normalize to the same string must give the same result.
+    default String normalize(String query) {
+        return query;
+    }
+    
+    default boolean dependsOnAvailability() {
+        return true;
+    }
+    
+    // Identifies the strategy in result caches: strategies with the same key
+    // must give the same result for the same query. The class name serves
+    // stateless strategies; ones built over an index must add what they search.
+    default String cacheKey() {
+        return getClass().getName();
+    }
+    
+    // CacheTerms of the books this normalized query can match; empty when
+    // any book may match.
+    default Set<String> cacheTerms(String normalizedQuery) {
+        return Collections.emptySet();
+    }
+}
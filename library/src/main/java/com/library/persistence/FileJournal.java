@@ -0,0 +1,452 @@
+package com.library.persistence;
+
+import com.library.hold.Hold;
+import com.library.model.Book;
+import com.library.model.BorrowRecord;
+import com.library.model.Patron;
+import com.library.service.LibraryJournal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+public class FileJournal implements LibraryJournal, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(FileJournal.class);
+
+    static final byte ADD_BOOK = 1;
+    static final byte UPDATE_BOOK = 2;
+    static final byte REMOVE_BOOK = 3;
+    static final byte ADD_PATRON = 4;
+    static final byte UPDATE_PATRON = 5;
+    static final byte CHECKOUT = 6;
+    static final byte RETURN = 7;
+    static final byte REMOTE_CHECKOUT = 8;
+    static final byte REMOTE_LOANS = 9;
+    static final byte PLACE_HOLD = 10;
+    static final byte ASSIGN_HOLD = 11;
+    static final byte CLOSE_HOLD = 12;
+
+    // seq (8) + op (1) + payload length (4) ahead of the payload, CRC32 (4) after it
+    static final int HEADER_SIZE = 13;
+    static final int TRAILER_SIZE = 4;
+    static final long NO_DATE = Long.MIN_VALUE;
+
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    private final Path directory;
+    private final boolean syncOnCommit;
+    private final Object appendLock = new Object();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final CRC32 crc = new CRC32();
+    private final List<JournalListener> listeners = new CopyOnWriteArrayList<>();
+
+    private FileChannel channel;
+    private ByteBuffer pending;
+    private ByteBuffer flushing;
+    private long appendedSeq;
+    private volatile long durableSeq;
+    // Set when a write or force fails; the journal then refuses every later
+    // commit, since entries after durableSeq may or may not be on disk.
+    private IOException failure;
+
+    private long fsyncCount;
+    private long fsyncNanos;
+    private long committedEntries;
+
+    public FileJournal(Path directory, long lastSeq, boolean syncOnCommit) throws IOException {
+        this.directory = directory;
+        this.syncOnCommit = syncOnCommit;
+        this.pending = ByteBuffer.allocateDirect(INITIAL_BUFFER_SIZE);
+        this.flushing = ByteBuffer.allocateDirect(INITIAL_BUFFER_SIZE);
+        this.appendedSeq = lastSeq;
+        this.durableSeq = lastSeq;
+        this.channel = openSegment(lastSeq + 1);
+        syncDirectory(directory);
+    }
+
+    static Path segmentPath(Path directory, long firstSeq) {
+        return directory.resolve(String.format("journal-%020d.log", firstSeq));
+    }
+
+    private FileChannel openSegment(long firstSeq) throws IOException {
+        return FileChannel.open(segmentPath(directory, firstSeq),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    // Makes file creations, renames and deletions in the directory durable.
+    // Windows cannot open a directory as a channel and does not need this.
+    static void syncDirectory(Path directory) throws IOException {
+        if (File.separatorChar == '\\') {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    @Override
+    public void bookAdded(Book book) {
+        byte[] isbn = utf8(book.getIsbn());
+        byte[] title = utf8(book.getTitle());
+        byte[] author = utf8(book.getAuthor());
+        synchronized (appendLock) {
+            int start = begin(ADD_BOOK, size(isbn) + size(title) + size(author) + 5);
+            putString(isbn);
+            putString(title);
+            putString(author);
+            pending.putInt(book.getPublicationYear());
+            pending.put((byte) (book.isAvailable() ? 1 : 0));
+            end(start);
+        }
+    }
+
+    @Override
+    public void bookUpdated(Book book) {
+        byte[] isbn = utf8(book.getIsbn());
+        byte[] title = utf8(book.getTitle());
+        byte[] author = utf8(book.getAuthor());
+        synchronized (appendLock) {
+            int start = begin(UPDATE_BOOK, size(isbn) + size(title) + size(author) + 4);
+            putString(isbn);
+            putString(title);
+            putString(author);
+            pending.putInt(book.getPublicationYear());
+            end(start);
+        }
+    }
+
+    @Override
+    public void bookRemoved(String isbn) {
+        byte[] bytes = utf8(isbn);
+        synchronized (appendLock) {
+            int start = begin(REMOVE_BOOK, size(bytes));
+            putString(bytes);
+            end(start);
+        }
+    }
+
+    @Override
+    public void patronAdded(Patron patron) {
+        appendPatron(ADD_PATRON, patron);
+    }
+
+    @Override
+    public void patronUpdated(Patron patron) {
+        appendPatron(UPDATE_PATRON, patron);
+    }
+
+    private void appendPatron(byte op, Patron patron) {
+        byte[] id = utf8(patron.getPatronId());
+        byte[] name = utf8(patron.getName());
+        byte[] email = utf8(patron.getEmail());
+        byte[] phone = utf8(patron.getPhone());
+        synchronized (appendLock) {
+            int start = begin(op, size(id) + size(name) + size(email) + size(phone));
+            putString(id);
+            putString(name);
+            putString(email);
+            putString(phone);
+            end(start);
+        }
+    }
+
+    @Override
+    public void bookCheckedOut(BorrowRecord record) {
+        appendLoan(CHECKOUT, record);
+    }
+
+    @Override
+    public void bookLentRemotely(BorrowRecord record) {
+        appendLoan(REMOTE_CHECKOUT, record);
+    }
+
+    @Override
+    public void remoteLoansChanged(String patronId, int delta) {
+        byte[] id = utf8(patronId);
+        synchronized (appendLock) {
+            int start = begin(REMOTE_LOANS, size(id) + 4);
+            putString(id);
+            pending.putInt(delta);
+            end(start);
+        }
+    }
+
+    private void appendLoan(byte op, BorrowRecord record) {
+        byte[] recordId = utf8(record.getRecordId());
+        byte[] patronId = utf8(record.getPatronId());
+        byte[] isbn = utf8(record.getBookIsbn());
+        synchronized (appendLock) {
+            int start = begin(op, size(recordId) + size(patronId) + size(isbn) + 16);
+            putString(recordId);
+            putString(patronId);
+            putString(isbn);
+            pending.putLong(record.getBorrowDate().toEpochDay());
+            pending.putLong(record.getDueDate().toEpochDay());
+            end(start);
+        }
+    }
+
+    @Override
+    public void bookReturned(BorrowRecord record) {
+        byte[] isbn = utf8(record.getBookIsbn());
+        LocalDate returnDate = record.getReturnDate();
+        synchronized (appendLock) {
+            int start = begin(RETURN, size(isbn) + 8);
+            putString(isbn);
+            pending.putLong(returnDate == null ? NO_DATE : returnDate.toEpochDay());
+            end(start);
+        }
+    }
+
+    @Override
+    public void holdPlaced(Hold hold) {
+        byte[] patronId = utf8(hold.getPatronId());
+        byte[] isbn = utf8(hold.getIsbn());
+        synchronized (appendLock) {
+            int start = begin(PLACE_HOLD, 8 + size(patronId) + size(isbn) + 12);
+            pending.putLong(hold.getHoldId());
+            putString(patronId);
+            putString(isbn);
+            pending.putInt(hold.getPriority());
+            pending.putLong(hold.getPlacedDate().toEpochDay());
+            end(start);
+        }
+    }
+
+    @Override
+    public void holdAssigned(Hold hold) {
+        byte[] patronId = utf8(hold.getPatronId());
+        byte[] isbn = utf8(hold.getIsbn());
+        synchronized (appendLock) {
+            int start = begin(ASSIGN_HOLD, size(patronId) + size(isbn) + 8);
+            putString(patronId);
+            putString(isbn);
+            pending.putLong(hold.getPickupDeadline().toEpochDay());
+            end(start);
+        }
+    }
+
+    @Override
+    public void holdClosed(Hold hold) {
+        byte[] patronId = utf8(hold.getPatronId());
+        byte[] isbn = utf8(hold.getIsbn());
+        synchronized (appendLock) {
+            int start = begin(CLOSE_HOLD, size(patronId) + size(isbn) + 1);
+            putString(patronId);
+            putString(isbn);
+            pending.put((byte) hold.getState().ordinal());
+            end(start);
+        }
+    }
+
+    private int begin(byte op, int payloadSize) {
+        ensureCapacity(HEADER_SIZE + payloadSize + TRAILER_SIZE);
+        int start = pending.position();
+        pending.putLong(++appendedSeq);
+        pending.put(op);
+        pending.putInt(payloadSize);
+        return start;
+    }
+
+    private void end(int start) {
+        int end = pending.position();
+        ByteBuffer entry = pending.duplicate();
+        entry.position(start + 8).limit(end);
+        crc.reset();
+        crc.update(entry);
+        pending.putInt((int) crc.getValue());
+    }
+
+    private void ensureCapacity(int needed) {
+        if (pending.remaining() >= needed) {
+            return;
+        }
+        int capacity = pending.capacity();
+        while (capacity - pending.position() < needed) {
+            capacity *= 2;
+        }
+        ByteBuffer grown = ByteBuffer.allocateDirect(capacity);
+        pending.flip();
+        grown.put(pending);
+        pending = grown;
+    }
+
+    private void putString(byte[] bytes) {
+        if (bytes == null) {
+            pending.putInt(-1);
+        } else {
+            pending.putInt(bytes.length);
+            pending.put(bytes);
+        }
+    }
+
+    private static int size(byte[] bytes) {
+        return 4 + (bytes == null ? 0 : bytes.length);
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Group commit: whichever caller wins the flush lock writes and forces
+    // every entry appended so far, so callers queued behind it usually find
+    // their own entry already durable and return without touching the disk.
+    @Override
+    public void commit() {
+        long target;
+        synchronized (appendLock) {
+            target = appendedSeq;
+        }
+        if (durableSeq >= target) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            if (durableSeq >= target) {
+                return;
+            }
+            flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to commit journal", e);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // Writes and forces everything appended so far. When that fails the batch
+    // is put back ahead of newer entries and the journal fails closed: it is
+    // unknown how much of the batch reached the disk, so durableSeq must not
+    // move and no later entry may be written after the gap.
+    private void flush() throws IOException {
+        if (failure != null) {
+            throw new IOException("Journal failed after seq " + durableSeq + " and accepts no more commits", failure);
+        }
+        long batchSeq;
+        ByteBuffer batch;
+        synchronized (appendLock) {
+            batchSeq = appendedSeq;
+            batch = pending;
+            pending = flushing;
+            flushing = batch;
+        }
+        batch.flip();
+        ByteBuffer written = batch.duplicate();
+        try {
+            while (batch.hasRemaining()) {
+                channel.write(batch);
+            }
+            if (syncOnCommit) {
+                long start = System.nanoTime();
+                channel.force(false);
+                fsyncNanos += System.nanoTime() - start;
+                fsyncCount++;
+            }
+        } catch (IOException | RuntimeException e) {
+            failure = e instanceof IOException ? (IOException) e : new IOException(e);
+            restore(written);
+            batch.clear();
+            logger.error("Journal write failed after seq {}; refusing further commits", durableSeq, e);
+            throw e;
+        }
+        batch.clear();
+        long firstSeq = durableSeq + 1;
+        committedEntries += batchSeq - durableSeq;
+        durableSeq = batchSeq;
+        if (batchSeq >= firstSeq) {
+            // The entries are durable whatever a listener does with them.
+            for (JournalListener listener : listeners) {
+                try {
+                    listener.entriesCommitted(written.asReadOnlyBuffer(), firstSeq, batchSeq);
+                } catch (RuntimeException e) {
+                    logger.error("Journal listener failed for seq {}-{}", firstSeq, batchSeq, e);
+                }
+            }
+        }
+    }
+
+    // Puts entries that failed to flush back in front of those appended since.
+    private void restore(ByteBuffer unflushed) {
+        synchronized (appendLock) {
+            ByteBuffer merged = ByteBuffer.allocateDirect(
+                    Math.max(pending.capacity(), unflushed.remaining() + pending.position()));
+            merged.put(unflushed);
+            pending.flip();
+            merged.put(pending);
+            pending = merged;
+        }
+    }
+
+    // Listeners run on the committing thread while the flush lock is held,
+    // so they must be quick; anything slow belongs on another thread.
+    public void addListener(JournalListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(JournalListener listener) {
+        listeners.remove(listener);
+    }
+
+    // Starts a new segment after the current last sequence number. Callers must
+    // make sure nothing is appended concurrently (the snapshot does this by
+    // holding every Library lock).
+    public long rotate() throws IOException {
+        flushLock.lock();
+        try {
+            flush();
+            channel.force(true);
+            channel.close();
+            channel = openSegment(durableSeq + 1);
+            syncDirectory(directory);
+            return durableSeq;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public long getLastSeq() {
+        synchronized (appendLock) {
+            return appendedSeq;
+        }
+    }
+
+    public long getDurableSeq() {
+        return durableSeq;
+    }
+
+    public JournalStats getStats() {
+        flushLock.lock();
+        try {
+            return new JournalStats(committedEntries, fsyncCount, fsyncNanos);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // A failed journal only releases its file and reports the failure again.
+    @Override
+    public void close() throws IOException {
+        flushLock.lock();
+        try {
+            if (failure != null) {
+                channel.close();
+            }
+            flush();
+            channel.force(true);
+            channel.close();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.library.persistence;
+
+import java.nio.ByteBuffer;
+
+// Receives journal entries once they are written, in sequence order. The
+// buffer holds whole entries in the journal's file format and is only valid
+// during the call.
+public interface JournalListener {
+    void entriesCommitted(ByteBuffer entries, long firstSeq, long lastSeq);
+}
@@ -0,0 +1,252 @@
+package com.library.persistence;
+
+import com.library.hold.Hold;
+import com.library.model.Book;
+import com.library.model.BorrowRecord;
+import com.library.model.Patron;
+import com.library.service.Library;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+public class JournalReplayer {
+    private static final Logger logger = LoggerFactory.getLogger(JournalReplayer.class);
+
+    private final Library library;
+    private final CRC32 crc = new CRC32();
+    private long lastSeq;
+    private long replayedEntries;
+    // Where replay(Path) stopped short of the end of the journal, if it did.
+    private Path endSegment;
+    private int endOffset;
+
+    public JournalReplayer(Library library, long snapshotSeq) {
+        this.library = library;
+        this.lastSeq = snapshotSeq;
+    }
+
+    static List<Path> segments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> segments = new ArrayList<>();
+            files.filter(path -> path.getFileName().toString().matches("journal-\\d{20}\\.log"))
+                    .sorted()
+                    .forEach(segments::add);
+            return segments;
+        }
+    }
+
+    static long firstSeq(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring("journal-".length(), name.length() - ".log".length()));
+    }
+
+    // A torn or corrupt entry or a gap in sequence numbers ends the replay:
+    // everything before it was committed, and anything after it would be
+    // applied on top of missing changes.
+    public void replay(Path directory) throws IOException {
+        for (Path segment : segments(directory)) {
+            ByteBuffer entries = readSegment(segment);
+            replay(entries);
+            if (entries.hasRemaining()) {
+                endSegment = segment;
+                endOffset = entries.position();
+                return;
+            }
+        }
+    }
+
+    // Cuts the journal back to the last entry replayed, so new entries are not
+    // appended after bytes the next recovery would stop at. The cut-off bytes
+    // and any later segments are kept aside as *.discarded files.
+    public void truncate(Path directory) throws IOException {
+        if (endSegment == null) {
+            return;
+        }
+        List<Path> segments = segments(directory);
+        if (endOffset > 0) {
+            cutTail(endSegment);
+        }
+        for (Path segment : segments) {
+            // A segment with nothing replayed goes aside whole: its name no
+            // longer tells where the journal continues.
+            int order = segment.compareTo(endSegment);
+            if (order > 0 || order == 0 && endOffset == 0) {
+                Files.move(segment, discarded(segment), StandardCopyOption.REPLACE_EXISTING);
+                logger.warn("Journal ends after seq {}: set aside {}", lastSeq, segment.getFileName());
+            }
+        }
+        FileJournal.syncDirectory(directory);
+        endSegment = null;
+    }
+
+    private void cutTail(Path segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            ByteBuffer tail = ByteBuffer.allocate((int) (size - endOffset));
+            while (tail.hasRemaining() && channel.read(tail, endOffset + tail.position()) >= 0) {
+                // keep reading until the tail is copied
+            }
+            tail.flip();
+            Files.write(discarded(segment), tail.array(), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            channel.truncate(endOffset);
+            channel.force(true);
+            logger.warn("Journal ends after seq {}: cut {} bytes from {}", lastSeq, size - endOffset,
+                    segment.getFileName());
+        }
+    }
+
+    private static Path discarded(Path segment) {
+        return segment.resolveSibling(segment.getFileName() + ".discarded");
+    }
+
+    static ByteBuffer readSegment(Path segment) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // keep reading until the buffer is full
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    // Applies the well-formed entries from the buffer's position on, skipping
+    // those at or below the last applied sequence number, so entries seen
+    // twice are harmless. Stops at the first torn or corrupt entry, or at an
+    // entry that does not follow the last applied one, and leaves the
+    // position there; returns how many entries were applied.
+    public int replay(ByteBuffer entries) {
+        int applied = 0;
+        int offset = entries.position();
+        int end;
+        while ((end = entryEnd(entries, offset, crc)) >= 0) {
+            long seq = entries.getLong(offset);
+            if (seq > lastSeq + 1) {
+                break;
+            }
+            if (seq > lastSeq) {
+                ByteBuffer payload = entries.duplicate();
+                payload.limit(end - FileJournal.TRAILER_SIZE).position(offset + FileJournal.HEADER_SIZE);
+                apply(entries.get(offset + 8), payload.slice());
+                lastSeq = seq;
+                replayedEntries++;
+                applied++;
+            }
+            offset = end;
+        }
+        entries.position(offset);
+        return applied;
+    }
+
+    // The end of the entry starting at offset, or -1 when it is torn or fails
+    // its checksum.
+    static int entryEnd(ByteBuffer buffer, int offset, CRC32 crc) {
+        if (buffer.limit() - offset < FileJournal.HEADER_SIZE) {
+            return -1;
+        }
+        int payloadSize = buffer.getInt(offset + 9);
+        if (payloadSize < 0 || buffer.limit() - offset - FileJournal.HEADER_SIZE < payloadSize + FileJournal.TRAILER_SIZE) {
+            return -1;
+        }
+        int payloadEnd = offset + FileJournal.HEADER_SIZE + payloadSize;
+        ByteBuffer checked = buffer.duplicate();
+        checked.limit(payloadEnd).position(offset + 8);
+        crc.reset();
+        crc.update(checked);
+        if (buffer.getInt(payloadEnd) != (int) crc.getValue()) {
+            return -1;
+        }
+        return payloadEnd + FileJournal.TRAILER_SIZE;
+    }
+
+    private void apply(byte op, ByteBuffer payload) {
+        library.applyReplayed(() -> applyChange(op, payload));
+    }
+
+    private void applyChange(byte op, ByteBuffer payload) {
+        switch (op) {
+            case FileJournal.ADD_BOOK: {
+                Book book = new Book(getString(payload), getString(payload), getString(payload), payload.getInt());
+                book.setAvailable(payload.get() != 0);
+                library.addBook(book);
+                break;
+            }
+            case FileJournal.UPDATE_BOOK:
+                library.updateBook(getString(payload), getString(payload), getString(payload), payload.getInt());
+                break;
+            case FileJournal.REMOVE_BOOK:
+                library.removeBook(getString(payload));
+                break;
+            case FileJournal.ADD_PATRON:
+                library.addPatron(new Patron(getString(payload), getString(payload), getString(payload), getString(payload)));
+                break;
+            case FileJournal.UPDATE_PATRON:
+                library.updatePatron(getString(payload), getString(payload), getString(payload), getString(payload));
+                break;
+            case FileJournal.CHECKOUT:
+                library.restoreBorrowRecord(getLoan(payload));
+                break;
+            case FileJournal.REMOTE_CHECKOUT:
+                library.restoreRemoteLoan(getLoan(payload));
+                break;
+            case FileJournal.REMOTE_LOANS:
+                library.restoreRemoteLoanSlots(getString(payload), payload.getInt());
+                break;
+            case FileJournal.PLACE_HOLD:
+                library.restoreHold(payload.getLong(), getString(payload), getString(payload), payload.getInt(),
+                        LocalDate.ofEpochDay(payload.getLong()));
+                break;
+            case FileJournal.ASSIGN_HOLD:
+                library.restoreHoldAssigned(getString(payload), getString(payload), LocalDate.ofEpochDay(payload.getLong()));
+                break;
+            case FileJournal.CLOSE_HOLD:
+                library.restoreHoldClosed(getString(payload), getString(payload), Hold.State.values()[payload.get()]);
+                break;
+            case FileJournal.RETURN: {
+                String isbn = getString(payload);
+                long returnDay = payload.getLong();
+                library.restoreReturn(isbn, returnDay == FileJournal.NO_DATE ? LocalDate.now() : LocalDate.ofEpochDay(returnDay));
+                break;
+            }
+            default:
+                throw new IllegalStateException("Unknown journal operation: " + op);
+        }
+    }
+
+    private static BorrowRecord getLoan(ByteBuffer payload) {
+        String recordId = getString(payload);
+        String patronId = getString(payload);
+        String isbn = getString(payload);
+        LocalDate borrowDate = LocalDate.ofEpochDay(payload.getLong());
+        LocalDate dueDate = LocalDate.ofEpochDay(payload.getLong());
+        return new BorrowRecord(recordId, patronId, isbn, borrowDate, dueDate);
+    }
+
+    static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public long getLastSeq() { return lastSeq; }
+    public long getReplayedEntries() { return replayedEntries; }
+}
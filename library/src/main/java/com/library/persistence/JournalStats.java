@@ -0,0 +1,31 @@
+package com.library.persistence;
+
+public class JournalStats {
+    private final long committedEntries;
+    private final long fsyncCount;
+    private final long fsyncNanos;
+
+    public JournalStats(long committedEntries, long fsyncCount, long fsyncNanos) {
+        this.committedEntries = committedEntries;
+        this.fsyncCount = fsyncCount;
+        this.fsyncNanos = fsyncNanos;
+    }
+
+    public long getCommittedEntries() { return committedEntries; }
+    public long getFsyncCount() { return fsyncCount; }
+    public long getFsyncNanos() { return fsyncNanos; }
+
+    public double getEntriesPerFsync() {
+        return fsyncCount == 0 ? 0 : (double) committedEntries / fsyncCount;
+    }
+
+    public double getFsyncNanosPerEntry() {
+        return committedEntries == 0 ? 0 : (double) fsyncNanos / committedEntries;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("JournalStats{Entries=%d, Fsyncs=%d, EntriesPerFsync=%.1f, FsyncMicrosPerEntry=%.1f}",
+                committedEntries, fsyncCount, getEntriesPerFsync(), getFsyncNanosPerEntry() / 1000.0);
+    }
+}
@@ -0,0 +1,215 @@
+package com.library.persistence;
+
+import com.library.service.Library;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+public class LibraryPersistence implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(LibraryPersistence.class);
+
+    private final Path directory;
+    private final Library library;
+    private final FileJournal journal;
+    private final ScheduledExecutorService scheduler;
+    private final long recoveryMillis;
+    private final long replayedEntries;
+
+    private LibraryPersistence(Path directory, Library library, FileJournal journal,
+                               long recoveryMillis, long replayedEntries, long snapshotIntervalSeconds) {
+        this.directory = directory;
+        this.library = library;
+        this.journal = journal;
+        this.recoveryMillis = recoveryMillis;
+        this.replayedEntries = replayedEntries;
+        if (snapshotIntervalSeconds > 0) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "library-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::snapshotQuietly,
+                    snapshotIntervalSeconds, snapshotIntervalSeconds, TimeUnit.SECONDS);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    public static LibraryPersistence open(Path directory, Library library) throws IOException {
+        return open(directory, library, true, 300);
+    }
+
+    // Recovers the library from the latest snapshot plus the journal tail,
+    // cuts the journal back to the last entry replayed and then attaches a
+    // journal segment after it so later mutations are recorded.
+    public static LibraryPersistence open(Path directory, Library library, boolean syncOnCommit,
+                                          long snapshotIntervalSeconds) throws IOException {
+        Files.createDirectories(directory);
+        long start = System.nanoTime();
+        long snapshotSeq = SnapshotFile.loadLatest(directory, library);
+        JournalReplayer replayer = new JournalReplayer(library, snapshotSeq);
+        replayer.replay(directory);
+        replayer.truncate(directory);
+        long recoveryMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        logger.info("Recovered library from {} in {} ms (snapshot seq {}, {} journal entries replayed)",
+                directory, recoveryMillis, snapshotSeq, replayer.getReplayedEntries());
+
+        FileJournal journal = new FileJournal(directory, replayer.getLastSeq(), syncOnCommit);
+        library.setJournal(journal);
+        return new LibraryPersistence(directory, library, journal, recoveryMillis,
+                replayer.getReplayedEntries(), snapshotIntervalSeconds);
+    }
+
+    public Path snapshot() throws IOException {
+        long[] seq = new long[1];
+        SnapshotFile[] captured = new SnapshotFile[1];
+        IOException[] failure = new IOException[1];
+        library.exclusively(() -> {
+            try {
+                seq[0] = journal.rotate();
+                captured[0] = SnapshotFile.capture(library, seq[0]);
+            } catch (IOException e) {
+                failure[0] = e;
+            }
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+
+        long start = System.nanoTime();
+        Path written = captured[0].write(directory);
+        deleteObsoleteFiles();
+        logger.info("Wrote snapshot {} in {} ms", written.getFileName(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return written;
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | UncheckedIOException e) {
+            logger.error("Periodic snapshot failed", e);
+        }
+    }
+
+    // Keeps the newest two snapshots and the journal from the older one on,
+    // so recovery can fall back a generation when the latest snapshot is
+    // unreadable. Segments are named after their first sequence number, so a
+    // segment is obsolete once the next one starts at or before seq + 1.
+    private void deleteObsoleteFiles() throws IOException {
+        List<Path> snapshots = SnapshotFile.snapshots(directory);
+        if (snapshots.size() < 2) {
+            return;
+        }
+        long keptSeq = SnapshotFile.seqOf(snapshots.get(snapshots.size() - 2));
+        for (Path snapshot : snapshots) {
+            if (SnapshotFile.seqOf(snapshot) < keptSeq) {
+                Files.deleteIfExists(snapshot);
+            }
+        }
+        List<Path> segments = JournalReplayer.segments(directory);
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            if (JournalReplayer.firstSeq(segments.get(i + 1)) <= keptSeq + 1) {
+                Files.deleteIfExists(segments.get(i));
+            }
+        }
+    }
+
+    public void addJournalListener(JournalListener listener) {
+        journal.addListener(listener);
+    }
+
+    public void removeJournalListener(JournalListener listener) {
+        journal.removeListener(listener);
+    }
+
+    // Hands the journal entries after afterSeq up to throughSeq, read back
+    // from the segment files, to the sink one segment at a time. Entries past
+    // throughSeq may not be durable yet and are left out, so pass a durable
+    // sequence number. Returns false without reading anything when the entries
+    // right after afterSeq are gone because a snapshot superseded them.
+    public boolean readJournal(long afterSeq, long throughSeq, JournalListener sink) throws IOException {
+        List<Path> segments = JournalReplayer.segments(directory);
+        if (segments.isEmpty() || JournalReplayer.firstSeq(segments.get(0)) > afterSeq + 1) {
+            return false;
+        }
+        CRC32 crc = new CRC32();
+        for (int i = 0; i < segments.size(); i++) {
+            if (i + 1 < segments.size() && JournalReplayer.firstSeq(segments.get(i + 1)) <= afterSeq + 1) {
+                continue;
+            }
+            ByteBuffer entries = JournalReplayer.readSegment(segments.get(i));
+            int start = -1;
+            long firstSeq = 0;
+            long lastSeq = 0;
+            int offset = 0;
+            int end;
+            // The live segment may end in an entry still being written.
+            while ((end = JournalReplayer.entryEnd(entries, offset, crc)) >= 0) {
+                long seq = entries.getLong(offset);
+                if (seq > throughSeq) {
+                    break;
+                }
+                if (seq > afterSeq) {
+                    if (start < 0) {
+                        start = offset;
+                        firstSeq = seq;
+                    }
+                    lastSeq = seq;
+                }
+                offset = end;
+            }
+            if (start >= 0) {
+                entries.limit(offset).position(start);
+                sink.entriesCommitted(entries.slice(), firstSeq, lastSeq);
+                afterSeq = lastSeq;
+            }
+            if (afterSeq >= throughSeq) {
+                break;
+            }
+        }
+        return true;
+    }
+
+    public Optional<Path> getLatestSnapshot() throws IOException {
+        List<Path> snapshots = SnapshotFile.snapshots(directory);
+        return snapshots.isEmpty() ? Optional.empty() : Optional.of(snapshots.get(snapshots.size() - 1));
+    }
+
+    public static long snapshotSeq(Path snapshot) {
+        return SnapshotFile.seqOf(snapshot);
+    }
+
+    // Loads a snapshot sent from another library, such as a replication
+    // primary, into an empty library; returns the sequence number it covers.
+    public static long restoreSnapshot(InputStream in, Library library) throws IOException {
+        return SnapshotFile.restore(in, library);
+    }
+
+    public long getDurableSeq() { return journal.getDurableSeq(); }
+    public JournalStats getJournalStats() { return journal.getStats(); }
+    public long getRecoveryMillis() { return recoveryMillis; }
+    public long getReplayedEntries() { return replayedEntries; }
+
+    @Override
+    public void close() throws IOException {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+        library.setJournal(null);
+        journal.close();
+        logger.info("Closed library journal: {}", journal.getStats());
+    }
+}
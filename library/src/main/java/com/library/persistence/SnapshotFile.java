@@ -0,0 +1,316 @@
+package com.library.persistence;
+
+import com.library.hold.Hold;
+import com.library.model.Book;
+import com.library.model.BorrowRecord;
+import com.library.model.Patron;
+import com.library.service.Library;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public class SnapshotFile {
+    private static final int MAGIC = 0x4C494253;
+    // Version 2 added patrons' remote loan slots and the loans of books here
+    // to patrons of other libraries, version 3 the active holds; older files
+    // are still read.
+    private static final int VERSION = 3;
+
+    private final long seq;
+    private final List<Book> books;
+    private final List<Patron> patrons;
+    private final List<BorrowRecord> remoteLoans;
+    private final List<HoldEntry> holds;
+
+    private SnapshotFile(long seq, List<Book> books, List<Patron> patrons, List<BorrowRecord> remoteLoans,
+                         List<HoldEntry> holds) {
+        this.seq = seq;
+        this.books = books;
+        this.patrons = patrons;
+        this.remoteLoans = remoteLoans;
+        this.holds = holds;
+    }
+
+    // A hold's values at capture time; pickupDeadline is null while it waits.
+    private static final class HoldEntry {
+        private final long holdId;
+        private final String patronId;
+        private final String isbn;
+        private final int priority;
+        private final LocalDate placedDate;
+        private final LocalDate pickupDeadline;
+
+        HoldEntry(long holdId, String patronId, String isbn, int priority, LocalDate placedDate,
+                  LocalDate pickupDeadline) {
+            this.holdId = holdId;
+            this.patronId = patronId;
+            this.isbn = isbn;
+            this.priority = priority;
+            this.placedDate = placedDate;
+            this.pickupDeadline = pickupDeadline;
+        }
+    }
+
+    static Path snapshotPath(Path directory, long seq) {
+        return directory.resolve(String.format("snapshot-%020d.bin", seq));
+    }
+
+    static long seqOf(Path snapshot) {
+        String name = snapshot.getFileName().toString();
+        return Long.parseLong(name.substring("snapshot-".length(), name.length() - ".bin".length()));
+    }
+
+    static List<Path> snapshots(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> snapshots = new ArrayList<>();
+            files.filter(path -> path.getFileName().toString().matches("snapshot-\\d{20}\\.bin"))
+                    .sorted()
+                    .forEach(snapshots::add);
+            return snapshots;
+        }
+    }
+
+    // Must run while the library is held exclusively; copies values so the
+    // file can be written after the locks are released.
+    static SnapshotFile capture(Library library, long seq) {
+        List<Book> books = new ArrayList<>();
+        for (Book book : library.getAllBooks()) {
+            Book copy = new Book(book.getIsbn(), book.getTitle(), book.getAuthor(), book.getPublicationYear());
+            // A cross-branch checkout in progress does not survive a restart.
+            copy.setAvailable(book.isAvailable() || library.isHeldForTransfer(book.getIsbn()));
+            books.add(copy);
+        }
+        List<Patron> patrons = new ArrayList<>();
+        for (Patron patron : library.getAllPatrons()) {
+            Patron copy = new Patron(patron.getPatronId(), patron.getName(), patron.getEmail(), patron.getPhone());
+            copy.adjustRemoteLoans(patron.getRemoteLoanCount());
+            for (BorrowRecord record : patron.getBorrowingHistory()) {
+                BorrowRecord recordCopy = new BorrowRecord(record.getRecordId(), record.getPatronId(),
+                        record.getBookIsbn(), record.getBorrowDate(), record.getDueDate());
+                recordCopy.setReturnDate(record.getReturnDate());
+                copy.addBorrowRecord(recordCopy);
+            }
+            patrons.add(copy);
+        }
+        List<BorrowRecord> remoteLoans = new ArrayList<>();
+        for (BorrowRecord record : library.getRemoteLoans()) {
+            remoteLoans.add(new BorrowRecord(record.getRecordId(), record.getPatronId(),
+                    record.getBookIsbn(), record.getBorrowDate(), record.getDueDate()));
+        }
+        List<HoldEntry> holds = new ArrayList<>();
+        for (Hold hold : library.getActiveHolds()) {
+            holds.add(new HoldEntry(hold.getHoldId(), hold.getPatronId(), hold.getIsbn(), hold.getPriority(),
+                    hold.getPlacedDate(), hold.getState() == Hold.State.READY ? hold.getPickupDeadline() : null));
+        }
+        return new SnapshotFile(seq, books, patrons, remoteLoans, holds);
+    }
+
+    Path write(Path directory) throws IOException {
+        Path target = snapshotPath(directory, seq);
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temp.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(seq);
+            out.writeInt(books.size());
+            for (Book book : books) {
+                writeString(out, book.getIsbn());
+                writeString(out, book.getTitle());
+                writeString(out, book.getAuthor());
+                out.writeInt(book.getPublicationYear());
+                out.writeBoolean(book.isAvailable());
+            }
+            out.writeInt(patrons.size());
+            for (Patron patron : patrons) {
+                writeString(out, patron.getPatronId());
+                writeString(out, patron.getName());
+                writeString(out, patron.getEmail());
+                writeString(out, patron.getPhone());
+                out.writeInt(patron.getRemoteLoanCount());
+                List<BorrowRecord> history = patron.getBorrowingHistory();
+                out.writeInt(history.size());
+                for (BorrowRecord record : history) {
+                    writeString(out, record.getRecordId());
+                    writeString(out, record.getBookIsbn());
+                    out.writeLong(record.getBorrowDate().toEpochDay());
+                    out.writeLong(record.getDueDate().toEpochDay());
+                    out.writeLong(record.getReturnDate() == null ? FileJournal.NO_DATE : record.getReturnDate().toEpochDay());
+                }
+            }
+            out.writeInt(remoteLoans.size());
+            for (BorrowRecord record : remoteLoans) {
+                writeString(out, record.getRecordId());
+                writeString(out, record.getPatronId());
+                writeString(out, record.getBookIsbn());
+                out.writeLong(record.getBorrowDate().toEpochDay());
+                out.writeLong(record.getDueDate().toEpochDay());
+            }
+            out.writeInt(holds.size());
+            for (HoldEntry hold : holds) {
+                out.writeLong(hold.holdId);
+                writeString(out, hold.patronId);
+                writeString(out, hold.isbn);
+                out.writeInt(hold.priority);
+                out.writeLong(hold.placedDate.toEpochDay());
+                out.writeLong(hold.pickupDeadline == null ? FileJournal.NO_DATE : hold.pickupDeadline.toEpochDay());
+            }
+            out.flush();
+            file.getFD().sync();
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        FileJournal.syncDirectory(directory);
+        return target;
+    }
+
+    // Loads the newest readable snapshot into the library and returns the
+    // journal sequence number it covers, or 0 when there is none.
+    static long loadLatest(Path directory, Library library) throws IOException {
+        List<Path> snapshots = snapshots(directory);
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            Optional<SnapshotFile> snapshot = read(snapshots.get(i));
+            if (snapshot.isPresent()) {
+                snapshot.get().restore(library);
+                return snapshot.get().seq;
+            }
+        }
+        return 0;
+    }
+
+    private static Optional<SnapshotFile> read(Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            return read(in);
+        }
+    }
+
+    // Restores a snapshot read from the stream, such as one sent by a
+    // replication primary, and returns the journal sequence number it covers.
+    static long restore(InputStream stream, Library library) throws IOException {
+        SnapshotFile snapshot = read(stream).orElseThrow(() -> new IOException("Not a readable snapshot"));
+        snapshot.restore(library);
+        return snapshot.seq;
+    }
+
+    private static Optional<SnapshotFile> read(InputStream stream) throws IOException {
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 1 << 16));
+            if (in.readInt() != MAGIC) {
+                return Optional.empty();
+            }
+            int version = in.readInt();
+            if (version < 1 || version > VERSION) {
+                return Optional.empty();
+            }
+            long seq = in.readLong();
+            int bookCount = in.readInt();
+            List<Book> books = new ArrayList<>(bookCount);
+            for (int i = 0; i < bookCount; i++) {
+                Book book = new Book(readString(in), readString(in), readString(in), in.readInt());
+                book.setAvailable(in.readBoolean());
+                books.add(book);
+            }
+            int patronCount = in.readInt();
+            List<Patron> patrons = new ArrayList<>(patronCount);
+            for (int i = 0; i < patronCount; i++) {
+                Patron patron = new Patron(readString(in), readString(in), readString(in), readString(in));
+                if (version >= 2) {
+                    patron.adjustRemoteLoans(in.readInt());
+                }
+                int recordCount = in.readInt();
+                for (int j = 0; j < recordCount; j++) {
+                    String recordId = readString(in);
+                    String isbn = readString(in);
+                    LocalDate borrowDate = LocalDate.ofEpochDay(in.readLong());
+                    LocalDate dueDate = LocalDate.ofEpochDay(in.readLong());
+                    long returnDay = in.readLong();
+                    BorrowRecord record = new BorrowRecord(recordId, patron.getPatronId(), isbn, borrowDate, dueDate);
+                    if (returnDay != FileJournal.NO_DATE) {
+                        record.setReturnDate(LocalDate.ofEpochDay(returnDay));
+                    }
+                    patron.addBorrowRecord(record);
+                }
+                patrons.add(patron);
+            }
+            List<BorrowRecord> remoteLoans = new ArrayList<>();
+            int remoteCount = version >= 2 ? in.readInt() : 0;
+            for (int i = 0; i < remoteCount; i++) {
+                remoteLoans.add(new BorrowRecord(readString(in), readString(in), readString(in),
+                        LocalDate.ofEpochDay(in.readLong()), LocalDate.ofEpochDay(in.readLong())));
+            }
+            List<HoldEntry> holds = new ArrayList<>();
+            int holdCount = version >= 3 ? in.readInt() : 0;
+            for (int i = 0; i < holdCount; i++) {
+                long holdId = in.readLong();
+                String patronId = readString(in);
+                String isbn = readString(in);
+                int priority = in.readInt();
+                LocalDate placedDate = LocalDate.ofEpochDay(in.readLong());
+                long deadlineDay = in.readLong();
+                holds.add(new HoldEntry(holdId, patronId, isbn, priority, placedDate,
+                        deadlineDay == FileJournal.NO_DATE ? null : LocalDate.ofEpochDay(deadlineDay)));
+            }
+            return Optional.of(new SnapshotFile(seq, books, patrons, remoteLoans, holds));
+        } catch (EOFException e) {
+            return Optional.empty();
+        }
+    }
+
+    private void restore(Library library) {
+        library.applyReplayed(() -> restoreInto(library));
+    }
+
+    private void restoreInto(Library library) {
+        for (Book book : books) {
+            library.addBook(book);
+        }
+        for (Patron patron : patrons) {
+            Patron restored = new Patron(patron.getPatronId(), patron.getName(), patron.getEmail(), patron.getPhone());
+            library.addPatron(restored);
+            for (BorrowRecord record : patron.getBorrowingHistory()) {
+                library.restoreBorrowRecord(record);
+            }
+            if (patron.getRemoteLoanCount() > 0) {
+                library.restoreRemoteLoanSlots(patron.getPatronId(), patron.getRemoteLoanCount());
+            }
+        }
+        for (BorrowRecord record : remoteLoans) {
+            library.restoreRemoteLoan(record);
+        }
+        for (HoldEntry hold : holds) {
+            library.restoreHold(hold.holdId, hold.patronId, hold.isbn, hold.priority, hold.placedDate);
+            if (hold.pickupDeadline != null) {
+                library.restoreHoldAssigned(hold.patronId, hold.isbn, hold.pickupDeadline);
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public long getSeq() { return seq; }
+}
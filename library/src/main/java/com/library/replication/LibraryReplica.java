@@ -0,0 +1,282 @@
+package com.library.replication;
+
+import com.library.persistence.JournalReplayer;
+import com.library.persistence.LibraryPersistence;
+import com.library.service.Library;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.LongAdder;
+
+// Keeps a library in step with a ReplicationPrimary. Entries are applied
+// through the same replayer as journal recovery, which skips any sequence
+// number already applied, so a batch received twice after a reconnect is
+// harmless. After a disconnect the replica reconnects with backoff and asks
+// for the entries after the last one it applied. The library is made
+// read-only: local changes would not reach the primary and could conflict
+// with replicated ones.
+public class LibraryReplica implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(LibraryReplica.class);
+    private static final long MIN_BACKOFF_MILLIS = 100;
+    private static final long MAX_BACKOFF_MILLIS = 5_000;
+    private static final int CONNECT_TIMEOUT_MILLIS = 5_000;
+
+    private final Library library;
+    private final InetSocketAddress primary;
+    private final LongAdder reconnects;
+    private JournalReplayer replayer;
+    private Thread thread;
+    private Socket socket;
+    private volatile boolean running;
+    private volatile boolean connected;
+    private volatile long appliedSeq;
+    private volatile long primarySeq;
+    private volatile long caughtUpAt;
+
+    // The library must be empty: the replica starts from sequence number 0.
+    public LibraryReplica(Library library, InetSocketAddress primary) {
+        library.setReadOnly(true);
+        this.library = library;
+        this.primary = primary;
+        this.reconnects = new LongAdder();
+        this.replayer = new JournalReplayer(library, 0);
+        this.caughtUpAt = System.currentTimeMillis();
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::run, "library-replica");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public Library getLibrary() {
+        return library;
+    }
+
+    public ReplicationStatus getStatus() {
+        long applied = appliedSeq;
+        long lagMillis = applied >= primarySeq ? 0 : System.currentTimeMillis() - caughtUpAt;
+        return new ReplicationStatus(connected, applied, primarySeq, lagMillis, reconnects.sum());
+    }
+
+    @Override
+    public void close() {
+        Socket current;
+        synchronized (this) {
+            running = false;
+            current = socket;
+        }
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                logger.debug("Failed to close replica socket", e);
+            }
+        }
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    // Backs off exponentially while the primary cannot be reached, and
+    // retries quickly after a connection that did get established drops.
+    private void run() {
+        long backoff = MIN_BACKOFF_MILLIS;
+        while (running) {
+            boolean reached = false;
+            try {
+                reached = replicate();
+            } catch (IOException e) {
+                reached = connected;
+                if (running) {
+                    logger.info("Replication from {} interrupted: {}", primary, e.toString());
+                }
+            } catch (RuntimeException e) {
+                logger.error("Failed to apply replicated entries, stopping replication", e);
+                running = false;
+            } finally {
+                connected = false;
+            }
+            if (!running) {
+                break;
+            }
+            reconnects.increment();
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                break;
+            }
+            backoff = reached ? MIN_BACKOFF_MILLIS : Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+        }
+    }
+
+    // Returns once the primary ends replication; throws when the connection
+    // fails.
+    private boolean replicate() throws IOException {
+        Socket current = new Socket();
+        synchronized (this) {
+            if (!running) {
+                return false;
+            }
+            socket = current;
+        }
+        try {
+            current.connect(primary, CONNECT_TIMEOUT_MILLIS);
+            current.setTcpNoDelay(true);
+            // The primary sends a heartbeat at least this often.
+            current.setSoTimeout((int) ReplicationPrimary.HEARTBEAT_MILLIS * 10);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(current.getInputStream(), 1 << 16));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(current.getOutputStream()));
+            out.writeInt(ReplicationProtocol.MAGIC);
+            out.writeInt(ReplicationProtocol.VERSION);
+            out.writeLong(replayer.getLastSeq());
+            out.flush();
+            connected = true;
+
+            int[] length = new int[1];
+            while (running) {
+                byte type = ReplicationProtocol.readHeader(in, length);
+                switch (type) {
+                    case ReplicationProtocol.ENTRIES:
+                        applyEntries(in, length[0]);
+                        break;
+                    case ReplicationProtocol.SNAPSHOT_BEGIN:
+                        restoreSnapshot(in, length[0]);
+                        break;
+                    case ReplicationProtocol.HEARTBEAT:
+                        primarySeq = Math.max(primarySeq, in.readLong());
+                        in.readLong();
+                        break;
+                    case ReplicationProtocol.ERROR: {
+                        byte[] message = new byte[length[0]];
+                        in.readFully(message);
+                        logger.error("Primary {} refused replication: {}", primary,
+                                new String(message, StandardCharsets.UTF_8));
+                        running = false;
+                        return true;
+                    }
+                    default:
+                        in.skipBytes(length[0]);
+                        break;
+                }
+                if (appliedSeq >= primarySeq) {
+                    caughtUpAt = System.currentTimeMillis();
+                }
+                ReplicationProtocol.writeLongFrame(out, ReplicationProtocol.ACK, appliedSeq);
+                out.flush();
+            }
+            return true;
+        } finally {
+            try {
+                current.close();
+            } catch (IOException e) {
+                logger.debug("Failed to close replica socket", e);
+            }
+        }
+    }
+
+    private void applyEntries(DataInputStream in, int length) throws IOException {
+        long firstSeq = in.readLong();
+        long lastSeq = in.readLong();
+        byte[] bytes = new byte[length - 16];
+        in.readFully(bytes);
+        if (firstSeq > replayer.getLastSeq() + 1) {
+            throw new IOException("Replication gap: expected seq " + (replayer.getLastSeq() + 1) + ", got " + firstSeq);
+        }
+        ByteBuffer entries = ByteBuffer.wrap(bytes);
+        replayer.replay(entries);
+        if (entries.hasRemaining()) {
+            throw new IOException("Corrupt replication batch after seq " + replayer.getLastSeq());
+        }
+        appliedSeq = replayer.getLastSeq();
+        primarySeq = Math.max(primarySeq, lastSeq);
+    }
+
+    // Restores straight from the chunk frames that follow SNAPSHOT_BEGIN.
+    private void restoreSnapshot(DataInputStream in, int length) throws IOException {
+        if (length != 16) {
+            throw new IOException("Bad snapshot header length: " + length);
+        }
+        long offeredSeq = in.readLong();
+        long size = in.readLong();
+        if (replayer.getLastSeq() != 0) {
+            throw new IOException("Snapshot offered to a replica that is not empty");
+        }
+        SnapshotChunks chunks = new SnapshotChunks(in, size);
+        long seq = LibraryPersistence.restoreSnapshot(chunks, library);
+        chunks.finish();
+        if (seq != offeredSeq) {
+            throw new IOException("Snapshot covers seq " + seq + ", primary announced " + offeredSeq);
+        }
+        replayer = new JournalReplayer(library, seq);
+        appliedSeq = seq;
+        primarySeq = Math.max(primarySeq, seq);
+        logger.info("Replica seeded from primary snapshot at seq {}", seq);
+    }
+
+    // The bytes of a snapshot's chunk frames, read as they arrive. Ends after
+    // the announced size; finish then expects the end frame.
+    private static final class SnapshotChunks extends InputStream {
+        private final DataInputStream in;
+        private final int[] length = new int[1];
+        private long remaining;
+        private int chunkRemaining;
+
+        SnapshotChunks(DataInputStream in, long size) {
+            this.in = in;
+            this.remaining = size;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int count) throws IOException {
+            if (remaining == 0) {
+                return -1;
+            }
+            if (chunkRemaining == 0) {
+                byte type = ReplicationProtocol.readHeader(in, length);
+                if (type != ReplicationProtocol.SNAPSHOT_CHUNK || length[0] == 0 || length[0] > remaining) {
+                    throw new IOException("Bad snapshot chunk: type " + type + ", length " + length[0]);
+                }
+                chunkRemaining = length[0];
+            }
+            int read = in.read(buffer, offset, Math.min(count, chunkRemaining));
+            if (read < 0) {
+                throw new EOFException("Snapshot cut off with " + remaining + " bytes to go");
+            }
+            chunkRemaining -= read;
+            remaining -= read;
+            return read;
+        }
+
+        void finish() throws IOException {
+            byte[] skipped = new byte[8192];
+            while (read(skipped, 0, skipped.length) >= 0) {
+                // in case the snapshot reader stopped before the end
+            }
+            if (ReplicationProtocol.readHeader(in, length) != ReplicationProtocol.SNAPSHOT_END || length[0] != 0) {
+                throw new IOException("Snapshot not followed by its end frame");
+            }
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package com.library.replication;
+
+import com.library.persistence.JournalListener;
+import com.library.persistence.LibraryPersistence;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Streams the primary's journal to replicas. Every batch the file journal
+// commits is copied once and queued for each connected replica, so replicas
+// receive exactly the entries that are durable on the primary, in order and
+// in the journal's own binary format. A replica connecting with an offset is
+// first caught up from the journal segments on disk, or from the latest
+// snapshot when it starts empty and the segments no longer reach back far
+// enough. A replica whose queue grows past the limit is disconnected; it
+// reconnects and catches up from disk.
+public class ReplicationPrimary implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ReplicationPrimary.class);
+    private static final int MAX_BATCH_BYTES = 1 << 20;
+    private static final long MAX_QUEUED_BYTES = 64L << 20;
+    static final long HEARTBEAT_MILLIS = 500;
+
+    private final LibraryPersistence persistence;
+    private final InetSocketAddress address;
+    private final Set<Session> sessions;
+    private final JournalListener listener;
+    private final AtomicInteger sessionCounter;
+    private ServerSocket serverSocket;
+    private Thread acceptThread;
+    private volatile boolean running;
+
+    // Listens on the loopback interface only.
+    public ReplicationPrimary(LibraryPersistence persistence, int port) {
+        this(persistence, new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+
+    public ReplicationPrimary(LibraryPersistence persistence, InetSocketAddress address) {
+        this.persistence = persistence;
+        this.address = address;
+        this.sessions = ConcurrentHashMap.newKeySet();
+        this.listener = this::entriesCommitted;
+        this.sessionCounter = new AtomicInteger();
+    }
+
+    public synchronized void start() throws IOException {
+        if (running) {
+            return;
+        }
+        serverSocket = new ServerSocket();
+        serverSocket.bind(address);
+        running = true;
+        persistence.addJournalListener(listener);
+        acceptThread = new Thread(this::acceptLoop, "library-repl-accept");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+        logger.info("Replication primary listening on {}", serverSocket.getLocalSocketAddress());
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    // Entries each connected replica is behind the primary's durable
+    // sequence number, by the last position it acknowledged.
+    public Map<String, Long> getReplicaLag() {
+        long durable = persistence.getDurableSeq();
+        Map<String, Long> lag = new LinkedHashMap<>();
+        for (Session session : sessions) {
+            lag.put(session.name, Math.max(0, durable - session.ackedSeq));
+        }
+        return lag;
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+        }
+        persistence.removeJournalListener(listener);
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close replication socket", e);
+        }
+        for (Session session : new ArrayList<>(sessions)) {
+            session.close();
+        }
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                Session session = new Session(socket, "replica-" + sessionCounter.incrementAndGet()
+                        + "@" + socket.getRemoteSocketAddress());
+                Thread thread = new Thread(session::run, "library-repl-" + sessionCounter.get());
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                if (running) {
+                    logger.error("Failed to accept replica connection", e);
+                }
+            }
+        }
+    }
+
+    // Runs on the committing thread under the journal's flush lock: one copy
+    // is shared by every replica's queue.
+    private void entriesCommitted(ByteBuffer entries, long firstSeq, long lastSeq) {
+        if (sessions.isEmpty()) {
+            return;
+        }
+        byte[] bytes = new byte[entries.remaining()];
+        entries.get(bytes);
+        Batch batch = new Batch(firstSeq, lastSeq, bytes);
+        for (Session session : sessions) {
+            session.offer(batch);
+        }
+    }
+
+    private static final class Batch {
+        private final long firstSeq;
+        private final long lastSeq;
+        private final byte[] entries;
+
+        Batch(long firstSeq, long lastSeq, byte[] entries) {
+            this.firstSeq = firstSeq;
+            this.lastSeq = lastSeq;
+            this.entries = entries;
+        }
+    }
+
+    private final class Session {
+        private final Socket socket;
+        private final String name;
+        private final LinkedBlockingQueue<Batch> queue;
+        private final AtomicLong queuedBytes;
+        private DataOutputStream out;
+        private long sentSeq;
+        private long subscribedSeq;
+        private volatile long ackedSeq;
+        private volatile boolean closed;
+
+        Session(Socket socket, String name) {
+            this.socket = socket;
+            this.name = name;
+            this.queue = new LinkedBlockingQueue<>();
+            this.queuedBytes = new AtomicLong();
+        }
+
+        void offer(Batch batch) {
+            if (closed) {
+                return;
+            }
+            if (queuedBytes.addAndGet(batch.entries.length) > MAX_QUEUED_BYTES) {
+                logger.warn("Replica {} fell too far behind, disconnecting it", name);
+                close();
+                return;
+            }
+            queue.add(batch);
+        }
+
+        void run() {
+            try {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+                if (in.readInt() != ReplicationProtocol.MAGIC || in.readInt() != ReplicationProtocol.VERSION) {
+                    sendError("Unsupported replication protocol");
+                    return;
+                }
+                sentSeq = in.readLong();
+                ackedSeq = sentSeq;
+                // Subscribe before reading the disk, so no batch falls between
+                // the two; batches already sent from disk are skipped below.
+                // Every entry past the durable seq at this point reaches the
+                // queue, so the disk is read no further than that.
+                sessions.add(this);
+                subscribedSeq = persistence.getDurableSeq();
+                startAckReader(in);
+                logger.info("Replica {} connected after seq {}", name, sentSeq);
+                if (!catchUp()) {
+                    return;
+                }
+                streamLive();
+            } catch (IOException | UncheckedIOException e) {
+                if (!closed) {
+                    logger.info("Replica {} disconnected: {}", name, e.getMessage());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                close();
+            }
+        }
+
+        private boolean catchUp() throws IOException {
+            if (persistence.readJournal(sentSeq, subscribedSeq, this::sendFromDisk)) {
+                out.flush();
+                return true;
+            }
+            Optional<Path> snapshot = persistence.getLatestSnapshot();
+            if (sentSeq != 0 || !snapshot.isPresent()) {
+                sendError("Entries after seq " + sentSeq + " are no longer available; reseed the replica");
+                return false;
+            }
+            sendSnapshot(snapshot.get());
+            sentSeq = LibraryPersistence.snapshotSeq(snapshot.get());
+            if (!persistence.readJournal(sentSeq, subscribedSeq, this::sendFromDisk)) {
+                throw new IOException("Journal moved past the snapshot while sending it");
+            }
+            out.flush();
+            return true;
+        }
+
+        // Streams the file in chunks, so neither side holds all of it.
+        private void sendSnapshot(Path snapshot) throws IOException {
+            try (InputStream file = Files.newInputStream(snapshot)) {
+                long size = Files.size(snapshot);
+                out.writeByte(ReplicationProtocol.SNAPSHOT_BEGIN);
+                out.writeInt(16);
+                out.writeLong(LibraryPersistence.snapshotSeq(snapshot));
+                out.writeLong(size);
+                byte[] chunk = new byte[ReplicationProtocol.SNAPSHOT_CHUNK_BYTES];
+                long remaining = size;
+                while (remaining > 0) {
+                    int length = file.readNBytes(chunk, 0, (int) Math.min(chunk.length, remaining));
+                    if (length == 0) {
+                        throw new IOException("Snapshot " + snapshot.getFileName() + " ended early");
+                    }
+                    out.writeByte(ReplicationProtocol.SNAPSHOT_CHUNK);
+                    out.writeInt(length);
+                    out.write(chunk, 0, length);
+                    remaining -= length;
+                }
+                out.writeByte(ReplicationProtocol.SNAPSHOT_END);
+                out.writeInt(0);
+            }
+        }
+
+        private void sendFromDisk(ByteBuffer entries, long firstSeq, long lastSeq) {
+            try {
+                writeEntries(firstSeq, lastSeq, entries.remaining());
+                byte[] bytes = new byte[entries.remaining()];
+                entries.get(bytes);
+                out.write(bytes);
+                sentSeq = lastSeq;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        // Coalesces queued batches into frames of up to MAX_BATCH_BYTES and
+        // sends a heartbeat when the journal is idle.
+        private void streamLive() throws IOException, InterruptedException {
+            List<Batch> frame = new ArrayList<>();
+            while (!closed) {
+                Batch batch = queue.poll(HEARTBEAT_MILLIS, TimeUnit.MILLISECONDS);
+                if (batch == null) {
+                    out.writeByte(ReplicationProtocol.HEARTBEAT);
+                    out.writeInt(16);
+                    out.writeLong(Math.max(sentSeq, persistence.getDurableSeq()));
+                    out.writeLong(System.currentTimeMillis());
+                    out.flush();
+                    continue;
+                }
+                frame.clear();
+                int bytes = 0;
+                do {
+                    queuedBytes.addAndGet(-batch.entries.length);
+                    if (batch.lastSeq > sentSeq) {
+                        if (batch.firstSeq > sentSeq + 1 && frame.isEmpty()) {
+                            throw new IOException("Replication gap after seq " + sentSeq);
+                        }
+                        frame.add(batch);
+                        bytes += batch.entries.length;
+                    }
+                } while (bytes < MAX_BATCH_BYTES && (batch = queue.poll()) != null);
+                if (frame.isEmpty()) {
+                    continue;
+                }
+                writeEntries(frame.get(0).firstSeq, frame.get(frame.size() - 1).lastSeq, bytes);
+                for (Batch queued : frame) {
+                    out.write(queued.entries);
+                }
+                out.flush();
+                sentSeq = frame.get(frame.size() - 1).lastSeq;
+            }
+        }
+
+        private void writeEntries(long firstSeq, long lastSeq, int bytes) throws IOException {
+            out.writeByte(ReplicationProtocol.ENTRIES);
+            out.writeInt(16 + bytes);
+            out.writeLong(firstSeq);
+            out.writeLong(lastSeq);
+        }
+
+        private void sendError(String message) throws IOException {
+            byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+            out.writeByte(ReplicationProtocol.ERROR);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+            out.flush();
+        }
+
+        private void startAckReader(DataInputStream in) {
+            Thread reader = new Thread(() -> {
+                int[] length = new int[1];
+                try {
+                    while (!closed) {
+                        byte type = ReplicationProtocol.readHeader(in, length);
+                        if (type == ReplicationProtocol.ACK && length[0] == 8) {
+                            ackedSeq = in.readLong();
+                        } else {
+                            in.skipBytes(length[0]);
+                        }
+                    }
+                } catch (IOException e) {
+                    close();
+                }
+            }, Thread.currentThread().getName() + "-acks");
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            sessions.remove(this);
+            queue.clear();
+            try {
+                socket.close();
+            } catch (IOException e) {
+                logger.debug("Failed to close replica socket", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.library.replication;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+// Wire format between primary and replica. The replica opens with MAGIC,
+// VERSION and the last sequence number it has applied; after that both
+// sides exchange frames of type (1) + payload length (4) + payload. ENTRIES
+// carries the first and last sequence numbers (8 + 8) followed by journal
+// entries exactly as the file journal stores them, each with its own CRC.
+// A snapshot goes as SNAPSHOT_BEGIN with its sequence number and size
+// (8 + 8), the file in SNAPSHOT_CHUNK frames of up to SNAPSHOT_CHUNK_BYTES,
+// and an empty SNAPSHOT_END, so its size is not bounded by a frame.
+final class ReplicationProtocol {
+    static final int MAGIC = 0x4C49524C;
+    static final int VERSION = 2;
+
+    // primary to replica
+    static final byte ENTRIES = 1;
+    static final byte SNAPSHOT_BEGIN = 2;
+    static final byte HEARTBEAT = 3;
+    static final byte ERROR = 4;
+    static final byte SNAPSHOT_CHUNK = 6;
+    static final byte SNAPSHOT_END = 7;
+    // replica to primary
+    static final byte ACK = 5;
+
+    static final int MAX_FRAME_BYTES = 256 << 20;
+    static final int SNAPSHOT_CHUNK_BYTES = 1 << 20;
+
+    private ReplicationProtocol() {
+    }
+
+    static void writeLongFrame(DataOutputStream out, byte type, long value) throws IOException {
+        out.writeByte(type);
+        out.writeInt(8);
+        out.writeLong(value);
+    }
+
+    // Reads a frame header and returns the type; the payload length is left
+    // in length[0].
+    static byte readHeader(DataInputStream in, int[] length) throws IOException {
+        byte type = in.readByte();
+        length[0] = in.readInt();
+        if (length[0] < 0 || length[0] > MAX_FRAME_BYTES) {
+            throw new IOException("Bad replication frame length: " + length[0]);
+        }
+        return type;
+    }
+}
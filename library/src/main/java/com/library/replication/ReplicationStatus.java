@@ -0,0 +1,37 @@
+package com.library.replication;
+
+public class ReplicationStatus {
+    private final boolean connected;
+    private final long appliedSeq;
+    private final long primarySeq;
+    private final long lagMillis;
+    private final long reconnects;
+
+    public ReplicationStatus(boolean connected, long appliedSeq, long primarySeq, long lagMillis, long reconnects) {
+        this.connected = connected;
+        this.appliedSeq = appliedSeq;
+        this.primarySeq = primarySeq;
+        this.lagMillis = lagMillis;
+        this.reconnects = reconnects;
+    }
+
+    public boolean isConnected() { return connected; }
+    public long getAppliedSeq() { return appliedSeq; }
+    public long getPrimarySeq() { return primarySeq; }
+    public long getReconnects() { return reconnects; }
+
+    // Entries the primary has committed that this replica has not applied,
+    // as of the last frame from the primary.
+    public long getLagEntries() {
+        return Math.max(0, primarySeq - appliedSeq);
+    }
+
+    // How long the replica has been behind the primary; 0 when caught up.
+    public long getLagMillis() { return lagMillis; }
+
+    @Override
+    public String toString() {
+        return String.format("ReplicationStatus{Connected=%s, AppliedSeq=%d, PrimarySeq=%d, LagEntries=%d, LagMillis=%d, Reconnects=%d}",
+                connected, appliedSeq, primarySeq, getLagEntries(), lagMillis, reconnects);
+    }
+}
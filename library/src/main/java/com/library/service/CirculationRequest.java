@@ -0,0 +1,19 @@
+package com.library.service;
+
+public class CirculationRequest {
+    private final String patronId;
+    private final String isbn;
+
+    public CirculationRequest(String patronId, String isbn) {
+        this.patronId = patronId;
+        this.isbn = isbn;
+    }
+
+    public String getPatronId() { return patronId; }
+    public String getIsbn() { return isbn; }
+
+    @Override
+    public String toString() {
+        return String.format("CirculationRequest{PatronID='%s', ISBN='%s'}", patronId, isbn);
+    }
+}
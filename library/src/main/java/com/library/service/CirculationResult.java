@@ -0,0 +1,37 @@
+package com.library.service;
+
+import com.library.model.BorrowRecord;
+
+// Outcome of one item of a batch checkout or return. The record is the loan
+// that was opened or closed, and null when the item was rejected.
+public class CirculationResult {
+    public enum Status {
+        CHECKED_OUT, RETURNED, PATRON_NOT_FOUND, BOOK_NOT_FOUND, NOT_AVAILABLE, LIMIT_REACHED, NOT_BORROWED
+    }
+
+    private final Status status;
+    private final String patronId;
+    private final String isbn;
+    private final BorrowRecord record;
+
+    CirculationResult(Status status, String patronId, String isbn, BorrowRecord record) {
+        this.status = status;
+        this.patronId = patronId;
+        this.isbn = isbn;
+        this.record = record;
+    }
+
+    public Status getStatus() { return status; }
+    public String getPatronId() { return patronId; }
+    public String getIsbn() { return isbn; }
+    public BorrowRecord getRecord() { return record; }
+
+    public boolean isSuccess() {
+        return record != null;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CirculationResult{Status=%s, PatronID='%s', ISBN='%s'}", status, patronId, isbn);
+    }
+}
@@ -0,0 +1,68 @@
+package com.library.service;
+
+import com.library.hold.Hold;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Periodic job that expires holds nobody picked up in time and passes each
+// copy on to the next patron in line. Ready holds are indexed by pickup
+// deadline, so a sweep with nothing to expire only looks at the earliest one.
+public class HoldExpirySweep implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(HoldExpirySweep.class);
+
+    private final Library library;
+    private ScheduledExecutorService scheduler;
+
+    public HoldExpirySweep(Library library) {
+        this.library = library;
+    }
+
+    // Sweeps now and then after every period.
+    public synchronized void start(long period, TimeUnit unit) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "library-hold-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::sweepQuietly, 0, period, unit);
+    }
+
+    public List<Hold> sweep() {
+        return sweep(LocalDate.now());
+    }
+
+    public List<Hold> sweep(LocalDate today) {
+        long start = System.nanoTime();
+        List<Hold> expired = library.expireHolds(today);
+        if (!expired.isEmpty()) {
+            logger.info("Hold expiry for {} expired {} holds in {} ms", today, expired.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+        return expired;
+    }
+
+    private void sweepQuietly() {
+        try {
+            sweep();
+        } catch (RuntimeException e) {
+            logger.error("Hold expiry sweep failed", e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler = null;
+        }
+    }
+}
@@ -0,0 +1,1422 @@
+package com.library.service;
+
+import com.library.model.Book;
+import com.library.model.Patron;
+import com.library.model.BorrowRecord;
+import com.library.cache.QueryCache;
+import com.library.patterns.*;
+import com.library.filter.BookFilter;
+import com.library.filter.BookQuery;
+import com.library.hold.Hold;
+import com.library.hold.HoldQueues;
+import com.library.index.Bm25Index;
+import com.library.index.BookBitmapIndex;
+import com.library.index.DueDateIndex;
+import com.library.index.IsbnIndex;
+import com.library.index.NGramIndex;
+import com.library.index.RankedPage;
+import com.library.index.TernarySearchTrie;
+import com.library.metrics.LibraryMetrics;
+import com.library.metrics.LibraryMetrics.Operation;
+import com.library.notification.NotificationDispatcher;
+import com.library.store.BookCatalog;
+import com.library.store.HeapBookCatalog;
+import com.library.store.OrdinalTable;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+public class Library {
+    private static final int MAX_BORROWED_BOOKS = 5;
+    private static final int AUTOCOMPLETE_MAX_EDITS = 2;
+    private static final int AUTOCOMPLETE_LIMIT = 10;
+    private static final int HOLD_PICKUP_DAYS = 7;
+    private static final ThreadLocal<Boolean> REPLAYING = ThreadLocal.withInitial(() -> false);
+    
+    private final BookCatalog books;
+    // Patron IDs and ISBNs are only hashed at the API boundary; past it,
+    // books and patrons are addressed by their dense ordinals.
+    private final Map<String, Patron> patrons;
+    private final OrdinalTable<Patron> patronsByOrdinal;
+    private final OrdinalTable<BorrowRecord> loansByBook;
+    private final OrdinalTable<ObservableBook> observableBooks;
+    private final Set<String> heldBooks;
+    private final HoldQueues holds;
+    private final SearchService searchService;
+    private final IsbnIndex isbnIndex;
+    private final DueDateIndex dueDates;
+    private final AtomicInteger availableBooks;
+    private final NGramIndex titleIndex;
+    private final NGramIndex authorIndex;
+    private final BookBitmapIndex bitmaps;
+    private final Bm25Index rankedIndex;
+    private final TernarySearchTrie titleTrie;
+    private final TernarySearchTrie authorTrie;
+    private final SearchStrategy titleAutocomplete;
+    private final SearchStrategy authorAutocomplete;
+    private final QueryPlanner planner;
+    private final SearchStrategy titleSearch;
+    private final SearchStrategy authorSearch;
+    private final AtomicLong recordIdCounter;
+    private final AtomicInteger patronOrdinalCounter;
+    private final StripedLocks circulationLocks;
+    private final ReadWriteLock catalogLock;
+    private final LibraryMetrics metrics;
+    private volatile LibraryJournal journal;
+    private volatile NotificationDispatcher notifications;
+    private volatile QueryCache queryCache;
+    private volatile boolean readOnly;
+    
+    public Library() {
+        this(Runtime.getRuntime().availableProcessors() * 4);
+    }
+    
+    public Library(int lockStripes) {
+        this(new HeapBookCatalog(), lockStripes);
+    }
+    
+    public Library(BookCatalog catalog) {
+        this(catalog, Runtime.getRuntime().availableProcessors() * 4);
+    }
+    
+    // Off-heap catalogs skip the n-gram and bitmap indexes, which would otherwise
+    // pin a heap object per book; title and author searches then scan the catalog.
+    public Library(BookCatalog catalog, int lockStripes) {
+        this.books = catalog;
+        this.patrons = new ConcurrentHashMap<>();
+        this.patronsByOrdinal = new OrdinalTable<>();
+        this.loansByBook = new OrdinalTable<>();
+        this.observableBooks = new OrdinalTable<>();
+        this.heldBooks = ConcurrentHashMap.newKeySet();
+        this.holds = new HoldQueues();
+        this.searchService = new SearchService(SearchService.DEFAULT_SEQUENTIAL_THRESHOLD);
+        this.isbnIndex = new IsbnIndex();
+        this.dueDates = new DueDateIndex();
+        this.availableBooks = new AtomicInteger();
+        if (catalog.isOffHeap()) {
+            this.titleIndex = null;
+            this.authorIndex = null;
+            this.bitmaps = null;
+            this.rankedIndex = null;
+            this.titleTrie = null;
+            this.authorTrie = null;
+            this.titleAutocomplete = null;
+            this.authorAutocomplete = null;
+            this.titleSearch = new TitleSearchStrategy();
+            this.authorSearch = new AuthorSearchStrategy();
+        } else {
+            this.titleIndex = new NGramIndex(Book::getFoldedTitle, catalog::getByOrdinal);
+            this.authorIndex = new NGramIndex(Book::getFoldedAuthor, catalog::getByOrdinal);
+            this.bitmaps = new BookBitmapIndex(catalog::getByOrdinal);
+            this.rankedIndex = new Bm25Index(catalog::getByOrdinal);
+            this.titleTrie = new TernarySearchTrie(Book::getFoldedTitle, catalog::getByOrdinal);
+            this.authorTrie = new TernarySearchTrie(Book::getFoldedAuthor, catalog::getByOrdinal);
+            this.titleAutocomplete = new AutocompleteSearchStrategy(CacheTerms.TITLE, titleTrie, AUTOCOMPLETE_MAX_EDITS, AUTOCOMPLETE_LIMIT);
+            this.authorAutocomplete = new AutocompleteSearchStrategy(CacheTerms.AUTHOR, authorTrie, AUTOCOMPLETE_MAX_EDITS, AUTOCOMPLETE_LIMIT);
+            this.titleSearch = new IndexedSearchStrategy(CacheTerms.TITLE, titleIndex);
+            this.authorSearch = new IndexedSearchStrategy(CacheTerms.AUTHOR, authorIndex);
+        }
+        this.planner = new QueryPlanner(catalog, titleIndex, authorIndex, bitmaps);
+        this.recordIdCounter = new AtomicLong(1);
+        this.patronOrdinalCounter = new AtomicInteger();
+        this.circulationLocks = new StripedLocks(lockStripes);
+        this.catalogLock = new ReentrantReadWriteLock();
+        this.metrics = new LibraryMetrics();
+        this.notifications = new NotificationDispatcher();
+        for (Book book : catalog.values()) {
+            indexBook(book);
+        }
+    }
+    
+    // A read-only library, such as a replica, rejects every change with a
+    // ReadOnlyLibraryException except those applied through applyReplayed.
+    public void setReadOnly(boolean readOnly) {
+        this.readOnly = readOnly;
+    }
+    
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+    
+    // Runs changes read back from a journal or snapshot, which a read-only
+    // library accepts.
+    public void applyReplayed(Runnable changes) {
+        boolean outer = REPLAYING.get();
+        REPLAYING.set(true);
+        try {
+            changes.run();
+        } finally {
+            REPLAYING.set(outer);
+        }
+    }
+    
+    private void checkWritable() {
+        if (readOnly && !REPLAYING.get()) {
+            throw new ReadOnlyLibraryException();
+        }
+    }
+    
+    public void setJournal(LibraryJournal journal) {
+        this.journal = journal;
+    }
+    
+    public LibraryJournal getJournal() {
+        return journal;
+    }
+    
+    public LibraryMetrics getMetrics() {
+        return metrics;
+    }
+    
+    // Strategy searches are not cached until a cache is set; a null cache
+    // sends every strategy search to the indexes or the catalog again.
+    public void setQueryCache(QueryCache queryCache) {
+        this.queryCache = queryCache;
+    }
+    
+    public QueryCache getQueryCache() {
+        return queryCache;
+    }
+    
+    private void bookChanged(Book book) {
+        QueryCache cache = queryCache;
+        if (cache != null) {
+            cache.bookChanged(book);
+        }
+    }
+    
+    // A null dispatcher delivers notifications synchronously on the caller's thread.
+    public void setNotificationDispatcher(NotificationDispatcher notifications) {
+        this.notifications = notifications;
+    }
+    
+    public NotificationDispatcher getNotificationDispatcher() {
+        return notifications;
+    }
+    
+    private void commitJournal() {
+        LibraryJournal current = journal;
+        if (current != null) {
+            current.commit();
+        }
+    }
+    
+    public boolean addBook(BookFactory.BookType type, String isbn, String title, 
+                          String author, int publicationYear) {
+        if (books.containsKey(isbn)) {
+            return false;
+        }
+        return addBook(BookFactory.createBook(type, isbn, title, author, publicationYear));
+    }
+    
+    public boolean addBook(Book book) {
+        checkWritable();
+        catalogLock.writeLock().lock();
+        try {
+            Book stored = books.add(book);
+            if (stored == null) {
+                return false;
+            }
+            indexBook(stored);
+            bookChanged(stored);
+            LibraryJournal current = journal;
+            if (current != null) {
+                current.bookAdded(stored);
+            }
+        } finally {
+            catalogLock.writeLock().unlock();
+        }
+        commitJournal();
+        return true;
+    }
+    
+    // Adds every book under a single catalog lock and journal commit; books
+    // whose ISBN already exists are skipped. Returns how many were added.
+    // A bulk add clears the query cache rather than checking every entry
+    // against every new book.
+    public int addBooks(Collection<Book> newBooks) {
+        checkWritable();
+        int added = 0;
+        catalogLock.writeLock().lock();
+        try {
+            LibraryJournal current = journal;
+            for (Book book : newBooks) {
+                Book stored = books.add(book);
+                if (stored == null) {
+                    continue;
+                }
+                indexBook(stored);
+                if (current != null) {
+                    current.bookAdded(stored);
+                }
+                added++;
+            }
+            QueryCache cache = queryCache;
+            if (added > 0 && cache != null) {
+                cache.clear();
+            }
+        } finally {
+            catalogLock.writeLock().unlock();
+        }
+        commitJournal();
+        return added;
+    }
+    
+    private void indexBook(Book book) {
+        isbnIndex.add(book.getIsbn());
+        if (book.isAvailable()) {
+            availableBooks.incrementAndGet();
+        }
+        if (titleIndex != null) {
+            titleIndex.add(book);
+            authorIndex.add(book);
+            bitmaps.add(book);
+            rankedIndex.add(book);
+            titleTrie.add(book);
+            authorTrie.add(book);
+        }
+    }
+    
+    private void unindexBook(Book book) {
+        isbnIndex.remove(book.getIsbn());
+        if (book.isAvailable()) {
+            availableBooks.decrementAndGet();
+        }
+        if (titleIndex != null) {
+            titleIndex.remove(book);
+            authorIndex.remove(book);
+            bitmaps.remove(book);
+            rankedIndex.remove(book);
+            titleTrie.remove(book);
+            authorTrie.remove(book);
+        }
+    }
+    
+    public List<Book> searchWithStrategy(SearchStrategy strategy, String query) {
+        return searchWithStrategy(Operation.SEARCH_STRATEGY, strategy, query);
+    }
+    
+    private List<Book> searchWithStrategy(Operation operation, SearchStrategy strategy, String query) {
+        long start = System.nanoTime();
+        QueryCache cache = queryCache;
+        List<Book> results = cache == null
+                ? runStrategy(strategy, query)
+                : cache.get(strategy, query, () -> runStrategy(strategy, query));
+        metrics.record(operation, start);
+        return results;
+    }
+    
+    private List<Book> runStrategy(SearchStrategy strategy, String query) {
+        if (strategy instanceof IndexedSearchStrategy) {
+            catalogLock.readLock().lock();
+            try {
+                return ((IndexedSearchStrategy) strategy).search(query);
+            } finally {
+                catalogLock.readLock().unlock();
+            }
+        }
+        if (strategy instanceof AutocompleteSearchStrategy) {
+            catalogLock.readLock().lock();
+            try {
+                return ((AutocompleteSearchStrategy) strategy).search(query);
+            } finally {
+                catalogLock.readLock().unlock();
+            }
+        }
+        return searchService.performSearch(new ArrayList<>(books.values()), strategy, query);
+    }
+    
+    public List<Book> searchByTitle(String title) {
+        return searchWithStrategy(Operation.SEARCH_TITLE, titleSearch, title);
+    }
+    
+    public List<Book> searchByAuthor(String author) {
+        return searchWithStrategy(Operation.SEARCH_AUTHOR, authorSearch, author);
+    }
+    
+    // Completions for a partially typed title or author, tolerating up to two
+    // typos once the exact completions run out. Only heap catalogs carry the tries.
+    public List<Book> autocompleteTitle(String prefix) {
+        if (titleAutocomplete == null) {
+            throw new UnsupportedOperationException("Autocomplete needs a heap catalog");
+        }
+        return searchWithStrategy(Operation.AUTOCOMPLETE, titleAutocomplete, prefix);
+    }
+    
+    public List<Book> autocompleteAuthor(String prefix) {
+        if (authorAutocomplete == null) {
+            throw new UnsupportedOperationException("Autocomplete needs a heap catalog");
+        }
+        return searchWithStrategy(Operation.AUTOCOMPLETE, authorAutocomplete, prefix);
+    }
+    
+    // Title and author words ranked by BM25; pass the previous page's cursor
+    // to continue. Only heap catalogs carry the word index.
+    public RankedPage searchRanked(String query, int limit) {
+        return searchRanked(query, limit, null);
+    }
+    
+    public RankedPage searchRanked(String query, int limit, String cursor) {
+        if (rankedIndex == null) {
+            throw new UnsupportedOperationException("Ranked search needs a heap catalog");
+        }
+        long start = System.nanoTime();
+        catalogLock.readLock().lock();
+        try {
+            return rankedIndex.search(query, limit, cursor);
+        } finally {
+            catalogLock.readLock().unlock();
+            metrics.record(Operation.SEARCH_RANKED, start);
+        }
+    }
+    
+    public Optional<Book> searchByIsbn(String isbn) {
+        long start = System.nanoTime();
+        Optional<Book> book = isbn == null ? Optional.empty() : Optional.ofNullable(books.get(isbn));
+        metrics.record(Operation.SEARCH_ISBN, start);
+        return book;
+    }
+    
+    // Accepts ISBN-10 or ISBN-13 with or without separators.
+    public Optional<Book> searchByNormalizedIsbn(String isbn) {
+        long start = System.nanoTime();
+        String stored;
+        catalogLock.readLock().lock();
+        try {
+            stored = isbnIndex.find(isbn);
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+        Optional<Book> book = stored == null ? Optional.empty() : Optional.ofNullable(books.get(stored));
+        metrics.record(Operation.SEARCH_ISBN, start);
+        return book;
+    }
+    
+    // Resolves a batch of scanned ISBNs in one call. The result keeps the input
+    // order and only contains the ISBNs that matched a book.
+    public Map<String, Book> searchByIsbns(Collection<String> isbns) {
+        Map<String, Book> results = new LinkedHashMap<>();
+        catalogLock.readLock().lock();
+        try {
+            for (String isbn : isbns) {
+                String stored = isbnIndex.find(isbn);
+                Book book = stored == null ? null : books.get(stored);
+                if (book != null) {
+                    results.put(isbn, book);
+                }
+            }
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+        return results;
+    }
+    
+    public void subscribeToBook(String patronId, String bookIsbn) {
+        Book book = books.get(bookIsbn);
+        if (book == null) {
+            return;
+        }
+        ObservableBook observable = observableBooks.get(book.getOrdinal());
+        if (observable == null) {
+            ObservableBook created = new ObservableBook(book);
+            observable = observableBooks.putIfAbsent(book.getOrdinal(), created);
+            if (observable == null) {
+                observable = created;
+            }
+        }
+        observable.addObserver(new PatronNotification(patronId));
+        System.out.println("Patron " + patronId + " subscribed to book " + bookIsbn);
+    }
+    
+    public boolean checkoutBook(String patronId, String bookIsbn) {
+        checkWritable();
+        long start = System.nanoTime();
+        boolean checkedOut = checkout(patronId, bookIsbn);
+        metrics.record(Operation.CHECKOUT, start, checkedOut);
+        return checkedOut;
+    }
+    
+    private boolean checkout(String patronId, String bookIsbn) {
+        Patron patron = patrons.get(patronId);
+        if (patron == null) {
+            return false;
+        }
+        
+        int patronStripe = circulationLocks.stripeFor(patronId);
+        int bookStripe = circulationLocks.stripeFor(bookIsbn);
+        circulationLocks.lock(patronStripe, bookStripe);
+        try {
+            Book book = books.get(bookIsbn);
+            if (book == null || !canLend(book, patronId)) {
+                return false;
+            }
+            
+            if (patron.getCurrentlyBorrowedCount() >= MAX_BORROWED_BOOKS) {
+                return false;
+            }
+            
+            LocalDate borrowDate = LocalDate.now();
+            LocalDate dueDate = borrowDate.plusWeeks(3);
+            
+            BorrowRecord record = new BorrowRecord(recordIdCounter.getAndIncrement(), patron, book,
+                    borrowDate, dueDate);
+            
+            applyCheckout(patron, book, record);
+            LibraryJournal current = journal;
+            if (current != null) {
+                current.bookCheckedOut(record);
+            }
+            fulfilHold(book);
+        } finally {
+            circulationLocks.unlock(patronStripe, bookStripe);
+        }
+        commitJournal();
+        return true;
+    }
+    
+    // A book can be lent when it is on the shelf, or when it is set aside for
+    // this patron's hold.
+    private boolean canLend(Book book, String patronId) {
+        if (loansByBook.get(book.getOrdinal()) != null) {
+            return false;
+        }
+        Hold ready = holds.readyHold(book.getIsbn());
+        return ready != null ? ready.getPatronId().equals(patronId) : book.isAvailable();
+    }
+    
+    private void applyCheckout(Patron patron, Book book, BorrowRecord record) {
+        loansByBook.set(book.getOrdinal(), record);
+        dueDates.add(record);
+        patron.addBorrowRecord(record);
+        setAvailability(book, false);
+    }
+    
+    // Closes the hold the book was set aside for once its patron has checked
+    // it out. Called with the book's stripe held.
+    private void fulfilHold(Book book) {
+        Hold ready = holds.readyHold(book.getIsbn());
+        if (ready != null && holds.fulfil(ready)) {
+            LibraryJournal current = journal;
+            if (current != null) {
+                current.holdClosed(ready);
+            }
+        }
+    }
+    
+    private void setAvailability(Book book, boolean available) {
+        if (book.isAvailable() != available) {
+            book.setAvailable(available);
+            if (available) {
+                availableBooks.incrementAndGet();
+            } else {
+                availableBooks.decrementAndGet();
+            }
+            if (bitmaps != null) {
+                bitmaps.setAvailable(book, available);
+            }
+            QueryCache cache = queryCache;
+            if (cache != null) {
+                cache.availabilityChanged(book);
+            }
+        }
+    }
+    
+    // Closes the loan; the caller decides where the copy goes next.
+    private void applyReturn(Book book, BorrowRecord record, LocalDate returnDate) {
+        record.setReturnDate(returnDate);
+        loansByBook.set(book.getOrdinal(), null);
+        dueDates.remove(record);
+        Patron patron = patronsByOrdinal.get(record.getPatronOrdinal());
+        if (patron != null) {
+            patron.completeBorrowRecord(record);
+        }
+    }
+    
+    // A copy coming back goes to the head of the book's waitlist and stays off
+    // the shelf until the pickup deadline; with nobody waiting it becomes
+    // available. The assignment is journaled; the caller commits it. Called
+    // with the book's stripe held.
+    private Hold reshelve(Book book, LocalDate today) {
+        Hold hold = holds.assignNext(book.getIsbn(), today.plusDays(HOLD_PICKUP_DAYS));
+        setAvailability(book, hold == null);
+        if (hold != null) {
+            LibraryJournal current = journal;
+            if (current != null) {
+                current.holdAssigned(hold);
+            }
+        }
+        return hold;
+    }
+    
+    // Tells the patron a copy was assigned to, or every subscriber when the
+    // copy went back on the shelf.
+    private void announce(Book book, Hold assigned) {
+        ObservableBook observable;
+        String message;
+        if (assigned != null) {
+            observable = new ObservableBook(book);
+            observable.addObserver(new PatronNotification(assigned.getPatronId()));
+            message = "is on hold for you until " + assigned.getPickupDeadline();
+        } else {
+            observable = observableBooks.get(book.getOrdinal());
+            message = "is now available for checkout";
+        }
+        if (observable != null) {
+            publish(observable, message);
+        }
+    }
+    
+    // Tells each patron whose hold closed with the book leaving the catalog.
+    private void announceWithdrawn(Book book, List<Hold> cancelled) {
+        for (Hold hold : cancelled) {
+            ObservableBook observable = new ObservableBook(book);
+            observable.addObserver(new PatronNotification(hold.getPatronId()));
+            publish(observable, "was removed from the catalog; your hold is cancelled");
+        }
+    }
+    
+    private void publish(ObservableBook observable, String message) {
+        NotificationDispatcher dispatcher = notifications;
+        if (dispatcher != null) {
+            dispatcher.publish(observable, message);
+        } else {
+            observable.notifyObservers(message);
+        }
+    }
+    
+    // Used when rebuilding state from a snapshot or journal: the record keeps
+    // its original ID and dates, and closed records only go to patron history.
+    // The library stores a copy bound to its own patron and book.
+    public boolean restoreBorrowRecord(BorrowRecord record) {
+        checkWritable();
+        Patron patron = patrons.get(record.getPatronId());
+        if (patron == null) {
+            return false;
+        }
+        if (record.getRecordNumber() >= 0) {
+            recordIdCounter.accumulateAndGet(record.getRecordNumber() + 1, Math::max);
+        }
+        Book book = books.get(record.getBookIsbn());
+        if (!record.isActive()) {
+            patron.addBorrowRecord(record.boundTo(patron, book));
+            return true;
+        }
+        if (book == null || loansByBook.get(book.getOrdinal()) != null) {
+            return false;
+        }
+        applyCheckout(patron, book, record.boundTo(patron, book));
+        return true;
+    }
+    
+    // Restores a loan made by lendHeldBook to a patron of another library.
+    public boolean restoreRemoteLoan(BorrowRecord record) {
+        checkWritable();
+        Book book = books.get(record.getBookIsbn());
+        if (book == null || loansByBook.get(book.getOrdinal()) != null) {
+            return false;
+        }
+        if (record.getRecordNumber() >= 0) {
+            recordIdCounter.accumulateAndGet(record.getRecordNumber() + 1, Math::max);
+        }
+        BorrowRecord loan = new BorrowRecord(record.getRecordNumber(), record.getPatronId(), book,
+                record.getBorrowDate(), record.getDueDate());
+        loansByBook.set(book.getOrdinal(), loan);
+        dueDates.add(loan);
+        setAvailability(book, false);
+        return true;
+    }
+    
+    // Restores loan slots reserved by or released for a patron of this library.
+    public boolean restoreRemoteLoanSlots(String patronId, int delta) {
+        checkWritable();
+        Patron patron = patrons.get(patronId);
+        if (patron == null) {
+            return false;
+        }
+        patron.adjustRemoteLoans(delta);
+        return true;
+    }
+    
+    public boolean restoreReturn(String bookIsbn, LocalDate returnDate) {
+        checkWritable();
+        Book book = books.get(bookIsbn);
+        BorrowRecord record = book == null ? null : loansByBook.get(book.getOrdinal());
+        if (record == null) {
+            return false;
+        }
+        applyReturn(book, record, returnDate);
+        // A copy that went to a waiting hold has its own journal entry next.
+        setAvailability(book, true);
+        return true;
+    }
+    
+    public boolean returnBook(String bookIsbn) {
+        checkWritable();
+        long start = System.nanoTime();
+        boolean returned = returnLoan(bookIsbn);
+        metrics.record(Operation.RETURN, start, returned);
+        return returned;
+    }
+    
+    private boolean returnLoan(String bookIsbn) {
+        int bookStripe = circulationLocks.stripeFor(bookIsbn);
+        Book book;
+        Hold assigned;
+        while (true) {
+            book = books.get(bookIsbn);
+            BorrowRecord record = book == null ? null : loansByBook.get(book.getOrdinal());
+            if (record == null) {
+                return false;
+            }
+            
+            // The owning patron is only known after reading the record, so the
+            // record is re-checked once both stripes are held.
+            int patronStripe = circulationLocks.stripeFor(record.getPatronId());
+            circulationLocks.lock(patronStripe, bookStripe);
+            try {
+                if (loansByBook.get(book.getOrdinal()) != record) {
+                    continue;
+                }
+                
+                applyReturn(book, record, LocalDate.now());
+                LibraryJournal current = journal;
+                if (current != null) {
+                    current.bookReturned(record);
+                }
+                assigned = reshelve(book, record.getReturnDate());
+            } finally {
+                circulationLocks.unlock(patronStripe, bookStripe);
+            }
+            break;
+        }
+        commitJournal();
+        announce(book, assigned);
+        return true;
+    }
+    
+    // Checks out every requested book in one pass: patrons and books are
+    // resolved once, all involved stripes are locked together, each patron's
+    // loan count is read once, and the journal is committed once. Items are
+    // applied in order, so a book requested twice goes to the first request.
+    // Results are in request order.
+    public List<CirculationResult> checkoutBooks(Collection<CirculationRequest> requests) {
+        checkWritable();
+        long start = System.nanoTime();
+        LocalDate borrowDate = LocalDate.now();
+        LocalDate dueDate = borrowDate.plusWeeks(3);
+        List<CirculationRequest> items = new ArrayList<>(requests);
+        CirculationResult[] results = new CirculationResult[items.size()];
+        Patron[] itemPatrons = new Patron[items.size()];
+        Map<String, Patron> batchPatrons = new HashMap<>();
+        Map<Patron, Integer> remainingLoans = new IdentityHashMap<>();
+        boolean[] stripes = new boolean[circulationLocks.size()];
+        for (int i = 0; i < items.size(); i++) {
+            CirculationRequest request = items.get(i);
+            Patron patron = batchPatrons.computeIfAbsent(request.getPatronId(), patrons::get);
+            if (patron == null) {
+                results[i] = new CirculationResult(CirculationResult.Status.PATRON_NOT_FOUND,
+                        request.getPatronId(), request.getIsbn(), null);
+                continue;
+            }
+            itemPatrons[i] = patron;
+            remainingLoans.put(patron, 0);
+            stripes[circulationLocks.stripeFor(request.getPatronId())] = true;
+            stripes[circulationLocks.stripeFor(request.getIsbn())] = true;
+        }
+
+        int rejected = 0;
+        circulationLocks.lock(stripes);
+        try {
+            for (Patron patron : remainingLoans.keySet()) {
+                remainingLoans.put(patron, MAX_BORROWED_BOOKS - patron.getCurrentlyBorrowedCount());
+            }
+            LibraryJournal current = journal;
+            for (int i = 0; i < items.size(); i++) {
+                if (results[i] != null) {
+                    rejected++;
+                    continue;
+                }
+                Patron patron = itemPatrons[i];
+                CirculationRequest request = items.get(i);
+                Book book = books.get(request.getIsbn());
+                if (book == null) {
+                    results[i] = new CirculationResult(CirculationResult.Status.BOOK_NOT_FOUND,
+                            request.getPatronId(), request.getIsbn(), null);
+                    rejected++;
+                    continue;
+                }
+                if (!canLend(book, request.getPatronId())) {
+                    results[i] = new CirculationResult(CirculationResult.Status.NOT_AVAILABLE,
+                            request.getPatronId(), request.getIsbn(), null);
+                    rejected++;
+                    continue;
+                }
+                int remaining = remainingLoans.get(patron);
+                if (remaining <= 0) {
+                    results[i] = new CirculationResult(CirculationResult.Status.LIMIT_REACHED,
+                            request.getPatronId(), request.getIsbn(), null);
+                    rejected++;
+                    continue;
+                }
+                BorrowRecord record = new BorrowRecord(recordIdCounter.getAndIncrement(), patron, book,
+                        borrowDate, dueDate);
+                applyCheckout(patron, book, record);
+                if (current != null) {
+                    current.bookCheckedOut(record);
+                }
+                fulfilHold(book);
+                remainingLoans.put(patron, remaining - 1);
+                results[i] = new CirculationResult(CirculationResult.Status.CHECKED_OUT,
+                        request.getPatronId(), request.getIsbn(), record);
+            }
+        } finally {
+            circulationLocks.unlock(stripes);
+        }
+        commitJournal();
+        metrics.record(Operation.CHECKOUT_BATCH, start, rejected);
+        return Arrays.asList(results);
+    }
+    
+    // Returns every listed book in one pass, under one lock acquisition and
+    // one journal commit, with one return date for the whole batch. Observers
+    // are notified after the locks are released. Results are in input order.
+    public List<CirculationResult> returnBooks(Collection<String> isbns) {
+        checkWritable();
+        long start = System.nanoTime();
+        LocalDate returnDate = LocalDate.now();
+        List<String> items = new ArrayList<>(isbns);
+        CirculationResult[] results = new CirculationResult[items.size()];
+        Book[] itemBooks = new Book[items.size()];
+        Hold[] assigned = new Hold[items.size()];
+        int rejected = 0;
+        boolean[] stripes = new boolean[circulationLocks.size()];
+        for (int i = 0; i < items.size(); i++) {
+            itemBooks[i] = books.get(items.get(i));
+        }
+        while (true) {
+            // The owning patrons are only known from the loans, so the loans
+            // are re-read once the stripes are held and the batch starts over
+            // if one of them now belongs to a patron whose stripe is not held.
+            Arrays.fill(stripes, false);
+            for (int i = 0; i < items.size(); i++) {
+                BorrowRecord record = itemBooks[i] == null ? null : loansByBook.get(itemBooks[i].getOrdinal());
+                if (record != null) {
+                    stripes[circulationLocks.stripeFor(items.get(i))] = true;
+                    stripes[circulationLocks.stripeFor(record.getPatronId())] = true;
+                }
+            }
+            circulationLocks.lock(stripes);
+            try {
+                for (int i = 0; i < items.size(); i++) {
+                    itemBooks[i] = books.get(items.get(i));
+                }
+                if (!coversLoans(itemBooks, stripes)) {
+                    continue;
+                }
+                LibraryJournal current = journal;
+                for (int i = 0; i < items.size(); i++) {
+                    Book book = itemBooks[i];
+                    BorrowRecord record = book == null ? null : loansByBook.get(book.getOrdinal());
+                    if (record == null) {
+                        results[i] = new CirculationResult(book == null ? CirculationResult.Status.BOOK_NOT_FOUND
+                                : CirculationResult.Status.NOT_BORROWED, null, items.get(i), null);
+                        rejected++;
+                        continue;
+                    }
+                    applyReturn(book, record, returnDate);
+                    if (current != null) {
+                        current.bookReturned(record);
+                    }
+                    assigned[i] = reshelve(book, returnDate);
+                    results[i] = new CirculationResult(CirculationResult.Status.RETURNED,
+                            record.getPatronId(), items.get(i), record);
+                }
+            } finally {
+                circulationLocks.unlock(stripes);
+            }
+            break;
+        }
+        commitJournal();
+
+        for (int i = 0; i < items.size(); i++) {
+            if (results[i].isSuccess()) {
+                announce(itemBooks[i], assigned[i]);
+            }
+        }
+        metrics.record(Operation.RETURN_BATCH, start, rejected);
+        return Arrays.asList(results);
+    }
+    
+    // Cross-branch checkouts run in two phases so that no lock is held on two
+    // libraries at once: the patron's library reserves a loan slot and the
+    // book's library holds the book off the shelf; once both succeed the book
+    // is lent, otherwise each reservation is released. Reserved slots and the
+    // remote loan are journaled, each by the library that keeps them; the
+    // short-lived hold between the two phases is not.
+    public boolean reserveLoanSlot(String patronId) {
+        return adjustLoanSlots(patronId, 1);
+    }
+    
+    // Gives back a slot taken by reserveLoanSlot, after an aborted checkout or
+    // once the remote loan is returned.
+    public void releaseLoanSlot(String patronId) {
+        adjustLoanSlots(patronId, -1);
+    }
+    
+    private boolean adjustLoanSlots(String patronId, int delta) {
+        checkWritable();
+        Patron patron = patrons.get(patronId);
+        if (patron == null) {
+            return false;
+        }
+        int stripe = circulationLocks.stripeFor(patronId);
+        circulationLocks.lock(stripe);
+        try {
+            if (delta > 0 ? patron.getCurrentlyBorrowedCount() >= MAX_BORROWED_BOOKS
+                    : patron.getRemoteLoanCount() == 0) {
+                return false;
+            }
+            patron.adjustRemoteLoans(delta);
+            LibraryJournal current = journal;
+            if (current != null) {
+                current.remoteLoansChanged(patronId, delta);
+            }
+        } finally {
+            circulationLocks.unlock(stripe);
+        }
+        commitJournal();
+        return true;
+    }
+    
+    public boolean holdBook(String isbn) {
+        checkWritable();
+        int stripe = circulationLocks.stripeFor(isbn);
+        circulationLocks.lock(stripe);
+        try {
+            Book book = books.get(isbn);
+            if (book == null || !book.isAvailable() || loansByBook.get(book.getOrdinal()) != null
+                    || !heldBooks.add(isbn)) {
+                return false;
+            }
+            setAvailability(book, false);
+            return true;
+        } finally {
+            circulationLocks.unlock(stripe);
+        }
+    }
+    
+    public boolean releaseHeldBook(String isbn) {
+        checkWritable();
+        Book book;
+        Hold assigned = null;
+        int stripe = circulationLocks.stripeFor(isbn);
+        circulationLocks.lock(stripe);
+        try {
+            if (!heldBooks.remove(isbn)) {
+                return false;
+            }
+            book = books.get(isbn);
+            if (book != null) {
+                assigned = reshelve(book, LocalDate.now());
+            }
+        } finally {
+            circulationLocks.unlock(stripe);
+        }
+        commitJournal();
+        if (assigned != null) {
+            announce(book, assigned);
+        }
+        return true;
+    }
+    
+    // Lends a held book to a patron registered at another library. The loan
+    // lives here, so the book is returned here as usual.
+    public BorrowRecord lendHeldBook(String isbn, String patronId) {
+        checkWritable();
+        long start = System.nanoTime();
+        BorrowRecord record;
+        int stripe = circulationLocks.stripeFor(isbn);
+        circulationLocks.lock(stripe);
+        try {
+            Book book = books.get(isbn);
+            if (book == null || !heldBooks.remove(isbn)) {
+                throw new IllegalStateException("Book is not held: " + isbn);
+            }
+            LocalDate borrowDate = LocalDate.now();
+            record = new BorrowRecord(recordIdCounter.getAndIncrement(), patronId, book,
+                    borrowDate, borrowDate.plusWeeks(3));
+            loansByBook.set(book.getOrdinal(), record);
+            dueDates.add(record);
+            LibraryJournal current = journal;
+            if (current != null) {
+                current.bookLentRemotely(record);
+            }
+        } finally {
+            circulationLocks.unlock(stripe);
+        }
+        commitJournal();
+        metrics.record(Operation.CHECKOUT, start, true);
+        return record;
+    }
+    
+    private boolean coversLoans(Book[] itemBooks, boolean[] stripes) {
+        for (Book book : itemBooks) {
+            BorrowRecord record = book == null ? null : loansByBook.get(book.getOrdinal());
+            if (record != null && (!stripes[circulationLocks.stripeFor(record.getBookIsbn())]
+                    || !stripes[circulationLocks.stripeFor(record.getPatronId())])) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    public Optional<Hold> placeHold(String patronId, String bookIsbn) {
+        return placeHold(patronId, bookIsbn, 0);
+    }
+    
+    // Joins the book's waitlist; holds with a higher priority are served
+    // first. A book on the shelf is set aside for the new hold at once.
+    // Rejected when the patron or book is unknown, or the patron already has
+    // the book on loan or on hold.
+    public Optional<Hold> placeHold(String patronId, String bookIsbn, int priority) {
+        checkWritable();
+        long start = System.nanoTime();
+        Hold hold = enqueueHold(patronId, bookIsbn, priority);
+        metrics.record(Operation.PLACE_HOLD, start, hold != null);
+        return Optional.ofNullable(hold);
+    }
+    
+    private Hold enqueueHold(String patronId, String bookIsbn, int priority) {
+        if (!patrons.containsKey(patronId)) {
+            return null;
+        }
+        Book book;
+        Hold hold;
+        Hold assigned = null;
+        int bookStripe = circulationLocks.stripeFor(bookIsbn);
+        circulationLocks.lock(bookStripe);
+        try {
+            book = books.get(bookIsbn);
+            if (book == null || holds.find(patronId, bookIsbn) != null) {
+                return null;
+            }
+            BorrowRecord loan = loansByBook.get(book.getOrdinal());
+            if (loan != null && loan.getPatronId().equals(patronId)) {
+                return null;
+            }
+            LocalDate today = LocalDate.now();
+            hold = holds.enqueue(patronId, bookIsbn, priority, today);
+            LibraryJournal current = journal;
+            if (current != null) {
+                current.holdPlaced(hold);
+            }
+            if (book.isAvailable()) {
+                assigned = reshelve(book, today);
+            }
+        } finally {
+            circulationLocks.unlock(bookStripe);
+        }
+        commitJournal();
+        if (assigned != null) {
+            announce(book, assigned);
+        }
+        return hold;
+    }
+    
+    // Withdraws the patron's hold on the book. A copy already set aside for
+    // it passes to the next patron in line.
+    public boolean cancelHold(String patronId, String bookIsbn) {
+        checkWritable();
+        Book book = null;
+        Hold assigned = null;
+        int bookStripe = circulationLocks.stripeFor(bookIsbn);
+        circulationLocks.lock(bookStripe);
+        try {
+            Hold hold = holds.find(patronId, bookIsbn);
+            if (hold == null) {
+                return false;
+            }
+            boolean wasReady = hold.getState() == Hold.State.READY;
+            if (!holds.cancel(hold)) {
+                return false;
+            }
+            LibraryJournal current = journal;
+            if (current != null) {
+                current.holdClosed(hold);
+            }
+            if (wasReady) {
+                book = books.get(bookIsbn);
+                if (book != null) {
+                    assigned = reshelve(book, LocalDate.now());
+                }
+            }
+        } finally {
+            circulationLocks.unlock(bookStripe);
+        }
+        commitJournal();
+        if (book != null) {
+            announce(book, assigned);
+        }
+        return true;
+    }
+    
+    // Expires the ready holds whose pickup deadline is before the given day,
+    // passing each copy to the next patron in line or back to the shelf. Reads
+    // only the expired holds from the deadline index.
+    public List<Hold> expireHolds(LocalDate today) {
+        checkWritable();
+        List<Hold> expired = new ArrayList<>();
+        for (Hold hold : holds.readyBefore(today)) {
+            Book book = null;
+            Hold assigned = null;
+            int bookStripe = circulationLocks.stripeFor(hold.getIsbn());
+            circulationLocks.lock(bookStripe);
+            try {
+                // Picked up or cancelled since the deadline index was read.
+                if (!holds.expire(hold)) {
+                    continue;
+                }
+                LibraryJournal current = journal;
+                if (current != null) {
+                    current.holdClosed(hold);
+                }
+                book = books.get(hold.getIsbn());
+                if (book != null) {
+                    assigned = reshelve(book, today);
+                }
+            } finally {
+                circulationLocks.unlock(bookStripe);
+            }
+            commitJournal();
+            expired.add(hold);
+            if (book != null) {
+                announce(book, assigned);
+            }
+        }
+        return expired;
+    }
+    
+    // Whether the book is off the shelf for a cross-branch checkout between
+    // its two phases. That hold is not persisted, so snapshots record such a
+    // book as available.
+    public boolean isHeldForTransfer(String isbn) {
+        return heldBooks.contains(isbn);
+    }
+    
+    public List<Hold> getHolds(String patronId) {
+        return holds.getHolds(patronId);
+    }
+    
+    // Every waiting and ready hold, by hold ID.
+    public List<Hold> getActiveHolds() {
+        return holds.getActiveHolds();
+    }
+    
+    // Restores a hold read back from a journal or snapshot as waiting; a
+    // ready hold is then assigned through restoreHoldAssigned.
+    public boolean restoreHold(long holdId, String patronId, String bookIsbn, int priority, LocalDate placedDate) {
+        checkWritable();
+        if (!patrons.containsKey(patronId) || books.get(bookIsbn) == null
+                || holds.find(patronId, bookIsbn) != null) {
+            return false;
+        }
+        holds.restore(holdId, patronId, bookIsbn, priority, placedDate);
+        return true;
+    }
+    
+    public boolean restoreHoldAssigned(String patronId, String bookIsbn, LocalDate pickupDeadline) {
+        checkWritable();
+        Book book = books.get(bookIsbn);
+        Hold hold = holds.find(patronId, bookIsbn);
+        if (book == null || hold == null || !holds.assign(hold, pickupDeadline)) {
+            return false;
+        }
+        setAvailability(book, false);
+        return true;
+    }
+    
+    // A copy set aside for an expired or cancelled hold goes back on the
+    // shelf; if it passed to the next patron, that assignment follows in the
+    // journal.
+    public boolean restoreHoldClosed(String patronId, String bookIsbn, Hold.State state) {
+        checkWritable();
+        Hold hold = holds.find(patronId, bookIsbn);
+        if (hold == null) {
+            return false;
+        }
+        boolean wasReady = hold.getState() == Hold.State.READY;
+        boolean closed;
+        switch (state) {
+            case FULFILLED:
+                return holds.fulfil(hold);
+            case EXPIRED:
+                closed = holds.expire(hold);
+                break;
+            case CANCELLED:
+                closed = holds.cancel(hold);
+                break;
+            default:
+                return false;
+        }
+        Book book = books.get(bookIsbn);
+        if (closed && wasReady && book != null) {
+            setAvailability(book, true);
+        }
+        return closed;
+    }
+    
+    public int getHoldQueueLength(String bookIsbn) {
+        int bookStripe = circulationLocks.stripeFor(bookIsbn);
+        circulationLocks.lock(bookStripe);
+        try {
+            return holds.queueLength(bookIsbn);
+        } finally {
+            circulationLocks.unlock(bookStripe);
+        }
+    }
+    
+    public boolean addPatron(Patron patron) {
+        checkWritable();
+        int patronStripe = circulationLocks.stripeFor(patron.getPatronId());
+        circulationLocks.lock(patronStripe);
+        try {
+            // Same ID, same stripe: no other add can race between the check
+            // and the insert, so ordinals are only spent on new patrons.
+            if (patrons.containsKey(patron.getPatronId())) {
+                return false;
+            }
+            patron.setOrdinal(patronOrdinalCounter.getAndIncrement());
+            patronsByOrdinal.set(patron.getOrdinal(), patron);
+            patrons.put(patron.getPatronId(), patron);
+            LibraryJournal current = journal;
+            if (current != null) {
+                current.patronAdded(patron);
+            }
+        } finally {
+            circulationLocks.unlock(patronStripe);
+        }
+        commitJournal();
+        return true;
+    }
+    
+    public Optional<Patron> updatePatron(String patronId, String name, String email, String phone) {
+        checkWritable();
+        int patronStripe = circulationLocks.stripeFor(patronId);
+        circulationLocks.lock(patronStripe);
+        Patron patron;
+        try {
+            patron = patrons.get(patronId);
+            if (patron == null) {
+                return Optional.empty();
+            }
+            if (name != null) patron.setName(name);
+            if (email != null) patron.setEmail(email);
+            if (phone != null) patron.setPhone(phone);
+            LibraryJournal current = journal;
+            if (current != null) {
+                current.patronUpdated(patron);
+            }
+        } finally {
+            circulationLocks.unlock(patronStripe);
+        }
+        commitJournal();
+        return Optional.of(patron);
+    }
+    
+    // Closes the book's holds as cancelled, journaling each ahead of the
+    // removal, and tells their patrons once the locks are released.
+    public boolean removeBook(String isbn) {
+        checkWritable();
+        Book book;
+        List<Hold> cancelled;
+        int bookStripe = circulationLocks.stripeFor(isbn);
+        catalogLock.writeLock().lock();
+        circulationLocks.lock(bookStripe);
+        try {
+            Book stored = books.get(isbn);
+            if (stored == null || loansByBook.get(stored.getOrdinal()) != null) {
+                return false;
+            }
+            observableBooks.set(stored.getOrdinal(), null);
+            cancelled = holds.cancelAll(isbn);
+            book = books.remove(isbn);
+            unindexBook(book);
+            bookChanged(book);
+            LibraryJournal current = journal;
+            if (current != null) {
+                for (Hold hold : cancelled) {
+                    current.holdClosed(hold);
+                }
+                current.bookRemoved(isbn);
+            }
+        } finally {
+            circulationLocks.unlock(bookStripe);
+            catalogLock.writeLock().unlock();
+        }
+        commitJournal();
+        announceWithdrawn(book, cancelled);
+        return true;
+    }
+    
+    public Optional<Book> updateBook(String isbn, String title, String author, Integer publicationYear) {
+        checkWritable();
+        catalogLock.writeLock().lock();
+        Book book;
+        try {
+            book = books.get(isbn);
+            if (book == null) {
+                return Optional.empty();
+            }
+            // The n-gram indexes find the grams to drop from the current text.
+            if (title != null) {
+                if (titleIndex != null) titleIndex.remove(book);
+                book.setTitle(title);
+                if (titleIndex != null) titleIndex.add(book);
+                if (titleTrie != null) titleTrie.update(book);
+            }
+            if (author != null) {
+                if (authorIndex != null) authorIndex.remove(book);
+                book.setAuthor(author);
+                if (authorIndex != null) authorIndex.add(book);
+                if (authorTrie != null) authorTrie.update(book);
+            }
+            if ((title != null || author != null) && rankedIndex != null) {
+                rankedIndex.update(book);
+            }
+            if (publicationYear != null) {
+                int previousYear = book.getPublicationYear();
+                book.setPublicationYear(publicationYear);
+                if (bitmaps != null) bitmaps.updateYear(book, previousYear);
+            }
+            bookChanged(book);
+            LibraryJournal current = journal;
+            if (current != null) {
+                current.bookUpdated(book);
+            }
+        } finally {
+            catalogLock.writeLock().unlock();
+        }
+        commitJournal();
+        return Optional.of(book);
+    }
+    
+    // Runs the action with every catalog and circulation lock held, giving it
+    // a consistent view of the whole library (used for snapshots).
+    public void exclusively(Runnable action) {
+        catalogLock.writeLock().lock();
+        circulationLocks.lockAll();
+        try {
+            action.run();
+        } finally {
+            circulationLocks.unlockAll();
+            catalogLock.writeLock().unlock();
+        }
+    }
+    
+    // BookFilter queries are answered from the most selective index; opaque
+    // predicates fall back to a full scan.
+    public List<Book> searchBooks(Predicate<Book> filter) {
+        long start = System.nanoTime();
+        catalogLock.readLock().lock();
+        try {
+            return planner.plan(BookQuery.of(filter)).execute();
+        } finally {
+            catalogLock.readLock().unlock();
+            metrics.record(Operation.SEARCH_FILTER, start);
+        }
+    }
+    
+    public QueryPlan explain(Predicate<Book> filter) {
+        catalogLock.readLock().lock();
+        try {
+            return planner.plan(BookQuery.of(filter));
+        } finally {
+            catalogLock.readLock().unlock();
+        }
+    }
+    
+    public List<Book> getAvailableBooks() {
+        return searchBooks(BookFilter.availableOnly());
+    }
+    
+    public List<Book> getBorrowedBooks() {
+        return searchBooks(BookFilter.borrowedOnly());
+    }
+    
+    // Every figure comes from a counter kept up to date by the mutations, so
+    // the cost does not depend on the size of the catalog or the loan table.
+    public Map<String, Integer> getBorrowingStatistics() {
+        long start = System.nanoTime();
+        int totalBooks = books.size();
+        int available = availableBooks.get();
+        Map<String, Integer> stats = new HashMap<>();
+        stats.put("totalBooks", totalBooks);
+        stats.put("availableBooks", available);
+        stats.put("borrowedBooks", totalBooks - available);
+        stats.put("totalPatrons", patrons.size());
+        stats.put("overdueBooks", dueDates.overdueCount(LocalDate.now()));
+        stats.put("activeBorrows", loansByBook.size());
+        stats.put("holdsWaiting", holds.getWaitingCount());
+        stats.put("holdsReady", holds.getReadyCount());
+        metrics.record(Operation.STATISTICS, start);
+        return stats;
+    }
+
+    public List<BorrowRecord> getOverdueBooks() {
+        return getOverdueBooks(LocalDate.now());
+    }
+    
+    // Reads only the due dates before the given day from the due-date index.
+    public List<BorrowRecord> getOverdueBooks(LocalDate asOf) {
+        return dueDates.dueBefore(asOf);
+    }
+    
+    // Active loans falling due from today through the next given number of days.
+    public List<BorrowRecord> getBooksDueWithin(int days) {
+        LocalDate today = LocalDate.now();
+        return getBooksDueBetween(today, today.plusDays(days));
+    }
+    
+    public List<BorrowRecord> getBooksDueBetween(LocalDate first, LocalDate last) {
+        return dueDates.dueBetween(first, last);
+    }
+    
+    public Optional<Patron> getPatron(String patronId) {
+        return patronId == null ? Optional.empty() : Optional.ofNullable(patrons.get(patronId));
+    }
+    
+    public List<BorrowRecord> getBorrowingHistory(String patronId) {
+        Patron patron = patrons.get(patronId);
+        return patron != null ? patron.getBorrowingHistory() : Collections.emptyList();
+    }
+    
+    // Getters
+    public Collection<Book> getAllBooks() { 
+        return Collections.unmodifiableCollection(books.values()); 
+    }
+    
+    public Collection<Patron> getAllPatrons() { 
+        return Collections.unmodifiableCollection(patrons.values()); 
+    }
+    
+    public Collection<BorrowRecord> getActiveBorrows() { 
+        return Collections.unmodifiableCollection(loansByBook.values()); 
+    }
+    
+    // Active loans of books here to patrons registered at another library.
+    public List<BorrowRecord> getRemoteLoans() {
+        List<BorrowRecord> remote = new ArrayList<>();
+        for (BorrowRecord record : loansByBook.values()) {
+            if (record.getPatronOrdinal() < 0) {
+                remote.add(record);
+            }
+        }
+        return remote;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,38 @@
+package com.library.service;
+
+import com.library.hold.Hold;
+import com.library.model.Book;
+import com.library.model.BorrowRecord;
+import com.library.model.Patron;
+
+public interface LibraryJournal {
+    void bookAdded(Book book);
+
+    void bookUpdated(Book book);
+
+    void bookRemoved(String isbn);
+
+    void patronAdded(Patron patron);
+
+    void patronUpdated(Patron patron);
+
+    void bookCheckedOut(BorrowRecord record);
+
+    void bookReturned(BorrowRecord record);
+
+    // A held book lent to a patron registered at another library.
+    void bookLentRemotely(BorrowRecord record);
+
+    // Loan slots this library's patron holds for books lent elsewhere.
+    void remoteLoansChanged(String patronId, int delta);
+
+    void holdPlaced(Hold hold);
+
+    // A copy set aside for a waiting hold until its pickup deadline.
+    void holdAssigned(Hold hold);
+
+    // A hold fulfilled, expired or cancelled.
+    void holdClosed(Hold hold);
+
+    void commit();
+}
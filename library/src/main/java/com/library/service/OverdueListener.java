@@ -0,0 +1,10 @@
+package com.library.service;
+
+import com.library.model.BorrowRecord;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface OverdueListener {
+    void loansOverdue(LocalDate asOf, List<BorrowRecord> newlyOverdue);
+}
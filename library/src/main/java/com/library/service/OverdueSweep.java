@@ -0,0 +1,92 @@
+package com.library.service;
+
+import com.library.model.BorrowRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Nightly batch job over the due-date index. Each sweep only reads the due
+// dates that have passed since the previous sweep, so every loan is reported
+// once, on the first sweep after it falls overdue.
+public class OverdueSweep implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(OverdueSweep.class);
+
+    private final Library library;
+    private final OverdueListener listener;
+    private ScheduledExecutorService scheduler;
+    private LocalDate sweptUntil;
+
+    public OverdueSweep(Library library, OverdueListener listener) {
+        this.library = library;
+        this.listener = listener;
+    }
+
+    // Runs the sweep every day at the given local time, starting with the
+    // next occurrence of that time.
+    public synchronized void start(LocalTime runAt) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "library-overdue-sweep");
+            thread.setDaemon(true);
+            return thread;
+        });
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime next = now.toLocalDate().atTime(runAt);
+        if (!next.isAfter(now)) {
+            next = next.plusDays(1);
+        }
+        scheduler.scheduleAtFixedRate(this::sweepQuietly, Duration.between(now, next).toMillis(),
+                TimeUnit.DAYS.toMillis(1), TimeUnit.MILLISECONDS);
+    }
+
+    public List<BorrowRecord> sweep() {
+        return sweep(LocalDate.now());
+    }
+
+    // Reports the loans due before the given day that earlier sweeps have not
+    // reported yet. The first sweep reports every loan that is already overdue,
+    // and a failing listener leaves the range to be reported again next time.
+    public synchronized List<BorrowRecord> sweep(LocalDate today) {
+        if (sweptUntil != null && !today.isAfter(sweptUntil)) {
+            return Collections.emptyList();
+        }
+        long start = System.nanoTime();
+        List<BorrowRecord> newlyOverdue = sweptUntil == null
+                ? library.getOverdueBooks(today)
+                : library.getBooksDueBetween(sweptUntil, today.minusDays(1));
+        if (!newlyOverdue.isEmpty()) {
+            listener.loansOverdue(today, newlyOverdue);
+        }
+        sweptUntil = today;
+        logger.info("Overdue sweep for {} reported {} loans in {} ms", today, newlyOverdue.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return newlyOverdue;
+    }
+
+    private void sweepQuietly() {
+        try {
+            sweep();
+        } catch (RuntimeException e) {
+            logger.error("Overdue sweep failed", e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler = null;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.library.service;
+
+import com.library.filter.BookQuery;
+import com.library.model.Book;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Supplier;
+
+// The access path chosen for a BookQuery and the conjuncts left to check on
+// each candidate it produces.
+public class QueryPlan {
+    private final String accessPath;
+    private final long estimatedRows;
+    private final Supplier<Collection<Book>> candidates;
+    private final List<BookQuery> residual;
+
+    QueryPlan(String accessPath, long estimatedRows, Supplier<Collection<Book>> candidates,
+              List<BookQuery> residual) {
+        this.accessPath = accessPath;
+        this.estimatedRows = estimatedRows;
+        this.candidates = candidates;
+        this.residual = residual;
+    }
+
+    public String getAccessPath() { return accessPath; }
+    public long getEstimatedRows() { return estimatedRows; }
+    public List<BookQuery> getResidual() { return residual; }
+
+    List<Book> execute() {
+        List<Book> results = new ArrayList<>();
+        for (Book book : candidates.get()) {
+            if (matchesResidual(book)) {
+                results.add(book);
+            }
+        }
+        return results;
+    }
+
+    private boolean matchesResidual(Book book) {
+        for (BookQuery conjunct : residual) {
+            if (!conjunct.test(book)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String explain() {
+        StringBuilder text = new StringBuilder(accessPath).append(" (~").append(estimatedRows).append(" rows)");
+        for (int i = 0; i < residual.size(); i++) {
+            text.append(i == 0 ? " -> filter " : " and ").append(residual.get(i));
+        }
+        return text.toString();
+    }
+
+    @Override
+    public String toString() {
+        return explain();
+    }
+}
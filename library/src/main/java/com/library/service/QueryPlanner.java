@@ -0,0 +1,145 @@
+package com.library.service;
+
+import com.library.filter.BookQuery;
+import com.library.index.BookBitmapIndex;
+import com.library.index.NGramIndex;
+import com.library.index.OrdinalBitmap;
+import com.library.model.Book;
+import com.library.store.BookCatalog;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Picks the access path that yields the fewest candidates and leaves the
+// other conjuncts as residual filters. Paths are costed from index sizes
+// alone, cheapest to price first: an ISBN conjunct gives at most one row
+// and ends planning, text paths read posting sizes, and availability and
+// year conjuncts are bounded by their bitmap sizes and only intersected if
+// that plan wins and runs. Planning does not touch any book. The text and
+// bitmap indexes are null for off-heap catalogs.
+class QueryPlanner {
+    private final BookCatalog books;
+    private final NGramIndex titleIndex;
+    private final NGramIndex authorIndex;
+    private final BookBitmapIndex bitmaps;
+
+    QueryPlanner(BookCatalog books, NGramIndex titleIndex, NGramIndex authorIndex, BookBitmapIndex bitmaps) {
+        this.books = books;
+        this.titleIndex = titleIndex;
+        this.authorIndex = authorIndex;
+        this.bitmaps = bitmaps;
+    }
+
+    QueryPlan plan(BookQuery query) {
+        List<BookQuery> conjuncts = query.conjuncts();
+        for (int i = 0; i < conjuncts.size(); i++) {
+            if (conjuncts.get(i).getKind() == BookQuery.Kind.ISBN) {
+                return indexPlan(conjuncts.get(i), without(conjuncts, i));
+            }
+        }
+        QueryPlan best = new QueryPlan("full scan", books.size(), books::values, conjuncts);
+        for (int i = 0; i < conjuncts.size(); i++) {
+            QueryPlan candidate = indexPlan(conjuncts.get(i), without(conjuncts, i));
+            if (candidate != null && candidate.getEstimatedRows() < best.getEstimatedRows()) {
+                best = candidate;
+            }
+        }
+        QueryPlan bitmapPlan = bitmapPlan(conjuncts);
+        if (bitmapPlan != null && bitmapPlan.getEstimatedRows() < best.getEstimatedRows()) {
+            best = bitmapPlan;
+        }
+        return best;
+    }
+
+    // The estimate is the smallest bitmap involved, an upper bound on the
+    // intersection, so choosing this plan costs no bitmap operations.
+    private QueryPlan bitmapPlan(List<BookQuery> conjuncts) {
+        if (bitmaps == null) {
+            return null;
+        }
+        List<BookQuery.YearRange> ranges = new ArrayList<>();
+        List<BookQuery.Availability> availability = new ArrayList<>();
+        List<BookQuery> answered = new ArrayList<>();
+        List<BookQuery> residual = new ArrayList<>();
+        long estimate = Long.MAX_VALUE;
+        for (BookQuery conjunct : conjuncts) {
+            if (conjunct.getKind() == BookQuery.Kind.YEAR_RANGE) {
+                BookQuery.YearRange range = (BookQuery.YearRange) conjunct;
+                estimate = Math.min(estimate, bitmaps.countYears(range.getStartYear(), range.getEndYear()));
+                ranges.add(range);
+                answered.add(conjunct);
+            } else if (conjunct.getKind() == BookQuery.Kind.AVAILABILITY) {
+                BookQuery.Availability wanted = (BookQuery.Availability) conjunct;
+                estimate = Math.min(estimate, bitmaps.countAvailability(wanted.isAvailable()));
+                availability.add(wanted);
+                answered.add(conjunct);
+            } else {
+                residual.add(conjunct);
+            }
+        }
+        if (answered.isEmpty()) {
+            return null;
+        }
+        return new QueryPlan("bitmap " + describe(answered), estimate, () -> {
+            OrdinalBitmap matches = null;
+            for (BookQuery.YearRange range : ranges) {
+                OrdinalBitmap years = bitmaps.years(range.getStartYear(), range.getEndYear());
+                matches = matches == null ? years : OrdinalBitmap.and(matches, years);
+            }
+            // Availability goes last because it is the only bitmap that has
+            // to be read under its own lock.
+            for (BookQuery.Availability wanted : availability) {
+                matches = bitmaps.availability(wanted.isAvailable(), matches);
+            }
+            List<Book> candidates = new ArrayList<>(matches.cardinality());
+            matches.forEach(ordinal -> candidates.add(bitmaps.book(ordinal)));
+            return candidates;
+        }, residual);
+    }
+
+    private static String describe(List<BookQuery> conjuncts) {
+        StringBuilder text = new StringBuilder();
+        for (BookQuery conjunct : conjuncts) {
+            if (text.length() > 0) {
+                text.append(" & ");
+            }
+            text.append(conjunct);
+        }
+        return text.toString();
+    }
+
+    private QueryPlan indexPlan(BookQuery conjunct, List<BookQuery> residual) {
+        switch (conjunct.getKind()) {
+            case ISBN: {
+                String isbn = ((BookQuery.IsbnMatch) conjunct).getIsbn();
+                return new QueryPlan("isbn lookup " + isbn, books.containsKey(isbn) ? 1 : 0, () -> {
+                    Book book = books.get(isbn);
+                    return book == null ? Collections.<Book>emptyList() : Collections.singletonList(book);
+                }, residual);
+            }
+            case TITLE:
+            case AUTHOR: {
+                NGramIndex index = conjunct.getKind() == BookQuery.Kind.TITLE ? titleIndex : authorIndex;
+                if (index == null) {
+                    return null;
+                }
+                String text = ((BookQuery.TextMatch) conjunct).getText();
+                return new QueryPlan(conjunct.getKind().name().toLowerCase() + " index '" + text + "'",
+                        index.estimate(text), () -> index.search(text), residual);
+            }
+            default:
+                return null;
+        }
+    }
+
+    private static List<BookQuery> without(List<BookQuery> conjuncts, int skipped) {
+        List<BookQuery> rest = new ArrayList<>(conjuncts.size());
+        for (int i = 0; i < conjuncts.size(); i++) {
+            if (i != skipped) {
+                rest.add(conjuncts.get(i));
+            }
+        }
+        return rest;
+    }
+}
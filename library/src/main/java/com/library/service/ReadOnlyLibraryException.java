@@ -0,0 +1,11 @@
+package com.library.service;
+
+// Thrown when something tries to change a read-only library, such as a
+// replica, outside journal or snapshot replay.
+public class ReadOnlyLibraryException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+
+    public ReadOnlyLibraryException() {
+        super("This library is read-only");
+    }
+}
@@ -0,0 +1,111 @@
+package com.library.service;
+
+
+import com.library.model.Book;
+import com.library.patterns.SearchStrategy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+public class SearchService implements AutoCloseable {
+    public static final int DEFAULT_SEQUENTIAL_THRESHOLD = 10_000;
+    
+    private SearchStrategy strategy;
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+    private final int sequentialThreshold;
+    
+    public SearchService() {
+        this.pool = null;
+        this.ownsPool = false;
+        this.sequentialThreshold = Integer.MAX_VALUE;
+    }
+    
+    // Lists of at least sequentialThreshold books are searched in chunks on
+    // the JVM's common fork-join pool, shared by every instance, so nothing
+    // needs shutting down; smaller lists stay sequential, as do all lists on
+    // a single processor.
+    public SearchService(int sequentialThreshold) {
+        this.pool = Runtime.getRuntime().availableProcessors() > 1 ? ForkJoinPool.commonPool() : null;
+        this.ownsPool = false;
+        this.sequentialThreshold = Math.max(1, sequentialThreshold);
+    }
+    
+    // As above, but on a dedicated pool of the given parallelism, which
+    // close() shuts down.
+    public SearchService(int parallelism, int sequentialThreshold) {
+        this.pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        this.ownsPool = pool != null;
+        this.sequentialThreshold = Math.max(1, sequentialThreshold);
+    }
+    
+    public void setSearchStrategy(SearchStrategy strategy) {
+        this.strategy = strategy;
+    }
+    
+    public List<Book> performSearch(List<Book> books, SearchStrategy strategy, String query) {
+        if (pool == null || books.size() < sequentialThreshold) {
+            return strategy.search(books, query);
+        }
+        int chunkSize = Math.max(sequentialThreshold / 4, books.size() / (pool.getParallelism() * 4) + 1);
+        return pool.invoke(new ChunkSearch(books, strategy, query, chunkSize));
+    }
+    
+    public List<Book> performSearch(List<Book> books, String query) {
+        if (strategy == null) {
+            throw new IllegalStateException("Search strategy not set");
+        }
+        return performSearch(books, strategy, query);
+    }
+    
+    public boolean isParallel() {
+        return pool != null;
+    }
+    
+    public int getSequentialThreshold() {
+        return sequentialThreshold;
+    }
+    
+    @Override
+    public void close() {
+        if (ownsPool) {
+            pool.shutdown();
+        }
+    }
+    
+    // Splits the list into sub-list views and joins the halves left before
+    // right, so the merged result keeps the order of the input list.
+    private static final class ChunkSearch extends RecursiveTask<List<Book>> {
+        private static final long serialVersionUID = 1L;
+        
+        private final List<Book> books;
+        private final SearchStrategy strategy;
+        private final String query;
+        private final int chunkSize;
+        
+        ChunkSearch(List<Book> books, SearchStrategy strategy, String query, int chunkSize) {
+            this.books = books;
+            this.strategy = strategy;
+            this.query = query;
+            this.chunkSize = chunkSize;
+        }
+        
+        @Override
+        protected List<Book> compute() {
+            if (books.size() <= chunkSize) {
+                return strategy.search(books, query);
+            }
+            int middle = books.size() >>> 1;
+            ChunkSearch left = new ChunkSearch(books.subList(0, middle), strategy, query, chunkSize);
+            ChunkSearch right = new ChunkSearch(books.subList(middle, books.size()), strategy, query, chunkSize);
+            left.fork();
+            List<Book> rightMatches = right.compute();
+            List<Book> leftMatches = left.join();
+            List<Book> merged = new ArrayList<>(leftMatches.size() + rightMatches.size());
+            merged.addAll(leftMatches);
+            merged.addAll(rightMatches);
+            return merged;
+        }
+    }
+}
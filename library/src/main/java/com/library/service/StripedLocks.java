@@ -0,0 +1,84 @@
+package com.library.service;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+class StripedLocks {
+    private final ReentrantLock[] locks;
+    private final int mask;
+
+    StripedLocks(int stripes) {
+        int size = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.locks = new ReentrantLock[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    int stripeFor(String key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    void lock(int stripe) {
+        locks[stripe].lock();
+    }
+
+    void unlock(int stripe) {
+        locks[stripe].unlock();
+    }
+
+    void lockAll() {
+        for (ReentrantLock lock : locks) {
+            lock.lock();
+        }
+    }
+
+    void unlockAll() {
+        for (int i = locks.length - 1; i >= 0; i--) {
+            locks[i].unlock();
+        }
+    }
+
+    int size() {
+        return locks.length;
+    }
+
+    // Marked stripes are taken in index order too, so batches can share
+    // stripes with single operations without deadlocking.
+    void lock(boolean[] stripes) {
+        for (int i = 0; i < locks.length; i++) {
+            if (stripes[i]) {
+                locks[i].lock();
+            }
+        }
+    }
+
+    void unlock(boolean[] stripes) {
+        for (int i = locks.length - 1; i >= 0; i--) {
+            if (stripes[i]) {
+                locks[i].unlock();
+            }
+        }
+    }
+
+    // Two stripes are always taken in index order so that a checkout and a
+    // return touching the same patron and book cannot deadlock.
+    void lock(int first, int second) {
+        if (first == second) {
+            locks[first].lock();
+        } else {
+            locks[Math.min(first, second)].lock();
+            locks[Math.max(first, second)].lock();
+        }
+    }
+
+    void unlock(int first, int second) {
+        if (first == second) {
+            locks[first].unlock();
+        } else {
+            locks[Math.max(first, second)].unlock();
+            locks[Math.min(first, second)].unlock();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.library.shard;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// One shard per branch: books and patrons go to the branch they were
+// assigned to, and keys never assigned fall back to hashing. Assign a key
+// before adding it to the sharded library.
+public class BranchShardRouter implements ShardRouter {
+    private final int branches;
+    private final Map<String, Integer> bookBranches;
+    private final Map<String, Integer> patronBranches;
+    private final HashShardRouter fallback;
+
+    public BranchShardRouter(int branches) {
+        this.branches = branches;
+        this.bookBranches = new ConcurrentHashMap<>();
+        this.patronBranches = new ConcurrentHashMap<>();
+        this.fallback = new HashShardRouter(branches);
+    }
+
+    public void assignBook(String isbn, int branch) {
+        bookBranches.put(isbn, checkBranch(branch));
+    }
+
+    public void assignPatron(String patronId, int branch) {
+        patronBranches.put(patronId, checkBranch(branch));
+    }
+
+    @Override
+    public int shardForBook(String isbn) {
+        Integer branch = bookBranches.get(isbn);
+        return branch != null ? branch : fallback.shardForBook(isbn);
+    }
+
+    @Override
+    public int shardForPatron(String patronId) {
+        Integer branch = patronBranches.get(patronId);
+        return branch != null ? branch : fallback.shardForPatron(patronId);
+    }
+
+    private int checkBranch(int branch) {
+        if (branch < 0 || branch >= branches) {
+            throw new IllegalArgumentException("No branch " + branch + " of " + branches);
+        }
+        return branch;
+    }
+}
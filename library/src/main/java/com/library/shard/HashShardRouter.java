@@ -0,0 +1,31 @@
+package com.library.shard;
+
+// Spreads books and patrons evenly over the shards by a hash of the ISBN or
+// patron ID.
+public class HashShardRouter implements ShardRouter {
+    private final int shards;
+
+    public HashShardRouter(int shards) {
+        if (shards <= 0) {
+            throw new IllegalArgumentException("Shard count must be positive: " + shards);
+        }
+        this.shards = shards;
+    }
+
+    @Override
+    public int shardForBook(String isbn) {
+        return shardFor(isbn);
+    }
+
+    @Override
+    public int shardForPatron(String patronId) {
+        return shardFor(patronId);
+    }
+
+    // String hashes of sequential IDs differ mostly in the low bits, so they
+    // are mixed before taking the remainder.
+    private int shardFor(String key) {
+        int hash = key.hashCode() * 0x9E3779B9;
+        return Math.floorMod(hash ^ (hash >>> 16), shards);
+    }
+}
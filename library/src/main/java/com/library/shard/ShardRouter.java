@@ -0,0 +1,9 @@
+package com.library.shard;
+
+// Decides which shard owns a book or a patron. Must always give the same
+// answer for the same key, since nothing is moved between shards.
+public interface ShardRouter {
+    int shardForBook(String isbn);
+
+    int shardForPatron(String patronId);
+}
@@ -0,0 +1,266 @@
+package com.library.shard;
+
+import com.library.index.RankedPage;
+import com.library.index.ScoredBook;
+import com.library.model.Book;
+import com.library.model.BorrowRecord;
+import com.library.model.Patron;
+import com.library.service.CirculationResult;
+import com.library.service.Library;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+// Partitions books and patrons over several Library shards, such as one per
+// branch. Calls about one book or patron go to the owning shard; searches run
+// on every shard in parallel and the results are merged. A checkout where the
+// patron and the book live on different shards uses the two-phase
+// reservation in Library: the patron's shard reserves a loan slot, the book's
+// shard holds the book, and only then is the book lent. The loan lives with
+// the book, so returns are routed by ISBN. Shards here are in-process Library
+// instances.
+public class ShardedLibrary implements AutoCloseable {
+    private static final Comparator<ScoredBook> RANKING = Comparator
+            .comparingDouble(ScoredBook::getScore).reversed()
+            .thenComparing(scored -> scored.getBook().getIsbn());
+
+    private final List<Library> shards;
+    private final ShardRouter router;
+    private final ExecutorService fanOut;
+    private final LongAdder crossShardCheckouts;
+    private final LongAdder abortedReservations;
+
+    public ShardedLibrary(int shardCount) {
+        this(newShards(shardCount), new HashShardRouter(shardCount));
+    }
+
+    public ShardedLibrary(List<Library> shards, ShardRouter router) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is needed");
+        }
+        this.shards = new ArrayList<>(shards);
+        this.router = router;
+        AtomicInteger counter = new AtomicInteger();
+        this.fanOut = Executors.newFixedThreadPool(Math.max(1, shards.size() - 1), runnable -> {
+            Thread thread = new Thread(runnable, "library-shard-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.crossShardCheckouts = new LongAdder();
+        this.abortedReservations = new LongAdder();
+    }
+
+    private static List<Library> newShards(int shardCount) {
+        List<Library> shards = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(new Library());
+        }
+        return shards;
+    }
+
+    public int getShardCount() { return shards.size(); }
+    public Library getShard(int shard) { return shards.get(shard); }
+    public long getCrossShardCheckouts() { return crossShardCheckouts.sum(); }
+    public long getAbortedReservations() { return abortedReservations.sum(); }
+
+    public Library shardForBook(String isbn) {
+        return shards.get(router.shardForBook(isbn));
+    }
+
+    public Library shardForPatron(String patronId) {
+        return shards.get(router.shardForPatron(patronId));
+    }
+
+    public boolean addBook(Book book) {
+        return shardForBook(book.getIsbn()).addBook(book);
+    }
+
+    // Splits the batch by shard and loads the shards in parallel.
+    public int addBooks(Collection<Book> books) {
+        List<List<Book>> byShard = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            byShard.add(new ArrayList<>());
+        }
+        for (Book book : books) {
+            byShard.get(router.shardForBook(book.getIsbn())).add(book);
+        }
+        int added = 0;
+        for (int count : fanOutByIndex(shard -> shards.get(shard).addBooks(byShard.get(shard)))) {
+            added += count;
+        }
+        return added;
+    }
+
+    public boolean addPatron(Patron patron) {
+        return shardForPatron(patron.getPatronId()).addPatron(patron);
+    }
+
+    public Optional<Patron> getPatron(String patronId) {
+        return shardForPatron(patronId).getPatron(patronId);
+    }
+
+    public Optional<Book> searchByIsbn(String isbn) {
+        return shardForBook(isbn).searchByIsbn(isbn);
+    }
+
+    public List<Book> searchByTitle(String title) {
+        return concat(fanOut(shard -> shard.searchByTitle(title)));
+    }
+
+    public List<Book> searchByAuthor(String author) {
+        return concat(fanOut(shard -> shard.searchByAuthor(author)));
+    }
+
+    // Each shard ranks its own top matches and the pages are merged by score.
+    // BM25 statistics are per shard, so scores are comparable only as far as
+    // the shards' catalogs are alike.
+    public List<ScoredBook> searchRanked(String query, int limit) {
+        List<RankedPage> pages = fanOut(shard -> shard.searchRanked(query, limit));
+        PriorityQueue<int[]> heads = new PriorityQueue<>(Comparator.comparing(
+                (int[] head) -> pages.get(head[0]).getResults().get(head[1]), RANKING));
+        for (int shard = 0; shard < pages.size(); shard++) {
+            if (!pages.get(shard).getResults().isEmpty()) {
+                heads.add(new int[] {shard, 0});
+            }
+        }
+        List<ScoredBook> merged = new ArrayList<>(limit);
+        while (merged.size() < limit && !heads.isEmpty()) {
+            int[] head = heads.poll();
+            List<ScoredBook> results = pages.get(head[0]).getResults();
+            merged.add(results.get(head[1]));
+            if (++head[1] < results.size()) {
+                heads.add(head);
+            }
+        }
+        return merged;
+    }
+
+    public boolean checkoutBook(String patronId, String isbn) {
+        int patronShard = router.shardForPatron(patronId);
+        int bookShard = router.shardForBook(isbn);
+        if (patronShard == bookShard) {
+            return shards.get(patronShard).checkoutBook(patronId, isbn);
+        }
+
+        Library home = shards.get(patronShard);
+        Library owner = shards.get(bookShard);
+        if (!home.reserveLoanSlot(patronId)) {
+            return false;
+        }
+        boolean held = false;
+        boolean lent = false;
+        try {
+            held = owner.holdBook(isbn);
+            if (held) {
+                owner.lendHeldBook(isbn, patronId);
+                lent = true;
+                crossShardCheckouts.increment();
+            }
+        } finally {
+            // A failed second phase puts the book back on its shelf as well.
+            if (!lent) {
+                if (held) {
+                    owner.releaseHeldBook(isbn);
+                }
+                home.releaseLoanSlot(patronId);
+                abortedReservations.increment();
+            }
+        }
+        return lent;
+    }
+
+    public boolean returnBook(String isbn) {
+        int bookShard = router.shardForBook(isbn);
+        CirculationResult result = shards.get(bookShard).returnBooks(Collections.singletonList(isbn)).get(0);
+        if (!result.isSuccess()) {
+            return false;
+        }
+        int patronShard = router.shardForPatron(result.getPatronId());
+        if (patronShard != bookShard) {
+            shards.get(patronShard).releaseLoanSlot(result.getPatronId());
+        }
+        return true;
+    }
+
+    // Every figure is a sum over the shards.
+    public Map<String, Integer> getBorrowingStatistics() {
+        Map<String, Integer> totals = new HashMap<>();
+        for (Map<String, Integer> stats : fanOut(Library::getBorrowingStatistics)) {
+            stats.forEach((key, value) -> totals.merge(key, value, Integer::sum));
+        }
+        return totals;
+    }
+
+    public List<BorrowRecord> getOverdueBooks() {
+        List<BorrowRecord> overdue = concat(fanOut(Library::getOverdueBooks));
+        overdue.sort(Comparator.comparing(BorrowRecord::getDueDate));
+        return overdue;
+    }
+
+    @Override
+    public void close() {
+        fanOut.shutdown();
+        for (Library shard : shards) {
+            if (shard.getNotificationDispatcher() != null) {
+                shard.getNotificationDispatcher().close();
+            }
+        }
+    }
+
+    // Runs the call on every shard, the first on the calling thread and the
+    // rest on the fan-out pool, and returns the results in shard order.
+    private <T> List<T> fanOut(Function<Library, T> call) {
+        return fanOutByIndex(shard -> call.apply(shards.get(shard)));
+    }
+
+    private <T> List<T> fanOutByIndex(IntFunction<T> call) {
+        List<Future<T>> futures = new ArrayList<>(shards.size() - 1);
+        for (int i = 1; i < shards.size(); i++) {
+            int shard = i;
+            futures.add(fanOut.submit(() -> call.apply(shard)));
+        }
+        List<T> results = new ArrayList<>(shards.size());
+        results.add(call.apply(0));
+        for (Future<T> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted waiting for a shard", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IllegalStateException("Shard call failed", e.getCause());
+            }
+        }
+        return results;
+    }
+
+    private static <T> List<T> concat(List<? extends Collection<T>> parts) {
+        int size = 0;
+        for (Collection<T> part : parts) {
+            size += part.size();
+        }
+        List<T> all = new ArrayList<>(size);
+        for (Collection<T> part : parts) {
+            all.addAll(part);
+        }
+        return all;
+    }
+}
@@ -0,0 +1,31 @@
+package com.library.store;
+
+import com.library.model.Book;
+
+import java.util.Collection;
+
+public interface BookCatalog {
+    Book get(String isbn);
+
+    boolean containsKey(String isbn);
+
+    // Returns the instance the catalog now holds for the book, or null when the
+    // ISBN is already present. Off-heap catalogs return a view, not the argument.
+    // Either way the returned book carries its ordinal, which stays fixed until
+    // the book is removed.
+    Book add(Book book);
+
+    Book remove(String isbn);
+
+    // The book holding the ordinal, or null when no book does. Lets indexes
+    // keep ordinals instead of Book references.
+    Book getByOrdinal(int ordinal);
+
+    int size();
+
+    Collection<Book> values();
+
+    // Off-heap catalogs are meant to keep per-book objects out of the heap, so
+    // Library does not build heap-resident text indexes over them.
+    boolean isOffHeap();
+}
@@ -0,0 +1,72 @@
+package com.library.store;
+
+import com.library.model.Book;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Books are looked up without locking; adds and removes synchronize to hand
+// out dense ordinals, reusing those of removed books.
+public class HeapBookCatalog implements BookCatalog {
+    private final Map<String, Book> books = new ConcurrentHashMap<>();
+    private final OrdinalTable<Book> byOrdinal = new OrdinalTable<>();
+    private int nextOrdinal;
+    private int[] freeOrdinals = new int[16];
+    private int freeCount;
+
+    @Override
+    public Book get(String isbn) {
+        return books.get(isbn);
+    }
+
+    @Override
+    public boolean containsKey(String isbn) {
+        return books.containsKey(isbn);
+    }
+
+    @Override
+    public synchronized Book add(Book book) {
+        if (books.containsKey(book.getIsbn())) {
+            return null;
+        }
+        book.setOrdinal(freeCount > 0 ? freeOrdinals[--freeCount] : nextOrdinal++);
+        byOrdinal.set(book.getOrdinal(), book);
+        books.put(book.getIsbn(), book);
+        return book;
+    }
+
+    @Override
+    public synchronized Book remove(String isbn) {
+        Book removed = books.remove(isbn);
+        if (removed != null) {
+            byOrdinal.set(removed.getOrdinal(), null);
+            if (freeCount == freeOrdinals.length) {
+                freeOrdinals = Arrays.copyOf(freeOrdinals, freeCount * 2);
+            }
+            freeOrdinals[freeCount++] = removed.getOrdinal();
+        }
+        return removed;
+    }
+
+    @Override
+    public Book getByOrdinal(int ordinal) {
+        return byOrdinal.get(ordinal);
+    }
+
+    @Override
+    public int size() {
+        return books.size();
+    }
+
+    @Override
+    public Collection<Book> values() {
+        return books.values();
+    }
+
+    @Override
+    public boolean isOffHeap() {
+        return false;
+    }
+}
@@ -0,0 +1,49 @@
+package com.library.store;
+
+import com.library.model.Book;
+
+// Flyweight view of one catalog row; every getter and setter goes straight
+// to the mapped columns, so the view itself holds only the row ordinal.
+class MappedBook extends Book {
+    private final MappedBookCatalog catalog;
+    private final int ordinal;
+
+    MappedBook(MappedBookCatalog catalog, int ordinal, String isbn) {
+        super(isbn, null, null, 0);
+        this.catalog = catalog;
+        this.ordinal = ordinal;
+    }
+
+    @Override
+    public String getTitle() { return catalog.title(ordinal); }
+
+    @Override
+    public void setTitle(String title) { catalog.setTitle(ordinal, title); }
+
+    @Override
+    public String getFoldedTitle() { return fold(getTitle()); }
+
+    @Override
+    public String getAuthor() { return catalog.author(ordinal); }
+
+    @Override
+    public void setAuthor(String author) { catalog.setAuthor(ordinal, author); }
+
+    @Override
+    public String getFoldedAuthor() { return fold(getAuthor()); }
+
+    @Override
+    public int getPublicationYear() { return catalog.publicationYear(ordinal); }
+
+    @Override
+    public void setPublicationYear(int publicationYear) { catalog.setPublicationYear(ordinal, publicationYear); }
+
+    @Override
+    public boolean isAvailable() { return catalog.isAvailable(ordinal); }
+
+    @Override
+    public void setAvailable(boolean available) { catalog.setAvailable(ordinal, available); }
+
+    @Override
+    public int getOrdinal() { return ordinal; }
+}
@@ -0,0 +1,264 @@
+package com.library.store;
+
+import com.library.model.Book;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// Stores each book field in its own memory-mapped column indexed by row
+// ordinal; strings are dictionary-encoded, and removed rows are tombstoned
+// by clearing their ISBN column.
+public class MappedBookCatalog implements BookCatalog, AutoCloseable {
+    private static final int MAGIC = 0x4C494243;
+    private static final int VERSION = 1;
+    private static final int INITIAL_HASH_CAPACITY = 1 << 16;
+
+    private static final long META_MAGIC = 0;
+    private static final long META_ROWS = 8;
+    private static final long META_LIVE_ROWS = 16;
+    private static final long META_STRINGS = 24;
+    private static final long META_STRING_END = 32;
+    private static final long META_HASH_CAPACITY = 40;
+
+    private final MappedFile meta;
+    private final StringDictionary strings;
+    private final MappedFile isbnColumn;
+    private final MappedFile titleColumn;
+    private final MappedFile authorColumn;
+    private final MappedFile yearColumn;
+    private final MappedFile availableColumn;
+    private final MappedFile rowByIsbn;
+    private volatile int rows;
+    private volatile int liveRows;
+
+    private MappedBookCatalog(Path directory) throws IOException {
+        this.meta = new MappedFile(directory.resolve("catalog.meta"));
+        boolean fresh = meta.getInt(META_MAGIC) != MAGIC;
+        if (fresh) {
+            meta.putInt(META_MAGIC, MAGIC);
+            meta.putInt(META_MAGIC + 4, VERSION);
+            meta.putInt(META_HASH_CAPACITY, INITIAL_HASH_CAPACITY);
+        }
+        this.rows = (int) meta.getLong(META_ROWS);
+        this.liveRows = (int) meta.getLong(META_LIVE_ROWS);
+        this.strings = new StringDictionary(directory, (int) meta.getLong(META_STRINGS),
+                meta.getLong(META_STRING_END), meta.getInt(META_HASH_CAPACITY));
+        this.isbnColumn = new MappedFile(directory.resolve("isbn.col"));
+        this.titleColumn = new MappedFile(directory.resolve("title.col"));
+        this.authorColumn = new MappedFile(directory.resolve("author.col"));
+        this.yearColumn = new MappedFile(directory.resolve("year.col"));
+        this.availableColumn = new MappedFile(directory.resolve("available.col"));
+        this.rowByIsbn = new MappedFile(directory.resolve("isbn-row.idx"));
+    }
+
+    public static MappedBookCatalog open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        return new MappedBookCatalog(directory);
+    }
+
+    @Override
+    public Book get(String isbn) {
+        int row = rowOf(isbn);
+        return row < 0 ? null : new MappedBook(this, row, isbn);
+    }
+
+    @Override
+    public boolean containsKey(String isbn) {
+        return rowOf(isbn) >= 0;
+    }
+
+    // The row index is keyed by the ISBN's dictionary ID and stores row + 1,
+    // so zero (the initial file content) means "not present".
+    private int rowOf(String isbn) {
+        int id = strings.find(isbn);
+        if (id == StringDictionary.NO_STRING || 4L * id + 4 > rowByIsbn.capacity()) {
+            return -1;
+        }
+        return rowByIsbn.getInt(4L * id) - 1;
+    }
+
+    @Override
+    public synchronized Book add(Book book) {
+        try {
+            if (containsKey(book.getIsbn())) {
+                return null;
+            }
+            int isbnId = strings.intern(book.getIsbn());
+            int titleId = strings.intern(book.getTitle());
+            int authorId = strings.intern(book.getAuthor());
+
+            int row = rows;
+            long position = 4L * row;
+            isbnColumn.ensureCapacity(position + 4);
+            titleColumn.ensureCapacity(position + 4);
+            authorColumn.ensureCapacity(position + 4);
+            yearColumn.ensureCapacity(position + 4);
+            availableColumn.ensureCapacity(row + 1L);
+            rowByIsbn.ensureCapacity(4L * (isbnId + 1));
+
+            isbnColumn.putInt(position, isbnId);
+            titleColumn.putInt(position, titleId);
+            authorColumn.putInt(position, authorId);
+            yearColumn.putInt(position, book.getPublicationYear());
+            availableColumn.putByte(row, (byte) (book.isAvailable() ? 1 : 0));
+            rowByIsbn.putInt(4L * isbnId, row + 1);
+
+            rows = row + 1;
+            liveRows++;
+            writeMeta();
+            return new MappedBook(this, row, book.getIsbn());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append book to catalog", e);
+        }
+    }
+
+    @Override
+    public synchronized Book remove(String isbn) {
+        int row = rowOf(isbn);
+        if (row < 0) {
+            return null;
+        }
+        int id = isbnColumn.getInt(4L * row);
+        Book removed = new Book(isbn, title(row), author(row), publicationYear(row));
+        removed.setAvailable(isAvailable(row));
+        isbnColumn.putInt(4L * row, StringDictionary.NO_STRING);
+        rowByIsbn.putInt(4L * id, 0);
+        liveRows--;
+        writeMeta();
+        return removed;
+    }
+
+    private void writeMeta() {
+        meta.putLong(META_ROWS, rows);
+        meta.putLong(META_LIVE_ROWS, liveRows);
+        meta.putLong(META_STRINGS, strings.count());
+        meta.putLong(META_STRING_END, strings.dataEnd());
+        meta.putInt(META_HASH_CAPACITY, strings.capacity());
+    }
+
+    String title(int row) {
+        return strings.get(titleColumn.getInt(4L * row));
+    }
+
+    String author(int row) {
+        return strings.get(authorColumn.getInt(4L * row));
+    }
+
+    int publicationYear(int row) {
+        return yearColumn.getInt(4L * row);
+    }
+
+    boolean isAvailable(int row) {
+        return availableColumn.getByte(row) != 0;
+    }
+
+    synchronized void setTitle(int row, String title) {
+        titleColumn.putInt(4L * row, internQuietly(title));
+        writeMeta();
+    }
+
+    synchronized void setAuthor(int row, String author) {
+        authorColumn.putInt(4L * row, internQuietly(author));
+        writeMeta();
+    }
+
+    void setPublicationYear(int row, int publicationYear) {
+        yearColumn.putInt(4L * row, publicationYear);
+    }
+
+    void setAvailable(int row, boolean available) {
+        availableColumn.putByte(row, (byte) (available ? 1 : 0));
+    }
+
+    private int internQuietly(String value) {
+        try {
+            return strings.intern(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write catalog dictionary", e);
+        }
+    }
+
+    @Override
+    public Book getByOrdinal(int ordinal) {
+        if (ordinal < 0 || ordinal >= rows) {
+            return null;
+        }
+        int isbn = isbnColumn.getInt(4L * ordinal);
+        return isbn == StringDictionary.NO_STRING ? null : new MappedBook(this, ordinal, strings.get(isbn));
+    }
+
+    @Override
+    public int size() {
+        return liveRows;
+    }
+
+    @Override
+    public Collection<Book> values() {
+        return new AbstractCollection<Book>() {
+            @Override
+            public Iterator<Book> iterator() {
+                return new RowIterator(rows);
+            }
+
+            @Override
+            public int size() {
+                return liveRows;
+            }
+        };
+    }
+
+    @Override
+    public boolean isOffHeap() {
+        return true;
+    }
+
+    private class RowIterator implements Iterator<Book> {
+        private final int end;
+        private int next;
+
+        RowIterator(int end) {
+            this.end = end;
+            advance();
+        }
+
+        private void advance() {
+            while (next < end && isbnColumn.getInt(4L * next) == StringDictionary.NO_STRING) {
+                next++;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < end;
+        }
+
+        @Override
+        public Book next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int row = next++;
+            advance();
+            return new MappedBook(MappedBookCatalog.this, row, strings.get(isbnColumn.getInt(4L * row)));
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writeMeta();
+        strings.close();
+        isbnColumn.close();
+        titleColumn.close();
+        authorColumn.close();
+        yearColumn.close();
+        availableColumn.close();
+        rowByIsbn.close();
+        meta.close();
+    }
+}
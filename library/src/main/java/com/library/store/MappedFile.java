@@ -0,0 +1,100 @@
+package com.library.store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// A file mapped in fixed-size segments so it can grow past 2 GB without
+// remapping the parts that readers may already be using.
+class MappedFile implements AutoCloseable {
+    static final int SEGMENT_BITS = 24;
+    static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    private final FileChannel channel;
+    private volatile MappedByteBuffer[] segments;
+
+    MappedFile(Path path) throws IOException {
+        this.channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.segments = new MappedByteBuffer[0];
+        long size = channel.size();
+        ensureCapacity(Math.max(size, 1));
+    }
+
+    synchronized void ensureCapacity(long capacity) throws IOException {
+        int needed = (int) ((capacity + SEGMENT_MASK) >>> SEGMENT_BITS);
+        if (needed <= segments.length) {
+            return;
+        }
+        MappedByteBuffer[] grown = Arrays.copyOf(segments, needed);
+        for (int i = segments.length; i < needed; i++) {
+            grown[i] = channel.map(FileChannel.MapMode.READ_WRITE, (long) i << SEGMENT_BITS, SEGMENT_SIZE);
+        }
+        segments = grown;
+    }
+
+    long capacity() {
+        return (long) segments.length << SEGMENT_BITS;
+    }
+
+    private MappedByteBuffer segment(long position) {
+        return segments[(int) (position >>> SEGMENT_BITS)];
+    }
+
+    int getInt(long position) {
+        return segment(position).getInt((int) (position & SEGMENT_MASK));
+    }
+
+    void putInt(long position, int value) {
+        segment(position).putInt((int) (position & SEGMENT_MASK), value);
+    }
+
+    long getLong(long position) {
+        return segment(position).getLong((int) (position & SEGMENT_MASK));
+    }
+
+    void putLong(long position, long value) {
+        segment(position).putLong((int) (position & SEGMENT_MASK), value);
+    }
+
+    byte getByte(long position) {
+        return segment(position).get((int) (position & SEGMENT_MASK));
+    }
+
+    void putByte(long position, byte value) {
+        segment(position).put((int) (position & SEGMENT_MASK), value);
+    }
+
+    void getBytes(long position, byte[] target, int length) {
+        ByteBuffer view = segment(position).duplicate();
+        view.position((int) (position & SEGMENT_MASK));
+        view.get(target, 0, length);
+    }
+
+    void putBytes(long position, byte[] source) {
+        ByteBuffer view = segment(position).duplicate();
+        view.position((int) (position & SEGMENT_MASK));
+        view.put(source);
+    }
+
+    static int remainingInSegment(long position) {
+        return SEGMENT_SIZE - (int) (position & SEGMENT_MASK);
+    }
+
+    void force() {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+}
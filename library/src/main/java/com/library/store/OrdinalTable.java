@@ -0,0 +1,129 @@
+package com.library.store;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Values keyed by a dense int ordinal, stored in fixed-size chunks so a slot
+// costs one reference instead of a hash map entry. Chunks are created on
+// first write and never move; only the chunk directory is copied when it
+// grows, so reads and writes of existing slots take no lock and a write can
+// never be lost to a concurrent resize.
+public class OrdinalTable<V> {
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private volatile AtomicReferenceArray<AtomicReferenceArray<V>> chunks;
+    private final AtomicInteger size;
+
+    public OrdinalTable() {
+        this.chunks = new AtomicReferenceArray<>(1);
+        this.size = new AtomicInteger();
+    }
+
+    public V get(int ordinal) {
+        if (ordinal < 0) {
+            return null;
+        }
+        AtomicReferenceArray<AtomicReferenceArray<V>> directory = chunks;
+        int chunk = ordinal >>> CHUNK_BITS;
+        if (chunk >= directory.length()) {
+            return null;
+        }
+        AtomicReferenceArray<V> slots = directory.get(chunk);
+        return slots == null ? null : slots.get(ordinal & CHUNK_MASK);
+    }
+
+    // Stores the value, or clears the slot when it is null; returns the
+    // previous value.
+    public V set(int ordinal, V value) {
+        if (ordinal < 0) {
+            throw new IllegalArgumentException("Negative ordinal: " + ordinal);
+        }
+        AtomicReferenceArray<V> slots = value == null ? existingChunk(ordinal) : chunk(ordinal);
+        if (slots == null) {
+            return null;
+        }
+        V previous = slots.getAndSet(ordinal & CHUNK_MASK, value);
+        if (previous == null && value != null) {
+            size.incrementAndGet();
+        } else if (previous != null && value == null) {
+            size.decrementAndGet();
+        }
+        return previous;
+    }
+
+    // Stores the value unless the slot is taken; returns the value already
+    // there, or null when this one was stored.
+    public V putIfAbsent(int ordinal, V value) {
+        if (ordinal < 0) {
+            throw new IllegalArgumentException("Negative ordinal: " + ordinal);
+        }
+        AtomicReferenceArray<V> slots = chunk(ordinal);
+        while (true) {
+            V existing = slots.get(ordinal & CHUNK_MASK);
+            if (existing != null) {
+                return existing;
+            }
+            if (slots.compareAndSet(ordinal & CHUNK_MASK, null, value)) {
+                size.incrementAndGet();
+                return null;
+            }
+        }
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    // A snapshot of the stored values in ordinal order.
+    public List<V> values() {
+        List<V> values = new ArrayList<>(size.get());
+        AtomicReferenceArray<AtomicReferenceArray<V>> directory = chunks;
+        for (int c = 0; c < directory.length(); c++) {
+            AtomicReferenceArray<V> slots = directory.get(c);
+            if (slots == null) {
+                continue;
+            }
+            for (int i = 0; i < CHUNK_SIZE; i++) {
+                V value = slots.get(i);
+                if (value != null) {
+                    values.add(value);
+                }
+            }
+        }
+        return values;
+    }
+
+    private AtomicReferenceArray<V> existingChunk(int ordinal) {
+        AtomicReferenceArray<AtomicReferenceArray<V>> directory = chunks;
+        int chunk = ordinal >>> CHUNK_BITS;
+        return chunk < directory.length() ? directory.get(chunk) : null;
+    }
+
+    private AtomicReferenceArray<V> chunk(int ordinal) {
+        AtomicReferenceArray<V> slots = existingChunk(ordinal);
+        return slots != null ? slots : createChunk(ordinal >>> CHUNK_BITS);
+    }
+
+    private synchronized AtomicReferenceArray<V> createChunk(int chunk) {
+        AtomicReferenceArray<AtomicReferenceArray<V>> directory = chunks;
+        if (chunk >= directory.length()) {
+            AtomicReferenceArray<AtomicReferenceArray<V>> grown =
+                    new AtomicReferenceArray<>(Math.max(chunk + 1, directory.length() * 2));
+            for (int c = 0; c < directory.length(); c++) {
+                grown.set(c, directory.get(c));
+            }
+            directory = grown;
+        }
+        AtomicReferenceArray<V> slots = directory.get(chunk);
+        if (slots == null) {
+            slots = new AtomicReferenceArray<>(CHUNK_SIZE);
+            directory.set(chunk, slots);
+        }
+        chunks = directory;
+        return slots;
+    }
+}
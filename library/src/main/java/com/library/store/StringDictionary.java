@@ -0,0 +1,169 @@
+package com.library.store;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+// Append-only string dictionary kept entirely in mapped files: the string
+// bytes, an offset per string ID and an open-addressing hash table of IDs.
+// Interning is single-writer (the catalog synchronizes it) while lookups
+// take no lock, so a growing hash table is built in a new file and then
+// published whole; a lookup probes either the old table or the new one,
+// never a half-rebuilt one.
+class StringDictionary implements AutoCloseable {
+    static final int NO_STRING = -1;
+
+    private final Path tablePath;
+    private final MappedFile data;
+    private final MappedFile offsets;
+    private volatile Table table;
+    private int count;
+    private long dataEnd;
+
+    private static final class Table {
+        private final MappedFile file;
+        private final int capacity;
+
+        Table(MappedFile file, int capacity) throws IOException {
+            this.file = file;
+            this.capacity = capacity;
+            file.ensureCapacity(4L * capacity);
+        }
+    }
+
+    StringDictionary(Path directory, int count, long dataEnd, int capacity) throws IOException {
+        this.tablePath = directory.resolve("strings.hash");
+        this.data = new MappedFile(directory.resolve("strings.dat"));
+        this.offsets = new MappedFile(directory.resolve("strings.idx"));
+        this.table = new Table(new MappedFile(tablePath), capacity);
+        this.count = count;
+        this.dataEnd = dataEnd;
+    }
+
+    int count() { return count; }
+    long dataEnd() { return dataEnd; }
+    int capacity() { return table.capacity; }
+
+    String get(int id) {
+        if (id == NO_STRING) {
+            return null;
+        }
+        long offset = offsets.getLong(8L * id);
+        int length = data.getInt(offset);
+        byte[] bytes = new byte[length];
+        data.getBytes(offset + 4, bytes, length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    int find(String value) {
+        if (value == null) {
+            return NO_STRING;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        Table current = table;
+        int mask = current.capacity - 1;
+        for (int slot = hash(bytes) & mask; ; slot = (slot + 1) & mask) {
+            int entry = current.file.getInt(4L * slot);
+            if (entry == 0) {
+                return NO_STRING;
+            }
+            if (matches(entry - 1, bytes)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    int intern(String value) throws IOException {
+        if (value == null) {
+            return NO_STRING;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        Table current = table;
+        int mask = current.capacity - 1;
+        int slot = hash(bytes) & mask;
+        for (int entry; (entry = current.file.getInt(4L * slot)) != 0; slot = (slot + 1) & mask) {
+            if (matches(entry - 1, bytes)) {
+                return entry - 1;
+            }
+        }
+
+        int needed = 4 + bytes.length;
+        if (needed > MappedFile.SEGMENT_SIZE) {
+            throw new IllegalArgumentException("String too long for catalog dictionary");
+        }
+        // Entries never straddle two mapped segments.
+        if (MappedFile.remainingInSegment(dataEnd) < needed) {
+            dataEnd += MappedFile.remainingInSegment(dataEnd);
+        }
+        data.ensureCapacity(dataEnd + needed);
+        data.putInt(dataEnd, bytes.length);
+        data.putBytes(dataEnd + 4, bytes);
+
+        int id = count;
+        offsets.ensureCapacity(8L * (id + 1));
+        offsets.putLong(8L * id, dataEnd);
+        dataEnd += needed;
+        count++;
+
+        current.file.putInt(4L * slot, id + 1);
+        if (count * 2L > current.capacity) {
+            rehash(current, current.capacity * 2);
+        }
+        return id;
+    }
+
+    // Fills a fresh file and renames it over the table. Lookups still holding
+    // the old table keep reading its mapping, which stays valid after the
+    // file is replaced and its channel closed.
+    private void rehash(Table current, int newCapacity) throws IOException {
+        Path temp = tablePath.resolveSibling(tablePath.getFileName() + ".tmp");
+        Files.deleteIfExists(temp);
+        Table grown = new Table(new MappedFile(temp), newCapacity);
+        int mask = newCapacity - 1;
+        for (int id = 0; id < count; id++) {
+            long offset = offsets.getLong(8L * id);
+            int length = data.getInt(offset);
+            byte[] bytes = new byte[length];
+            data.getBytes(offset + 4, bytes, length);
+            int slot = hash(bytes) & mask;
+            while (grown.file.getInt(4L * slot) != 0) {
+                slot = (slot + 1) & mask;
+            }
+            grown.file.putInt(4L * slot, id + 1);
+        }
+        grown.file.force();
+        Files.move(temp, tablePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        table = grown;
+        current.file.close();
+    }
+
+    private boolean matches(int id, byte[] bytes) {
+        long offset = offsets.getLong(8L * id);
+        if (data.getInt(offset) != bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (data.getByte(offset + 4 + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(byte[] bytes) {
+        int h = 0x811C9DC5;
+        for (byte b : bytes) {
+            h = (h ^ b) * 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    @Override
+    public void close() throws IOException {
+        data.close();
+        offsets.close();
+        table.file.close();
+    }
+}
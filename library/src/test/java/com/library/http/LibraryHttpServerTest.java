@@ -0,0 +1,102 @@
+package com.library.http;
+
+import com.library.model.Book;
+import com.library.model.Patron;
+import com.library.service.Library;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// Talks to the server over the loopback interface with plain
+// HttpURLConnection requests.
+public class LibraryHttpServerTest {
+    private Library library;
+    private LibraryHttpServer server;
+
+    @Before
+    public void startServer() throws IOException {
+        library = new Library();
+        assertTrue(library.addBook(new Book("9780000000001", "The Hobbit", "J.R.R. Tolkien", 1937)));
+        assertTrue(library.addPatron(new Patron("P1", "Alice", "alice@example.com", "555-0101")));
+        assertTrue(library.addPatron(new Patron("P2", "Bob", "bob@example.com", "555-0102")));
+        server = new LibraryHttpServer(new LibraryApi(library), 0);
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        server.close();
+    }
+
+    @Test
+    public void servesCirculationAndHolds() throws IOException {
+        Response book = request("GET", "/books/9780000000001", null);
+        assertEquals(200, book.status);
+        assertTrue(book.body, book.body.contains("\"The Hobbit\""));
+
+        assertEquals(201, request("POST", "/checkout", "patronId=P1&isbn=9780000000001").status);
+        assertEquals(409, request("POST", "/checkout", "patronId=P2&isbn=9780000000001").status);
+        assertEquals(201, request("POST", "/holds", "patronId=P2&isbn=9780000000001").status);
+        assertEquals(200, request("POST", "/return", "isbn=9780000000001").status);
+
+        Response holds = request("GET", "/holds?patronId=P2", null);
+        assertEquals(200, holds.status);
+        assertTrue(holds.body, holds.body.contains("READY"));
+        assertTrue(library.checkoutBook("P2", "9780000000001"));
+    }
+
+    @Test
+    public void reportsErrorsWithStatusCodes() throws IOException {
+        assertEquals(404, request("GET", "/books/9789999999999", null).status);
+        assertEquals(404, request("GET", "/nothing", null).status);
+        assertEquals(400, request("GET", "/books", null).status);
+        assertEquals(405, request("PUT", "/holds", "patronId=P1&isbn=9780000000001").status);
+
+        library.setReadOnly(true);
+        assertEquals(403, request("POST", "/checkout", "patronId=P1&isbn=9780000000001").status);
+        assertEquals(200, request("GET", "/books?isbn=9780000000001", null).status);
+    }
+
+    private Response request(String method, String path, String form) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(
+                "http://localhost:" + server.getPort() + path).openConnection();
+        connection.setRequestMethod(method);
+        if (form != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(form.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        int status = connection.getResponseCode();
+        InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        if (in != null) {
+            try (InputStream stream = in) {
+                stream.transferTo(body);
+            }
+        }
+        return new Response(status, body.toString(StandardCharsets.UTF_8));
+    }
+
+    private static class Response {
+        private final int status;
+        private final String body;
+
+        Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+}
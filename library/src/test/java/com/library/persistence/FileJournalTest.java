@@ -0,0 +1,189 @@
+package com.library.persistence;
+
+import com.library.model.Book;
+import com.library.service.Library;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FileJournalTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void failedWriteKeepsDurableSeqAndFailsClosed() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        FileJournal journal = new FileJournal(directory, 0, true);
+        List<long[]> batches = new ArrayList<>();
+        journal.addListener((entries, firstSeq, lastSeq) -> batches.add(new long[] {firstSeq, lastSeq}));
+        journal.bookAdded(book(1));
+        journal.bookAdded(book(2));
+        journal.commit();
+        assertEquals(2, journal.getDurableSeq());
+
+        journal.bookAdded(book(3));
+        channel(journal).close();
+        assertCommitFails(journal);
+        assertEquals(2, journal.getDurableSeq());
+
+        // Nothing may be written after the entries whose fate is unknown.
+        journal.bookAdded(book(4));
+        assertCommitFails(journal);
+        assertEquals(2, journal.getDurableSeq());
+        assertEquals(1, batches.size());
+        try {
+            journal.close();
+            fail("Closing a failed journal should report the failure");
+        } catch (IOException expected) {
+            // the journal was already failed
+        }
+
+        Library recovered = new Library();
+        JournalReplayer replayer = new JournalReplayer(recovered, 0);
+        replayer.replay(directory);
+        assertEquals(2, replayer.getLastSeq());
+        assertEquals(2, recovered.getAllBooks().size());
+    }
+
+    @Test
+    public void failingListenerDoesNotStopOthersOrTheJournal() throws Exception {
+        FileJournal journal = new FileJournal(folder.getRoot().toPath(), 0, false);
+        List<long[]> batches = new ArrayList<>();
+        journal.addListener((entries, firstSeq, lastSeq) -> {
+            throw new IllegalStateException("listener failure");
+        });
+        journal.addListener((entries, firstSeq, lastSeq) -> batches.add(new long[] {firstSeq, lastSeq}));
+
+        journal.bookAdded(book(1));
+        journal.commit();
+        journal.bookAdded(book(2));
+        journal.bookAdded(book(3));
+        journal.commit();
+
+        assertEquals(3, journal.getDurableSeq());
+        assertEquals(2, batches.size());
+        assertEquals(1, batches.get(0)[0]);
+        assertEquals(1, batches.get(0)[1]);
+        assertEquals(2, batches.get(1)[0]);
+        assertEquals(3, batches.get(1)[1]);
+        journal.close();
+    }
+
+    @Test
+    public void rotateStartsSegmentAfterDurableSeq() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        FileJournal journal = new FileJournal(directory, 0, false);
+        journal.bookAdded(book(1));
+        journal.bookAdded(book(2));
+        assertEquals(2, journal.rotate());
+        journal.bookAdded(book(3));
+        journal.commit();
+        journal.close();
+
+        List<Path> segments = JournalReplayer.segments(directory);
+        assertEquals(2, segments.size());
+        assertEquals(3, JournalReplayer.firstSeq(segments.get(1)));
+        Library recovered = new Library();
+        new JournalReplayer(recovered, 0).replay(directory);
+        assertEquals(3, recovered.getAllBooks().size());
+        assertTrue(recovered.searchByIsbn(isbn(3)).isPresent());
+        assertFalse(recovered.searchByIsbn(isbn(4)).isPresent());
+    }
+
+    // A crash tore the first entry of the newest segment. The journal reopened
+    // after recovery must not append behind the torn bytes, or the next
+    // recovery would stop there and lose everything committed since.
+    @Test
+    public void tornFirstEntryIsCutBeforeAppending() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        FileJournal journal = new FileJournal(directory, 0, false);
+        journal.bookAdded(book(1));
+        journal.bookAdded(book(2));
+        assertEquals(2, journal.rotate());
+        journal.bookAdded(book(3));
+        journal.close();
+        Path newest = JournalReplayer.segments(directory).get(1);
+        try (FileChannel file = FileChannel.open(newest, StandardOpenOption.WRITE)) {
+            file.truncate(file.size() - 5);
+        }
+
+        JournalReplayer replayer = new JournalReplayer(new Library(), 0);
+        replayer.replay(directory);
+        replayer.truncate(directory);
+        assertEquals(2, replayer.getLastSeq());
+        journal = new FileJournal(directory, replayer.getLastSeq(), false);
+        journal.bookAdded(book(4));
+        journal.commit();
+        journal.close();
+
+        Library recovered = new Library();
+        replayer = new JournalReplayer(recovered, 0);
+        replayer.replay(directory);
+        assertEquals(3, replayer.getLastSeq());
+        assertTrue(recovered.searchByIsbn(isbn(4)).isPresent());
+        assertFalse(recovered.searchByIsbn(isbn(3)).isPresent());
+        assertTrue(Files.exists(newest.resolveSibling(newest.getFileName() + ".discarded")));
+    }
+
+    // Entries after a missing segment would be applied on top of the changes
+    // it held, so replay stops at the gap and the rest is set aside.
+    @Test
+    public void replayStopsAtAGapInSequenceNumbers() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        FileJournal journal = new FileJournal(directory, 0, false);
+        journal.bookAdded(book(1));
+        assertEquals(1, journal.rotate());
+        journal.bookAdded(book(2));
+        assertEquals(2, journal.rotate());
+        journal.bookRemoved(isbn(2));
+        journal.bookAdded(book(3));
+        journal.close();
+        Files.delete(JournalReplayer.segments(directory).get(1));
+
+        Library recovered = new Library();
+        JournalReplayer replayer = new JournalReplayer(recovered, 0);
+        replayer.replay(directory);
+        assertEquals(1, replayer.getLastSeq());
+        assertEquals(1, recovered.getAllBooks().size());
+        replayer.truncate(directory);
+        assertEquals(1, JournalReplayer.segments(directory).size());
+    }
+
+    private static void assertCommitFails(FileJournal journal) {
+        try {
+            journal.commit();
+            fail("Commit should fail");
+        } catch (UncheckedIOException expected) {
+            // the write failed or the journal had already failed
+        }
+    }
+
+    private static FileChannel channel(FileJournal journal) throws ReflectiveOperationException {
+        Field field = FileJournal.class.getDeclaredField("channel");
+        field.setAccessible(true);
+        return (FileChannel) field.get(journal);
+    }
+
+    private static Book book(int n) {
+        return new Book(isbn(n), "Title " + n, "Author " + n, 2000 + n);
+    }
+
+    private static String isbn(int n) {
+        return String.format("978%010d", n);
+    }
+}
@@ -0,0 +1,297 @@
+package com.library.persistence;
+
+import com.library.hold.Hold;
+import com.library.model.Book;
+import com.library.model.Patron;
+import com.library.service.Library;
+import com.library.service.ReadOnlyLibraryException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+// Crashes are simulated by copying the data directory while the primary is
+// still open, then damaging the copy the way an interrupted write would.
+public class LibraryPersistenceTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void recoversCommittedEntriesBeforeTornTail() throws Exception {
+        Path directory = folder.newFolder("primary").toPath();
+        Library library = new Library();
+        try (LibraryPersistence persistence = LibraryPersistence.open(directory, library, true, 0)) {
+            populate(library, 0, 10);
+            assertTrue(library.checkoutBook("P0", isbn(3)));
+            assertTrue(library.returnBook(isbn(3)));
+            assertTrue(library.checkoutBook("P1", isbn(4)));
+
+            Path crashed = copy(directory, folder.newFolder("crashed").toPath());
+            Path segment = last(JournalReplayer.segments(crashed));
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+                // Half of the last entry, the checkout of isbn(4), made it.
+                channel.truncate(channel.size() - 10);
+            }
+
+            Library recovered = new Library();
+            try (LibraryPersistence reopened = LibraryPersistence.open(crashed, recovered, true, 0)) {
+                assertEquals(persistence.getDurableSeq() - 1, reopened.getDurableSeq());
+                assertEquals(10, recovered.getAllBooks().size());
+                assertTrue(recovered.searchByIsbn(isbn(3)).get().isAvailable());
+                assertTrue(recovered.searchByIsbn(isbn(4)).get().isAvailable());
+                assertEquals(1, recovered.getBorrowingHistory("P0").size());
+
+                // The journal resumes after the last intact entry.
+                assertTrue(recovered.checkoutBook("P1", isbn(4)));
+            }
+            Library again = new Library();
+            try (LibraryPersistence reopened = LibraryPersistence.open(crashed, again, true, 0)) {
+                assertFalse(again.searchByIsbn(isbn(4)).get().isAvailable());
+            }
+        }
+    }
+
+    @Test
+    public void snapshotKeepsOnePreviousGeneration() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        Library library = new Library();
+        try (LibraryPersistence persistence = LibraryPersistence.open(directory, library, true, 0)) {
+            populate(library, 0, 5);
+            long first = LibraryPersistence.snapshotSeq(persistence.snapshot());
+            populate(library, 5, 10);
+            long second = LibraryPersistence.snapshotSeq(persistence.snapshot());
+            populate(library, 10, 15);
+            long third = LibraryPersistence.snapshotSeq(persistence.snapshot());
+
+            List<Path> snapshots = SnapshotFile.snapshots(directory);
+            assertEquals(2, snapshots.size());
+            assertEquals(second, SnapshotFile.seqOf(snapshots.get(0)));
+            assertEquals(third, SnapshotFile.seqOf(snapshots.get(1)));
+            assertTrue(first < second);
+            // The journal still reaches back to the older snapshot.
+            assertEquals(second + 1, JournalReplayer.firstSeq(JournalReplayer.segments(directory).get(0)));
+        }
+    }
+
+    @Test
+    public void fallsBackToPreviousSnapshotWhenLatestIsUnreadable() throws Exception {
+        Path directory = folder.newFolder("primary").toPath();
+        Library library = new Library();
+        try (LibraryPersistence persistence = LibraryPersistence.open(directory, library, true, 0)) {
+            populate(library, 0, 5);
+            persistence.snapshot();
+            populate(library, 5, 10);
+            assertTrue(library.checkoutBook("P6", isbn(7)));
+            Path latest = persistence.snapshot();
+            populate(library, 10, 12);
+
+            Path crashed = copy(directory, folder.newFolder("crashed").toPath());
+            Path damaged = crashed.resolve(latest.getFileName());
+            try (FileChannel channel = FileChannel.open(damaged, StandardOpenOption.WRITE)) {
+                channel.truncate(channel.size() / 2);
+            }
+
+            Library recovered = new Library();
+            try (LibraryPersistence reopened = LibraryPersistence.open(crashed, recovered, true, 0)) {
+                assertEquals(persistence.getDurableSeq(), reopened.getDurableSeq());
+                assertEquals(12, recovered.getAllBooks().size());
+                assertEquals(12, recovered.getAllPatrons().size());
+                assertFalse(recovered.searchByIsbn(isbn(7)).get().isAvailable());
+                assertEquals(1, recovered.getBorrowingHistory("P6").size());
+            }
+        }
+    }
+
+    // A patron of one library borrows a book from another: the patron's
+    // library keeps the reserved slot and the book's library keeps the loan.
+    @Test
+    public void crossBranchLoanSurvivesRestart() throws Exception {
+        Path homeDirectory = folder.newFolder("home").toPath();
+        Path ownerDirectory = folder.newFolder("owner").toPath();
+        Library home = new Library();
+        Library owner = new Library();
+        try (LibraryPersistence homePersistence = LibraryPersistence.open(homeDirectory, home, true, 0);
+             LibraryPersistence ownerPersistence = LibraryPersistence.open(ownerDirectory, owner, true, 0)) {
+            assertTrue(home.addPatron(new Patron("P0", "Patron 0", "p0@example.com", "555-0")));
+            for (int i = 0; i < 3; i++) {
+                assertTrue(owner.addBook(new Book(isbn(i), "Title " + i, "Author " + i, 2000 + i)));
+            }
+            assertTrue(home.reserveLoanSlot("P0"));
+            assertTrue(owner.holdBook(isbn(1)));
+            owner.lendHeldBook(isbn(1), "P0");
+            homePersistence.snapshot();
+            ownerPersistence.snapshot();
+            assertTrue(home.reserveLoanSlot("P0"));
+            assertTrue(owner.holdBook(isbn(2)));
+            owner.lendHeldBook(isbn(2), "P0");
+        }
+
+        // Recovery goes through a snapshot for the first loan and the
+        // journal for the second.
+        Library recoveredHome = new Library();
+        Library recoveredOwner = new Library();
+        try (LibraryPersistence homePersistence = LibraryPersistence.open(homeDirectory, recoveredHome, true, 0);
+             LibraryPersistence ownerPersistence = LibraryPersistence.open(ownerDirectory, recoveredOwner, true, 0)) {
+            assertEquals(2, recoveredHome.getPatron("P0").get().getCurrentlyBorrowedCount());
+            assertEquals(2, recoveredOwner.getRemoteLoans().size());
+            assertFalse(recoveredOwner.searchByIsbn(isbn(1)).get().isAvailable());
+            assertFalse(recoveredOwner.searchByIsbn(isbn(2)).get().isAvailable());
+
+            assertTrue(recoveredOwner.returnBook(isbn(1)));
+            recoveredHome.releaseLoanSlot("P0");
+            assertTrue(recoveredOwner.searchByIsbn(isbn(1)).get().isAvailable());
+            assertEquals(1, recoveredHome.getPatron("P0").get().getCurrentlyBorrowedCount());
+        }
+    }
+
+    @Test
+    public void holdsSurviveRestart() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        Library library = new Library();
+        LocalDate today = LocalDate.now();
+        try (LibraryPersistence persistence = LibraryPersistence.open(directory, library, true, 0)) {
+            populate(library, 0, 5);
+            assertTrue(library.checkoutBook("P0", isbn(1)));
+            assertTrue(library.placeHold("P1", isbn(1)).isPresent());
+            assertTrue(library.placeHold("P2", isbn(1), 1).isPresent());
+            assertEquals(Hold.State.READY, library.placeHold("P3", isbn(2)).get().getState());
+            persistence.snapshot();
+
+            assertTrue(library.placeHold("P4", isbn(1)).isPresent());
+            assertTrue(library.checkoutBook("P3", isbn(2)));
+            assertTrue(library.placeHold("P0", isbn(3)).isPresent());
+            assertEquals(1, library.expireHolds(today.plusDays(8)).size());
+            assertTrue(library.returnBook(isbn(1)));
+        }
+
+        // The first recovery replays the journal over the snapshot; the second
+        // reads everything from a snapshot.
+        for (int round = 0; round < 2; round++) {
+            Library recovered = new Library();
+            try (LibraryPersistence persistence = LibraryPersistence.open(directory, recovered, true, 0)) {
+                List<Hold> ready = recovered.getHolds("P2");
+                assertEquals(1, ready.size());
+                assertEquals(Hold.State.READY, ready.get(0).getState());
+                assertEquals(today.plusDays(7), ready.get(0).getPickupDeadline());
+                assertFalse(recovered.searchByIsbn(isbn(1)).get().isAvailable());
+                assertEquals(2, recovered.getHoldQueueLength(isbn(1)));
+                assertTrue(recovered.getHolds("P3").isEmpty());
+                assertFalse(recovered.searchByIsbn(isbn(2)).get().isAvailable());
+                assertTrue(recovered.getHolds("P0").isEmpty());
+                assertTrue(recovered.searchByIsbn(isbn(3)).get().isAvailable());
+                if (round == 0) {
+                    persistence.snapshot();
+                    continue;
+                }
+                // Queue order survives: P1 placed its hold before P4.
+                assertTrue(recovered.cancelHold("P2", isbn(1)));
+                assertEquals(Hold.State.READY, recovered.getHolds("P1").get(0).getState());
+                long lastId = recovered.getHolds("P4").get(0).getHoldId();
+                assertTrue(recovered.placeHold("P0", isbn(4)).get().getHoldId() > lastId);
+            }
+        }
+    }
+
+    // Each hold is closed by its own entry ahead of the removal, so replay
+    // never finds a hold on a book that is gone.
+    @Test
+    public void removingABookJournalsItsClosedHolds() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        Library library = new Library();
+        try (LibraryPersistence persistence = LibraryPersistence.open(directory, library, true, 0)) {
+            populate(library, 0, 3);
+            assertTrue(library.placeHold("P0", isbn(1)).isPresent());
+            assertTrue(library.placeHold("P1", isbn(1)).isPresent());
+            long before = persistence.getDurableSeq();
+            assertTrue(library.removeBook(isbn(1)));
+            assertEquals(before + 3, persistence.getDurableSeq());
+            assertTrue(library.getHolds("P1").isEmpty());
+        }
+
+        Library recovered = new Library();
+        try (LibraryPersistence persistence = LibraryPersistence.open(directory, recovered, true, 0)) {
+            assertFalse(recovered.searchByIsbn(isbn(1)).isPresent());
+            assertTrue(recovered.getActiveHolds().isEmpty());
+            assertTrue(recovered.addBook(new Book(isbn(1), "Title 1", "Author 1", 2001)));
+            assertEquals(Hold.State.READY, recovered.placeHold("P0", isbn(1)).get().getState());
+        }
+    }
+
+    // A replica recovers through replay but refuses every other change.
+    @Test
+    public void readOnlyLibraryAcceptsOnlyReplayedChanges() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        Library library = new Library();
+        try (LibraryPersistence persistence = LibraryPersistence.open(directory, library, true, 0)) {
+            populate(library, 0, 3);
+            persistence.snapshot();
+            assertTrue(library.checkoutBook("P0", isbn(1)));
+        }
+
+        Library replica = new Library();
+        replica.setReadOnly(true);
+        try (LibraryPersistence persistence = LibraryPersistence.open(directory, replica, true, 0)) {
+            assertEquals(3, replica.getAllBooks().size());
+            assertFalse(replica.searchByIsbn(isbn(1)).get().isAvailable());
+            try {
+                replica.checkoutBook("P1", isbn(2));
+                fail("Checkout on a read-only library");
+            } catch (ReadOnlyLibraryException expected) {
+                // nothing was changed
+            }
+            assertTrue(replica.searchByIsbn(isbn(2)).get().isAvailable());
+        }
+    }
+
+    @Test
+    public void readJournalStopsAtTheGivenSeq() throws Exception {
+        Library library = new Library();
+        try (LibraryPersistence persistence = LibraryPersistence.open(folder.getRoot().toPath(), library, true, 0)) {
+            populate(library, 0, 5);
+            long[] range = {Long.MAX_VALUE, 0};
+            assertTrue(persistence.readJournal(2, 6, (entries, firstSeq, lastSeq) -> {
+                range[0] = Math.min(range[0], firstSeq);
+                range[1] = Math.max(range[1], lastSeq);
+            }));
+            assertEquals(3, range[0]);
+            assertEquals(6, range[1]);
+        }
+    }
+
+    private static void populate(Library library, int from, int to) {
+        for (int i = from; i < to; i++) {
+            assertTrue(library.addBook(new Book(isbn(i), "Title " + i, "Author " + i, 2000 + i)));
+            assertTrue(library.addPatron(new Patron("P" + i, "Patron " + i, "p" + i + "@example.com", "555-" + i)));
+        }
+    }
+
+    private static Path copy(Path from, Path to) throws IOException {
+        try (Stream<Path> files = Files.list(from)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.copy(file, to.resolve(file.getFileName()));
+            }
+        }
+        return to;
+    }
+
+    private static Path last(List<Path> paths) {
+        return paths.get(paths.size() - 1);
+    }
+
+    private static String isbn(int n) {
+        return String.format("978%010d", n);
+    }
+}
@@ -0,0 +1,125 @@
+package com.library.replication;
+
+import com.library.hold.Hold;
+import com.library.model.Book;
+import com.library.model.Patron;
+import com.library.persistence.LibraryPersistence;
+import com.library.service.Library;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+// Primary and replica run in the same JVM over the loopback interface.
+public class ReplicationTest {
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // The journal no longer reaches back to seq 1, so an empty replica is
+    // seeded from a snapshot that spans several chunk frames.
+    @Test
+    public void seedsFromSnapshotLargerThanOneChunk() throws Exception {
+        Library library = new Library();
+        try (LibraryPersistence persistence = LibraryPersistence.open(folder.getRoot().toPath(), library, false, 0);
+             ReplicationPrimary primary = new ReplicationPrimary(persistence, 0)) {
+            populate(library, 0, 20_000);
+            assertTrue(library.checkoutBook("P1", isbn(1)));
+            persistence.snapshot();
+            populate(library, 20_000, 20_010);
+            Path snapshot = persistence.snapshot();
+            assertTrue(Files.size(snapshot) > 2L * ReplicationProtocol.SNAPSHOT_CHUNK_BYTES);
+            assertTrue(library.returnBook(isbn(1)));
+            primary.start();
+
+            Library copy = new Library();
+            try (LibraryReplica replica = replica(copy, primary)) {
+                awaitCaughtUp(replica, persistence);
+                assertEquals(20_010, copy.getAllBooks().size());
+                assertEquals(20_010, copy.getAllPatrons().size());
+                assertTrue(copy.searchByIsbn(isbn(1)).get().isAvailable());
+                assertEquals(1, copy.getBorrowingHistory("P1").size());
+            }
+        }
+    }
+
+    // The primary goes away while the library keeps changing; a new primary
+    // on the same port serves the replica the entries it missed.
+    @Test
+    public void catchesUpAfterPrimaryRestart() throws Exception {
+        Library library = new Library();
+        try (LibraryPersistence persistence = LibraryPersistence.open(folder.getRoot().toPath(), library, false, 0)) {
+            ReplicationPrimary primary = new ReplicationPrimary(persistence, 0);
+            primary.start();
+            int port = primary.getPort();
+            populate(library, 0, 10);
+
+            Library copy = new Library();
+            try (LibraryReplica replica = replica(copy, primary)) {
+                awaitCaughtUp(replica, persistence);
+                primary.close();
+                await(() -> !replica.getStatus().isConnected());
+
+                assertTrue(library.checkoutBook("P0", isbn(1)));
+                assertTrue(library.placeHold("P1", isbn(1)).isPresent());
+                assertEquals(Hold.State.READY, library.placeHold("P2", isbn(2)).get().getState());
+                assertTrue(library.removeBook(isbn(9)));
+                populate(library, 10, 12);
+
+                try (ReplicationPrimary restarted = new ReplicationPrimary(persistence, port)) {
+                    restarted.start();
+                    awaitCaughtUp(replica, persistence);
+                    assertTrue(replica.getStatus().getReconnects() > 0);
+                    assertEquals(11, copy.getAllBooks().size());
+                    assertFalse(copy.searchByIsbn(isbn(9)).isPresent());
+                    assertFalse(copy.searchByIsbn(isbn(1)).get().isAvailable());
+                    assertEquals(1, copy.getHoldQueueLength(isbn(1)));
+                    List<Hold> ready = copy.getHolds("P2");
+                    assertEquals(1, ready.size());
+                    assertEquals(Hold.State.READY, ready.get(0).getState());
+                    assertTrue(copy.getPatron("P11").isPresent());
+                }
+            }
+        }
+    }
+
+    private static LibraryReplica replica(Library library, ReplicationPrimary primary) {
+        LibraryReplica replica = new LibraryReplica(library,
+                new InetSocketAddress("localhost", primary.getPort()));
+        replica.start();
+        return replica;
+    }
+
+    private static void awaitCaughtUp(LibraryReplica replica, LibraryPersistence persistence) throws InterruptedException {
+        await(() -> replica.getStatus().getAppliedSeq() == persistence.getDurableSeq());
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!condition.getAsBoolean()) {
+            assertFalse("Timed out waiting for the replica", System.currentTimeMillis() > deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private static void populate(Library library, int from, int to) {
+        for (int i = from; i < to; i++) {
+            assertTrue(library.addBook(new Book(isbn(i), "Title " + i, "Author " + i, 2000 + i % 20)));
+            assertTrue(library.addPatron(new Patron("P" + i, "Patron " + i, "p" + i + "@example.com", "555-" + i)));
+        }
+    }
+
+    private static String isbn(int n) {
+        return String.format("978%010d", n);
+    }
+}
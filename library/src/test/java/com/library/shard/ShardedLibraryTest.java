@@ -0,0 +1,67 @@
+package com.library.shard;
+
+import com.library.model.Book;
+import com.library.model.BorrowRecord;
+import com.library.model.Patron;
+import com.library.service.Library;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+// The patron lives on branch 0 and the book on branch 1, so every checkout
+// here takes the two-phase path.
+public class ShardedLibraryTest {
+    private static final String ISBN = "9780000000001";
+
+    @Test
+    public void failedSecondPhaseReleasesBothReservations() {
+        FlakyLibrary owner = new FlakyLibrary();
+        Library home = new Library();
+        BranchShardRouter router = new BranchShardRouter(2);
+        router.assignPatron("P1", 0);
+        router.assignBook(ISBN, 1);
+        try (ShardedLibrary library = new ShardedLibrary(Arrays.asList(home, owner), router)) {
+            assertTrue(library.addPatron(new Patron("P1", "Patron 1", "p1@example.com", "555-0001")));
+            assertTrue(library.addBook(new Book(ISBN, "Title", "Author", 2000)));
+
+            owner.failLending = true;
+            try {
+                library.checkoutBook("P1", ISBN);
+                fail("Lending should have failed");
+            } catch (IllegalStateException expected) {
+                // The book's shard failed between holding and lending the book.
+            }
+            assertEquals(1, library.getAbortedReservations());
+            assertEquals(0, home.getPatron("P1").get().getRemoteLoanCount());
+            assertFalse(owner.isHeldForTransfer(ISBN));
+            assertTrue(owner.searchByIsbn(ISBN).get().isAvailable());
+
+            owner.failLending = false;
+            assertTrue(library.checkoutBook("P1", ISBN));
+            assertEquals(1, library.getCrossShardCheckouts());
+            assertEquals(1, home.getPatron("P1").get().getRemoteLoanCount());
+            assertFalse(owner.searchByIsbn(ISBN).get().isAvailable());
+
+            assertTrue(library.returnBook(ISBN));
+            assertEquals(0, home.getPatron("P1").get().getRemoteLoanCount());
+            assertTrue(owner.searchByIsbn(ISBN).get().isAvailable());
+        }
+    }
+
+    private static class FlakyLibrary extends Library {
+        private volatile boolean failLending;
+
+        @Override
+        public BorrowRecord lendHeldBook(String isbn, String patronId) {
+            if (failLending) {
+                throw new IllegalStateException("Branch unavailable");
+            }
+            return super.lendHeldBook(isbn, patronId);
+        }
+    }
+}
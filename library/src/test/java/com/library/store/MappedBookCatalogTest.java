@@ -0,0 +1,85 @@
+package com.library.store;
+
+import com.library.model.Book;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class MappedBookCatalogTest {
+    // Three strings per book, so this grows the dictionary's hash table
+    // several times past its initial 64K slots.
+    private static final int BOOKS = 60_000;
+    private static final int PRELOADED = 1_000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void lookupsSeeEveryBookWhileAddsGrowTheDictionary() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        try (MappedBookCatalog catalog = MappedBookCatalog.open(directory)) {
+            for (int i = 0; i < PRELOADED; i++) {
+                catalog.add(book(i));
+            }
+            AtomicInteger added = new AtomicInteger(PRELOADED);
+            AtomicBoolean done = new AtomicBoolean();
+            AtomicReference<String> missing = new AtomicReference<>();
+            List<Thread> readers = new ArrayList<>();
+            for (int r = 0; r < 2; r++) {
+                Random random = new Random(r);
+                Thread reader = new Thread(() -> {
+                    while (!done.get() && missing.get() == null) {
+                        int n = random.nextInt(added.get());
+                        Book found = catalog.get(isbn(n));
+                        if (found == null || !catalog.containsKey(isbn(n)) || !title(n).equals(found.getTitle())) {
+                            missing.compareAndSet(null, isbn(n));
+                        }
+                    }
+                }, "library-test-reader-" + r);
+                reader.start();
+                readers.add(reader);
+            }
+            for (int i = PRELOADED; i < BOOKS; i++) {
+                catalog.add(book(i));
+                added.set(i + 1);
+            }
+            done.set(true);
+            for (Thread reader : readers) {
+                reader.join();
+            }
+            assertNull("Lookup missed " + missing.get(), missing.get());
+            assertEquals(BOOKS, catalog.size());
+        }
+
+        try (MappedBookCatalog reopened = MappedBookCatalog.open(directory)) {
+            for (int i = 0; i < BOOKS; i += 997) {
+                assertNotNull(reopened.get(isbn(i)));
+            }
+            assertEquals(BOOKS, reopened.size());
+        }
+    }
+
+    private static Book book(int n) {
+        return new Book(isbn(n), title(n), "Author " + n, 1900 + n % 120);
+    }
+
+    private static String isbn(int n) {
+        return String.format("978%010d", n);
+    }
+
+    private static String title(int n) {
+        return "Title " + n;
+    }
+}